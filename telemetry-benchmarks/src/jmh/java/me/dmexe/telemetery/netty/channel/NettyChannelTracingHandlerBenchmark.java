@@ -0,0 +1,59 @@
+package me.dmexe.telemetery.netty.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.prometheus.client.CollectorRegistry;
+import java.time.Duration;
+import me.dmexe.telemetry.benchmarks.TracerState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the per-buffer cost of {@link NettyChannelTracingHandler} {@code write} and
+ * {@code channelRead}.
+ */
+@State(Scope.Thread)
+public class NettyChannelTracingHandlerBenchmark {
+
+  @Param({"false", "true"})
+  public boolean batched;
+
+  private EmbeddedChannel channel;
+  private ByteBuf buffer;
+
+  @Setup
+  public void setUp(TracerState tracing) {
+    final NettyChannelTracingFactory factory = new DefaultNettyChannelTracingFactory()
+        .collectorRegistry(new CollectorRegistry())
+        .address("127.0.0.1:8080");
+
+    if (batched) {
+      factory.batchBytes(64 * 1024, Duration.ofSeconds(1));
+    }
+
+    channel = new EmbeddedChannel(factory.newServerHandler());
+    buffer = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(new byte[512]));
+  }
+
+  @TearDown
+  public void tearDown() {
+    channel.finishAndReleaseAll();
+  }
+
+  @Benchmark
+  public Object write() {
+    channel.writeOutbound(buffer);
+    return channel.readOutbound();
+  }
+
+  @Benchmark
+  public Object read() {
+    channel.writeInbound(buffer);
+    return channel.readInbound();
+  }
+}
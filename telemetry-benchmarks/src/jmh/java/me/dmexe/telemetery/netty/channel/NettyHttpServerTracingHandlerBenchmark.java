@@ -0,0 +1,63 @@
+package me.dmexe.telemetery.netty.channel;
+
+import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.prometheus.client.CollectorRegistry;
+import me.dmexe.telemetry.benchmarks.TracerState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures a full request/response cycle of {@link NettyHttpServerTracingHandler}, the
+ * {@code channelRead} of a request followed by the {@code write} of a response.
+ */
+@State(Scope.Thread)
+public class NettyHttpServerTracingHandlerBenchmark {
+  private EmbeddedChannel channel;
+  private FullHttpRequest request;
+  private FullHttpResponse response;
+
+  @Setup
+  public void setUp(TracerState tracing) {
+    final NettyHttpTracingFactory factory = new DefaultNettyHttpTracingFactory()
+        .collectorRegistry(new CollectorRegistry())
+        .tracer(tracing.tracer)
+        .address("127.0.0.1:8080");
+
+    channel = new EmbeddedChannel(factory.newServerHandler());
+
+    request = new DefaultFullHttpRequest(HTTP_1_1, GET, "/ping");
+    request.headers().set(HttpHeaderNames.HOST, "127.0.0.1");
+    request.headers().set(HttpHeaderNames.ACCEPT, "*/*");
+    request.headers().set(HttpHeaderNames.USER_AGENT, "jmh");
+
+    response = new DefaultFullHttpResponse(HTTP_1_1, OK);
+    response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN);
+    response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    channel.finishAndReleaseAll();
+  }
+
+  @Benchmark
+  public Object channelReadAndWrite() {
+    channel.writeInbound(request);
+    channel.readInbound();
+    channel.writeOutbound(response);
+    return channel.readOutbound();
+  }
+}
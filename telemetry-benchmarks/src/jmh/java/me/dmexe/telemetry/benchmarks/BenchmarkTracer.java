@@ -0,0 +1,49 @@
+package me.dmexe.telemetry.benchmarks;
+
+import io.opentracing.ActiveSpan;
+import io.opentracing.ActiveSpanSource;
+import io.opentracing.NoopTracerFactory;
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.propagation.Format;
+import io.opentracing.util.ThreadLocalActiveSpanSource;
+
+/**
+ * An in-process tracer which builds no-op spans, but keeps track of the active span like a real
+ * tracer does, so the instrumentation takes the same branches as in production.
+ */
+public class BenchmarkTracer implements Tracer {
+  public static final BenchmarkTracer INSTANCE = new BenchmarkTracer();
+
+  private final Tracer noop = NoopTracerFactory.create();
+  private final ActiveSpanSource spanSource = new ThreadLocalActiveSpanSource();
+
+  private BenchmarkTracer() {
+  }
+
+  @Override
+  public SpanBuilder buildSpan(String operationName) {
+    return noop.buildSpan(operationName);
+  }
+
+  @Override
+  public <C> void inject(SpanContext spanContext, Format<C> format, C carrier) {
+    noop.inject(spanContext, format, carrier);
+  }
+
+  @Override
+  public <C> SpanContext extract(Format<C> format, C carrier) {
+    return noop.extract(format, carrier);
+  }
+
+  @Override
+  public ActiveSpan activeSpan() {
+    return spanSource.activeSpan();
+  }
+
+  @Override
+  public ActiveSpan makeActive(Span span) {
+    return spanSource.makeActive(span);
+  }
+}
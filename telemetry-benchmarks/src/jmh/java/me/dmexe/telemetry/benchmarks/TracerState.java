@@ -0,0 +1,41 @@
+package me.dmexe.telemetry.benchmarks;
+
+import io.opentracing.ActiveSpan;
+import io.opentracing.Tracer;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A per-thread tracer state, runs every benchmark with and without an active span on the
+ * benchmark thread.
+ */
+@State(Scope.Thread)
+public class TracerState {
+
+  @Param({"false", "true"})
+  public boolean activeSpan;
+
+  public Tracer tracer;
+
+  private ActiveSpan root;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    tracer = BenchmarkTracer.INSTANCE;
+    if (activeSpan) {
+      root = tracer.makeActive(tracer.buildSpan("root").startManual());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (root != null) {
+      root.deactivate();
+      root = null;
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package me.dmexe.telemetry.core.latency;
+
+import io.prometheus.client.CollectorRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures the per-observation cost of {@link LatencyRecorder} implementations, run with several
+ * threads to include contention on the shared counters.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class LatencyRecorderBenchmark {
+
+  @Param({"histogram", "logLinear"})
+  public String recorder;
+
+  private LatencyHistogram.Child child;
+
+  @Setup
+  public void setUp() {
+    final LatencyRecorder latencyRecorder =
+        recorder.equals("histogram") ? LatencyRecorder.histogram() : LatencyRecorder.logLinear();
+
+    child = latencyRecorder
+        .register(new CollectorRegistry(), builder -> builder
+            .name("benchmark_latency_seconds")
+            .labelNames("op")
+            .help("benchmark"))
+        .labels("op");
+  }
+
+  @Benchmark
+  public void observeNanos() {
+    child.observeNanos(250_000L);
+  }
+}
@@ -0,0 +1,74 @@
+package me.dmexe.telemetry.core.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures the per-event cost of {@link MetricsBackend} implementations, with a label lookup on
+ * every event and with a resolved child.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class MetricsBackendBenchmark {
+  private static final MetricDescriptor total =
+      MetricDescriptor.of("benchmark_total", "benchmark", "address", "code", "method");
+  private static final MetricDescriptor latency =
+      MetricDescriptor.of("benchmark_latency_seconds", "benchmark", "address", "code", "method");
+
+  @Param({"prometheus", "preallocated", "offHeap", "micrometer"})
+  public String backend;
+
+  private Counter counter;
+  private Counter.Child counterChild;
+  private LatencyHistogram.Child timerChild;
+
+  @Setup
+  public void setUp() {
+    final MetricsBackend metricsBackend;
+    switch (backend) {
+      case "prometheus":
+        metricsBackend = MetricsBackend.prometheus(new CollectorRegistry());
+        break;
+      case "preallocated":
+        metricsBackend = MetricsBackend.preallocated()
+            .collectorRegistry(new CollectorRegistry())
+            .build();
+        break;
+      case "offHeap":
+        metricsBackend = MetricsBackend.preallocated()
+            .collectorRegistry(new CollectorRegistry())
+            .offHeap()
+            .build();
+        break;
+      default:
+        metricsBackend = MetricsBackend.micrometer(new SimpleMeterRegistry());
+        break;
+    }
+
+    counter = metricsBackend.counter(total);
+    counterChild = counter.labels(":8080", "200", "GET");
+    timerChild = metricsBackend.timer(latency).labels(":8080", "200", "GET");
+  }
+
+  @Benchmark
+  public void labelsAndInc() {
+    counter.labels(":8080", "200", "GET").inc();
+  }
+
+  @Benchmark
+  public void inc() {
+    counterChild.inc();
+  }
+
+  @Benchmark
+  public void observeNanos() {
+    timerChild.observeNanos(250_000L);
+  }
+}
@@ -0,0 +1,62 @@
+package me.dmexe.telemetry.jooq;
+
+import io.prometheus.client.CollectorRegistry;
+import me.dmexe.telemetry.benchmarks.TracerState;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.impl.DefaultExecuteListener;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link JooqTracingExecuteListener} {@code onStart} and {@code onEnd} for a single
+ * query, using an {@link ExecuteContext} captured from a query against a mock connection.
+ */
+@State(Scope.Thread)
+public class JooqTracingExecuteListenerBenchmark {
+  private ExecuteListener listener;
+  private ExecuteContext ctx;
+
+  @Setup
+  public void setUp(TracerState tracing) {
+    listener = new DefaultJooqTracingFactory()
+        .collectorRegistry(new CollectorRegistry())
+        .tracer(tracing.tracer)
+        .createListener();
+
+    final Capture capture = new Capture();
+    final MockConnection connection = new MockConnection(it ->
+        new MockResult[] { new MockResult(1, null) });
+
+    DSL.using(new DefaultConfiguration()
+        .set(SQLDialect.MYSQL)
+        .set(connection)
+        .set(capture))
+        .execute("update pages set title = 'benchmark' where id = 1");
+
+    ctx = capture.ctx;
+  }
+
+  @Benchmark
+  public ExecuteContext onStartAndOnEnd() {
+    listener.start(ctx);
+    listener.end(ctx);
+    return ctx;
+  }
+
+  private static class Capture extends DefaultExecuteListener {
+    private ExecuteContext ctx;
+
+    @Override
+    public void start(ExecuteContext ctx) {
+      this.ctx = ctx;
+    }
+  }
+}
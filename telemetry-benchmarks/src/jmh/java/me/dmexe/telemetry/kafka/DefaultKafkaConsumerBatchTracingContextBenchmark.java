@@ -0,0 +1,62 @@
+package me.dmexe.telemetry.kafka;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import me.dmexe.telemetry.benchmarks.TracerState;
+import me.dmexe.telemetry.core.sampler.Sampler;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares consuming a poll of 500 records with a context per record and with a single batch
+ * context, the score is per record.
+ */
+@State(Scope.Thread)
+public class DefaultKafkaConsumerBatchTracingContextBenchmark {
+  private static final int RECORDS = 500;
+  private static final int PARTITIONS = 5;
+
+  private ConsumerRecords<String,String> records;
+
+  @Setup
+  public void setUp() {
+    final Map<TopicPartition, List<ConsumerRecord<String,String>>> partitions = new HashMap<>();
+    for (int partition = 0; partition < PARTITIONS; partition++) {
+      final List<ConsumerRecord<String,String>> list = new ArrayList<>();
+      for (int offset = 0; offset < RECORDS / PARTITIONS; offset++) {
+        list.add(new ConsumerRecord<>("benchmark", partition, 1234567L + offset, "key", "value"));
+      }
+      partitions.put(new TopicPartition("benchmark", partition), list);
+    }
+    records = new ConsumerRecords<>(partitions);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void perRecord(TracerState tracing, Blackhole blackhole) {
+    for (ConsumerRecord<String,String> record : records) {
+      new DefaultKafkaConsumerTracingContext<>(tracing.tracer, record)
+          .decorateConsumer(blackhole::consume)
+          .run();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void batch(TracerState tracing, Blackhole blackhole) {
+    new DefaultKafkaConsumerBatchTracingContext<>(
+        tracing.tracer, records, true, Sampler.never(), MdcStrategy.replace(),
+        KeyFormat.truncate(KeyFormat.DEFAULT_MAX_LENGTH), null)
+        .decorateConsumer(blackhole::consume)
+        .run();
+  }
+}
@@ -0,0 +1,52 @@
+package me.dmexe.telemetry.kafka;
+
+import me.dmexe.telemetry.benchmarks.TracerState;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the construction of a {@link DefaultKafkaConsumerTracingContext}, which happens for
+ * every consumed record, and a record consumed in the context propagated by thread locals or
+ * passed explicitly, with the replacing and the merging MDC strategies.
+ */
+@State(Scope.Thread)
+public class DefaultKafkaConsumerTracingContextBenchmark {
+
+  @Param({"replace", "merge"})
+  public String mdc;
+
+  private ConsumerRecord<String,String> record;
+  private MdcStrategy mdcStrategy;
+
+  @Setup
+  public void setUp() {
+    record = new ConsumerRecord<>("benchmark", 3, 1234567L, "key", "value");
+    mdcStrategy = mdc.equals("merge") ? MdcStrategy.merge() : MdcStrategy.replace();
+  }
+
+  @Benchmark
+  public KafkaConsumerTracingContext<String,String> create(TracerState tracing) {
+    return new DefaultKafkaConsumerTracingContext<>(tracing.tracer, record);
+  }
+
+  @Benchmark
+  public void decorateConsumer(TracerState tracing, Blackhole blackhole) {
+    new DefaultKafkaConsumerTracingContext<>(
+        tracing.tracer, record, true, mdcStrategy,
+        KeyFormat.truncate(KeyFormat.DEFAULT_MAX_LENGTH), null)
+        .decorateConsumer(blackhole::consume)
+        .run();
+  }
+
+  @Benchmark
+  public void decorateContextConsumer(TracerState tracing, Blackhole blackhole) {
+    new DefaultKafkaConsumerTracingContext<>(tracing.tracer, record)
+        .decorateContextConsumer((rec, context) -> blackhole.consume(context))
+        .run();
+  }
+}
@@ -0,0 +1,78 @@
+package me.dmexe.telemetry.kafka;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import me.dmexe.telemetry.core.metrics.ExpositionWriter;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures a scrape of producer metrics with a growing number of topics, encoded by the
+ * simpleclient {@link TextFormat} and by a reused {@link ExpositionWriter}.
+ */
+@State(Scope.Benchmark)
+public class KafkaProducerMetricsCollectorBenchmark {
+  private static final String[] TOPIC_METRICS = new String[] {
+      "byte-rate", "compression-rate", "record-error-rate", "record-retry-rate", "record-send-rate"
+  };
+
+  @Param({"10", "100", "1000"})
+  public int topics;
+
+  private CollectorRegistry registry;
+  private KafkaProducerMetricsCollector collector;
+  private ExpositionWriter writer;
+
+  @Setup
+  public void setUp() {
+    final Map<MetricName, Metric> metrics = new HashMap<>();
+    for (int i = 0; i < topics; i++) {
+      final Map<String, String> tags = new HashMap<>();
+      tags.put("client-id", "benchmark-client");
+      tags.put("topic", "topic-" + i);
+      for (String name : TOPIC_METRICS) {
+        final MetricName metricName =
+            new MetricName(name, "producer-topic-metrics", "A benchmark metric.", tags);
+        final double value = i;
+        metrics.put(metricName, new Metric() {
+          @Override
+          public MetricName metricName() {
+            return metricName;
+          }
+
+          @Override
+          public double value() {
+            return value;
+          }
+        });
+      }
+    }
+
+    collector = new KafkaProducerMetricsCollector(() -> metrics);
+    registry = new CollectorRegistry();
+    registry.register(collector);
+    writer = new ExpositionWriter();
+  }
+
+  @Benchmark
+  public String textFormat() throws IOException {
+    final StringWriter output = new StringWriter();
+    TextFormat.write004(output, registry.metricFamilySamples());
+    return output.toString();
+  }
+
+  @Benchmark
+  public int exposition() {
+    writer.reset();
+    return writer.write(collector).size();
+  }
+}
@@ -0,0 +1,101 @@
+package me.dmexe.telemetry.mysql;
+
+import com.mysql.cj.api.MysqlConnection;
+import com.mysql.cj.api.Session;
+import com.mysql.cj.api.conf.PropertySet;
+import com.mysql.cj.api.exceptions.ExceptionInterceptor;
+import com.mysql.cj.api.mysqla.result.Resultset;
+import com.mysql.cj.core.log.NullLogger;
+import io.opentracing.util.GlobalTracer;
+import java.util.Properties;
+import me.dmexe.telemetry.core.metrics.MetricsBackend;
+import me.dmexe.telemetry.core.sampler.Sampler;
+import me.dmexe.telemetry.benchmarks.BenchmarkTracer;
+import me.dmexe.telemetry.benchmarks.TracerState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link TracingStatementInterceptor.Handler} {@code preProcess} and
+ * {@code postProcess} for a single statement.
+ */
+@State(Scope.Thread)
+public class TracingStatementInterceptorBenchmark {
+  private static final String SQL = "SELECT id, title FROM pages WHERE id = 1";
+
+  private TracingStatementInterceptor.Handler handler;
+
+  @Setup
+  public void setUp(TracerState tracing) {
+    if (!GlobalTracer.isRegistered()) {
+      GlobalTracer.register(BenchmarkTracer.INSTANCE);
+    }
+
+    handler = new TracingStatementInterceptor.Handler(
+        new Connection(),
+        MetricsFactory.create(MetricsBackend.prometheus()),
+        Sampler.always(),
+        new NullLogger("benchmark"));
+  }
+
+  @Benchmark
+  public Resultset preProcessAndPostProcess() {
+    handler.preProcess(SQL, null);
+    return handler.postProcess(SQL, null, null, 0, false, false, null);
+  }
+
+  private static class Connection implements MysqlConnection {
+    private final Properties properties = new Properties();
+
+    @Override
+    public PropertySet getPropertySet() {
+      return null;
+    }
+
+    @Override
+    public void createNewIO(boolean isForReconnect) {
+    }
+
+    @Override
+    public long getId() {
+      return 1L;
+    }
+
+    @Override
+    public Properties getProperties() {
+      return properties;
+    }
+
+    @Override
+    public String getProcessHost() {
+      return "localhost";
+    }
+
+    @Override
+    public Object getConnectionMutex() {
+      return this;
+    }
+
+    @Override
+    public Session getSession() {
+      return null;
+    }
+
+    @Override
+    public String getURL() {
+      return "jdbc:mysql://localhost:3306/benchmark";
+    }
+
+    @Override
+    public String getUser() {
+      return "benchmark";
+    }
+
+    @Override
+    public ExceptionInterceptor getExceptionInterceptor() {
+      return null;
+    }
+  }
+}
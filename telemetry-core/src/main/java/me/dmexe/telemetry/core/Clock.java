@@ -0,0 +1,24 @@
+package me.dmexe.telemetry.core;
+
+/**
+ * A source of monotonic time used to measure latencies, it's replaced only in tests.
+ */
+@FunctionalInterface
+public interface Clock {
+
+  /**
+   * The current value of the time source in nanoseconds, see {@link System#nanoTime()}.
+   *
+   * @return nanoseconds.
+   */
+  long nanoTime();
+
+  /**
+   * A clock backed by {@link System#nanoTime()}.
+   *
+   * @return the clock.
+   */
+  static Clock system() {
+    return System::nanoTime;
+  }
+}
@@ -0,0 +1,115 @@
+package me.dmexe.telemetry.core.latency;
+
+import java.util.Arrays;
+
+/**
+ * Upper bounds in seconds of latency histogram buckets, the {@code +Inf} bucket is always added
+ * on export.
+ */
+public final class Buckets {
+  private static final Buckets DEFAULT =
+      explicit(.005, .01, .025, .05, .075, .1, .25, .5, .75, 1, 2.5, 5, 7.5, 10);
+
+  private final double[] bounds;
+
+  private Buckets(double[] bounds) {
+    if (bounds.length == 0) {
+      throw new IllegalArgumentException("bounds cannot be empty");
+    }
+    for (int i = 1; i < bounds.length; i++) {
+      if (bounds[i] <= bounds[i - 1]) {
+        throw new IllegalArgumentException("bounds must be in increasing order");
+      }
+    }
+    this.bounds = bounds;
+  }
+
+  /**
+   * The simpleclient default buckets, from 5ms to 10s.
+   *
+   * @return the buckets.
+   */
+  public static Buckets defaults() {
+    return DEFAULT;
+  }
+
+  /**
+   * Buckets with the given upper bounds.
+   *
+   * @param bounds upper bounds in seconds, in increasing order.
+   * @return the buckets.
+   */
+  public static Buckets explicit(double... bounds) {
+    return new Buckets(Arrays.copyOf(bounds, bounds.length));
+  }
+
+  /**
+   * {@code count} buckets, the first upper bound is {@code start}, each next is {@code width}
+   * wider.
+   *
+   * @param start the first upper bound in seconds.
+   * @param width the bucket width in seconds.
+   * @param count the number of buckets.
+   * @return the buckets.
+   */
+  public static Buckets linear(double start, double width, int count) {
+    if (width <= 0.0 || count < 1) {
+      throw new IllegalArgumentException("width and count must be positive");
+    }
+    final double[] bounds = new double[count];
+    for (int i = 0; i < count; i++) {
+      bounds[i] = start + i * width;
+    }
+    return new Buckets(bounds);
+  }
+
+  /**
+   * {@code count} buckets, the first upper bound is {@code start}, each next is multiplied by
+   * {@code factor}.
+   *
+   * @param start the first upper bound in seconds.
+   * @param factor the growth factor, greater than 1.
+   * @param count the number of buckets.
+   * @return the buckets.
+   */
+  public static Buckets exponential(double start, double factor, int count) {
+    if (start <= 0.0 || factor <= 1.0 || count < 1) {
+      throw new IllegalArgumentException("start, count must be positive and factor above 1");
+    }
+    final double[] bounds = new double[count];
+    for (int i = 0; i < count; i++) {
+      bounds[i] = start * Math.pow(factor, i);
+    }
+    return new Buckets(bounds);
+  }
+
+  /**
+   * Upper bounds in seconds.
+   *
+   * @return a copy of the bounds.
+   */
+  public double[] bounds() {
+    return Arrays.copyOf(bounds, bounds.length);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof Buckets)) {
+      return false;
+    }
+    return Arrays.equals(bounds, ((Buckets) other).bounds);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(bounds);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(bounds);
+  }
+}
@@ -0,0 +1,58 @@
+package me.dmexe.telemetry.core.latency;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.SimpleCollector;
+import java.util.Objects;
+import java.util.function.Consumer;
+import me.dmexe.telemetry.core.metrics.LabelCache;
+
+class HistogramLatencyRecorder extends LatencyRecorder {
+  static final HistogramLatencyRecorder DEFAULT =
+      new HistogramLatencyRecorder(Buckets.defaults());
+
+  private final Buckets buckets;
+
+  HistogramLatencyRecorder(Buckets buckets) {
+    Objects.requireNonNull(buckets, "buckets cannot be null");
+    this.buckets = buckets;
+  }
+
+  @Override
+  SimpleCollector<?> create(Consumer<SimpleCollector.Builder<?, ?>> metric) {
+    final Histogram.Builder builder = Histogram.build().buckets(buckets.bounds());
+    metric.accept(builder);
+    return builder.create();
+  }
+
+  @Override
+  LatencyHistogram wrap(Collector collector, int labelCount) {
+    final Histogram histogram = (Histogram) collector;
+    final LabelCache<LatencyHistogram.Child> children = LabelCache.of(labelCount, labelValues -> {
+      final Histogram.Child child = histogram.labels(labelValues);
+      return nanos -> child.observe(nanos / Collector.NANOSECONDS_PER_SECOND);
+    });
+    return children::get;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof HistogramLatencyRecorder)) {
+      return false;
+    }
+    return buckets.equals(((HistogramLatencyRecorder) other).buckets);
+  }
+
+  @Override
+  public int hashCode() {
+    return buckets.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "histogram" + buckets;
+  }
+}
@@ -0,0 +1,19 @@
+package me.dmexe.telemetry.core.latency;
+
+/**
+ * A latency metric with labels, registered by a {@link LatencyRecorder}.
+ */
+public interface LatencyHistogram {
+
+  Child labels(String... labelValues);
+
+  interface Child {
+
+    /**
+     * Record an elapsed time.
+     *
+     * @param nanos an elapsed time in nanoseconds.
+     */
+    void observeNanos(long nanos);
+  }
+}
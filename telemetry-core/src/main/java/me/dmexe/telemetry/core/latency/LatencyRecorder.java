@@ -0,0 +1,194 @@
+package me.dmexe.telemetry.core.latency;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.SimpleCollector;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Selects how latency metrics are recorded and exported. A metric is registered once per a
+ * collector registry and a metric name, later registrations of the same metric by an equal
+ * recorder return the first registered histogram, so a recorder can be shared between factories.
+ */
+public abstract class LatencyRecorder {
+  private static final Map<CollectorRegistry, Map<String, Registration>> registered =
+      new WeakHashMap<>();
+
+  private static volatile LatencyRecorder defaultRecorder = HistogramLatencyRecorder.DEFAULT;
+
+  LatencyRecorder() {
+  }
+
+  /**
+   * A recorder used by factories without an assigned recorder, initially it's
+   * {@link #histogram()}.
+   *
+   * @return the recorder.
+   */
+  public static LatencyRecorder defaultRecorder() {
+    return defaultRecorder;
+  }
+
+  /**
+   * Assign a recorder used by factories without an assigned recorder, for example to change
+   * buckets of all latency metrics. It affects only metrics registered after the call.
+   *
+   * @param recorder the recorder.
+   */
+  public static void defaultRecorder(LatencyRecorder recorder) {
+    Objects.requireNonNull(recorder, "recorder cannot be null");
+    defaultRecorder = recorder;
+  }
+
+  /**
+   * A recorder backed by the simpleclient {@link io.prometheus.client.Histogram} with default
+   * buckets.
+   *
+   * @return the recorder.
+   */
+  public static LatencyRecorder histogram() {
+    return HistogramLatencyRecorder.DEFAULT;
+  }
+
+  /**
+   * A recorder backed by the simpleclient {@link io.prometheus.client.Histogram} with the given
+   * buckets.
+   *
+   * @param buckets the buckets.
+   * @return the recorder.
+   */
+  public static LatencyRecorder histogram(Buckets buckets) {
+    return new HistogramLatencyRecorder(buckets);
+  }
+
+  /**
+   * A recorder backed by the lock-free {@link LogLinearHistogram}, it resolves sub-millisecond
+   * latencies with a bounded relative error and exports a histogram or a summary at scrape time.
+   *
+   * @return the recorder.
+   */
+  public static LogLinearLatencyRecorder logLinear() {
+    return new LogLinearLatencyRecorder();
+  }
+
+  /**
+   * Register a latency metric described by the given function, which assigns a name, labels and
+   * help to a collector builder.
+   *
+   * @param registry a collector registry.
+   * @param metric a metric description.
+   * @return a registered or a previously registered histogram.
+   * @throws IllegalStateException when the metric is already registered by a recorder which
+   *     isn't equal to this one.
+   */
+  public final LatencyHistogram register(
+      CollectorRegistry registry,
+      Consumer<SimpleCollector.Builder<?, ?>> metric) {
+    Objects.requireNonNull(registry, "registry cannot be null");
+    Objects.requireNonNull(metric, "metric cannot be null");
+
+    final NameBuilder nameBuilder = new NameBuilder();
+    metric.accept(nameBuilder);
+    final String name = nameBuilder.fullname();
+
+    synchronized (registered) {
+      final Map<String, Registration> histograms =
+          registered.computeIfAbsent(registry, it -> new HashMap<>());
+
+      final Registration registration = histograms.get(name);
+      if (registration != null) {
+        if (!registration.recorder.equals(this)) {
+          throw new IllegalStateException("latency metric " + name
+              + " is already registered by another recorder: " + registration.recorder);
+        }
+        return registration.histogram;
+      }
+
+      final SimpleCollector<?> collector = create(metric);
+      registry.register(collector);
+      final LatencyHistogram histogram = wrap(collector, nameBuilder.labelCount());
+      histograms.put(name, new Registration(this, histogram));
+      return histogram;
+    }
+  }
+
+  abstract SimpleCollector<?> create(Consumer<SimpleCollector.Builder<?, ?>> metric);
+
+  /**
+   * Wrap a created collector, children of the label values are cached by the wrapper.
+   */
+  abstract LatencyHistogram wrap(Collector collector, int labelCount);
+
+  private static class Registration {
+    private final LatencyRecorder recorder;
+    private final LatencyHistogram histogram;
+
+    Registration(LatencyRecorder recorder, LatencyHistogram histogram) {
+      this.recorder = recorder;
+      this.histogram = histogram;
+    }
+  }
+
+  /**
+   * Captures a name and a number of labels of a metric without creating a collector, the name is
+   * built like a full name of {@link SimpleCollector}.
+   */
+  private static class NameBuilder
+      extends SimpleCollector.Builder<NameBuilder, SimpleCollector<?>> {
+    private String namespace = "";
+    private String subsystem = "";
+    private String name = "";
+    private int labelCount = 0;
+
+    @Override
+    public NameBuilder namespace(String namespace) {
+      this.namespace = namespace;
+      return this;
+    }
+
+    @Override
+    public NameBuilder subsystem(String subsystem) {
+      this.subsystem = subsystem;
+      return this;
+    }
+
+    @Override
+    public NameBuilder name(String name) {
+      this.name = name;
+      return this;
+    }
+
+    @Override
+    public NameBuilder labelNames(String... labelNames) {
+      this.labelCount = labelNames.length;
+      return this;
+    }
+
+    @Override
+    public SimpleCollector<?> create() {
+      throw new UnsupportedOperationException("the builder only captures a metric name");
+    }
+
+    int labelCount() {
+      return labelCount;
+    }
+
+    String fullname() {
+      if (name.isEmpty()) {
+        throw new IllegalStateException("Name hasn't been set.");
+      }
+      String fullname = name;
+      if (!subsystem.isEmpty()) {
+        fullname = subsystem + '_' + fullname;
+      }
+      if (!namespace.isEmpty()) {
+        fullname = namespace + '_' + fullname;
+      }
+      return fullname;
+    }
+  }
+}
@@ -0,0 +1,484 @@
+package me.dmexe.telemetry.core.latency;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.SimpleCollector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import me.dmexe.telemetry.core.Clock;
+
+/**
+ * A latency histogram with log-linear buckets in the HDR histogram fashion: every power of two
+ * range of nanoseconds is split into {@code 2^precision} linear sub-buckets, so a recorded value
+ * has a relative error below {@code 2^-precision}. Values below {@code 2^precision} nanoseconds are
+ * exact, values above {@link #MAX_NANOS} are clamped.
+ *
+ * <p>Observation is lock-free, the counters are striped by a thread id to avoid contention, and a
+ * stripe is allocated on the first observation from a thread mapped to it. At scrape time the
+ * stripes are merged and exported either as a Prometheus histogram with the given buckets, or as
+ * a summary with the given quantiles. Like the simpleclient summary, quantiles are computed over a
+ * window of the last {@code maxAgeSeconds}, 10 minutes by default, which is rotated at scrape time
+ * in {@code ageBuckets} steps by keeping snapshots of the counters, so observation doesn't pay for
+ * the window. The count and the sum are accumulated since start.
+ */
+public class LogLinearHistogram
+    extends SimpleCollector<LogLinearHistogram.Child>
+    implements LatencyHistogram {
+
+  /** A maximum recorded value, about 36 minutes. */
+  public static final long MAX_NANOS = (1L << 41) - 1;
+
+  private final int precision;
+  private final int stripes;
+  private final double[] buckets;
+  private final double[] quantiles;
+  private final long maxAgeNanos;
+  private final int ageBuckets;
+  private final Clock clock;
+
+  LogLinearHistogram(Builder builder) {
+    super(builder);
+    this.precision = builder.precision;
+    this.stripes = builder.stripes;
+    this.buckets = builder.buckets;
+    this.quantiles = builder.quantiles;
+    this.maxAgeNanos = TimeUnit.SECONDS.toNanos(builder.maxAgeSeconds);
+    this.ageBuckets = builder.ageBuckets;
+    this.clock = builder.clock;
+
+    for (String label : labelNames) {
+      if (label.equals("le") || label.equals("quantile")) {
+        throw new IllegalStateException("LogLinearHistogram cannot have a label named " + label);
+      }
+    }
+    initializeNoLabelsChild();
+  }
+
+  public static Builder build() {
+    return new Builder();
+  }
+
+  @Override
+  protected Child newChild() {
+    final Child child = new Child(precision, stripes);
+    if (quantiles != null) {
+      child.window = new Window(ageBuckets, maxAgeNanos, child.size, clock.nanoTime());
+    }
+    return child;
+  }
+
+  @Override
+  public List<MetricFamilySamples> collect() {
+    final List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+
+    for (Map.Entry<List<String>, Child> entry : children.entrySet()) {
+      final Snapshot snapshot = entry.getValue().snapshot();
+      if (quantiles == null) {
+        addHistogramSamples(samples, entry.getKey(), snapshot);
+      } else {
+        addSummarySamples(samples, entry.getKey(), snapshot);
+      }
+    }
+
+    return familySamplesList(quantiles == null ? Type.HISTOGRAM : Type.SUMMARY, samples);
+  }
+
+  private void addHistogramSamples(
+      List<MetricFamilySamples.Sample> samples,
+      List<String> labelValues,
+      Snapshot snapshot) {
+    final List<String> bucketLabelNames = with(labelNames, "le");
+
+    int index = 0;
+    long cumulative = 0;
+    for (double bucket : buckets) {
+      final int last = snapshot.index(toNanos(bucket));
+      while (index <= last) {
+        cumulative += snapshot.counts[index];
+        index += 1;
+      }
+      samples.add(new MetricFamilySamples.Sample(
+          fullname + "_bucket",
+          bucketLabelNames,
+          with(labelValues, Collector.doubleToGoString(bucket)),
+          cumulative));
+    }
+    samples.add(new MetricFamilySamples.Sample(
+        fullname + "_bucket",
+        bucketLabelNames,
+        with(labelValues, "+Inf"),
+        snapshot.count));
+
+    addCountAndSum(samples, labelValues, snapshot);
+  }
+
+  private void addSummarySamples(
+      List<MetricFamilySamples.Sample> samples,
+      List<String> labelValues,
+      Snapshot snapshot) {
+    final List<String> quantileLabelNames = with(labelNames, "quantile");
+    final Snapshot window = snapshot.child.window.rotate(snapshot, clock.nanoTime());
+
+    for (double quantile : quantiles) {
+      samples.add(new MetricFamilySamples.Sample(
+          fullname,
+          quantileLabelNames,
+          with(labelValues, Collector.doubleToGoString(quantile)),
+          window.quantile(quantile) / NANOSECONDS_PER_SECOND));
+    }
+
+    addCountAndSum(samples, labelValues, snapshot);
+  }
+
+  private void addCountAndSum(
+      List<MetricFamilySamples.Sample> samples,
+      List<String> labelValues,
+      Snapshot snapshot) {
+    samples.add(new MetricFamilySamples.Sample(
+        fullname + "_count", labelNames, labelValues, snapshot.count));
+    samples.add(new MetricFamilySamples.Sample(
+        fullname + "_sum", labelNames, labelValues, snapshot.sumNanos / NANOSECONDS_PER_SECOND));
+  }
+
+  private static long toNanos(double seconds) {
+    return Math.min(MAX_NANOS, Math.max(0L, (long) (seconds * NANOSECONDS_PER_SECOND)));
+  }
+
+  private static List<String> with(List<String> values, String value) {
+    final List<String> result = new ArrayList<>(values.size() + 1);
+    result.addAll(values);
+    result.add(value);
+    return result;
+  }
+
+  public static class Builder extends SimpleCollector.Builder<Builder, LogLinearHistogram> {
+    private int precision = 5;
+    private int stripes = defaultStripes();
+    private double[] buckets = Buckets.defaults().bounds();
+    private double[] quantiles = null;
+    private long maxAgeSeconds = TimeUnit.MINUTES.toSeconds(10);
+    private int ageBuckets = 5;
+    private Clock clock = Clock.system();
+
+    /**
+     * Assign a number of linear sub-buckets per a power of two as {@code 2^precision}, the
+     * relative error of a recorded value is below {@code 2^-precision}.
+     *
+     * @param precision a value in [1, 10] range, 5 by default.
+     * @return the builder.
+     */
+    public Builder precision(int precision) {
+      if (precision < 1 || precision > 10) {
+        throw new IllegalArgumentException("precision must be in [1, 10] range");
+      }
+      this.precision = precision;
+      return this;
+    }
+
+    /**
+     * Assign a number of counter stripes, it's rounded up to a power of two, by default it's a
+     * number of available processors.
+     *
+     * @param stripes a positive number of stripes.
+     * @return the builder.
+     */
+    public Builder stripes(int stripes) {
+      if (stripes < 1 || stripes > 1024) {
+        throw new IllegalArgumentException("stripes must be in [1, 1024] range");
+      }
+      this.stripes = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+      return this;
+    }
+
+    /**
+     * Export as a Prometheus histogram with the given upper bounds in seconds. A bucket counts the
+     * whole sub-bucket which contains its bound, so it may include values above the bound by less
+     * than {@code 2^-precision} of the bound, about 3% at the default precision. Use
+     * {@link LatencyRecorder#histogram(Buckets)} when a bound must be exact, for example for an
+     * SLO.
+     *
+     * @param buckets upper bounds in increasing order.
+     * @return the builder.
+     */
+    public Builder buckets(double... buckets) {
+      if (buckets.length == 0) {
+        throw new IllegalArgumentException("buckets cannot be empty");
+      }
+      for (int i = 1; i < buckets.length; i++) {
+        if (buckets[i] <= buckets[i - 1]) {
+          throw new IllegalArgumentException("buckets must be in increasing order");
+        }
+      }
+      this.buckets = Arrays.copyOf(buckets, buckets.length);
+      this.quantiles = null;
+      return this;
+    }
+
+    /**
+     * Export as a Prometheus summary with the given quantiles.
+     *
+     * @param quantiles quantiles in (0.0, 1.0] range.
+     * @return the builder.
+     */
+    public Builder quantiles(double... quantiles) {
+      if (quantiles.length == 0) {
+        throw new IllegalArgumentException("quantiles cannot be empty");
+      }
+      for (double quantile : quantiles) {
+        if (quantile <= 0.0 || quantile > 1.0) {
+          throw new IllegalArgumentException("quantile must be in (0.0, 1.0] range");
+        }
+      }
+      this.quantiles = Arrays.copyOf(quantiles, quantiles.length);
+      return this;
+    }
+
+    /**
+     * Assign a duration of the window quantiles are computed over.
+     *
+     * @param maxAgeSeconds a positive duration in seconds, 10 minutes by default.
+     * @return the builder.
+     */
+    public Builder maxAgeSeconds(long maxAgeSeconds) {
+      if (maxAgeSeconds <= 0) {
+        throw new IllegalArgumentException("maxAgeSeconds must be positive");
+      }
+      this.maxAgeSeconds = maxAgeSeconds;
+      return this;
+    }
+
+    /**
+     * Assign a number of steps the quantile window is rotated by, a longer step keeps fewer
+     * snapshots and makes the window less precise.
+     *
+     * @param ageBuckets a positive number of steps, 5 by default.
+     * @return the builder.
+     */
+    public Builder ageBuckets(int ageBuckets) {
+      if (ageBuckets < 1 || ageBuckets > 100) {
+        throw new IllegalArgumentException("ageBuckets must be in [1, 100] range");
+      }
+      this.ageBuckets = ageBuckets;
+      return this;
+    }
+
+    /**
+     * Assign a clock, it's only for testing.
+     */
+    Builder clock(Clock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    @Override
+    public LogLinearHistogram create() {
+      return new LogLinearHistogram(this);
+    }
+
+    private static int defaultStripes() {
+      final int processors = Runtime.getRuntime().availableProcessors();
+      return processors <= 1 ? 1 : Math.min(1024, Integer.highestOneBit(processors - 1) << 1);
+    }
+  }
+
+  public static class Child implements LatencyHistogram.Child {
+    private final int precision;
+    private final int subBuckets;
+    private final int size;
+    private final int stripeMask;
+    private final AtomicReferenceArray<Stripe> stripes;
+
+    // it's assigned only for a summary, before the child is published
+    private Window window;
+
+    Child(int precision, int stripes) {
+      this.precision = precision;
+      this.subBuckets = 1 << precision;
+      this.size = index(MAX_NANOS) + 1;
+      this.stripeMask = stripes - 1;
+      this.stripes = new AtomicReferenceArray<>(stripes);
+    }
+
+    @Override
+    public void observeNanos(long nanos) {
+      final long value = nanos < 0L ? 0L : Math.min(nanos, MAX_NANOS);
+      final Stripe stripe = stripe((int) Thread.currentThread().getId() & stripeMask);
+      stripe.counts.incrementAndGet(index(value));
+      stripe.sumNanos.addAndGet(value);
+    }
+
+    /**
+     * Record an elapsed time.
+     *
+     * @param seconds an elapsed time in seconds.
+     */
+    public void observe(double seconds) {
+      observeNanos((long) (seconds * NANOSECONDS_PER_SECOND));
+    }
+
+    Snapshot snapshot() {
+      final long[] counts = new long[size];
+      long count = 0;
+      long sumNanos = 0;
+
+      for (int i = 0; i < stripes.length(); i++) {
+        final Stripe stripe = stripes.get(i);
+        if (stripe != null) {
+          sumNanos += stripe.sumNanos.get();
+          for (int j = 0; j < size; j++) {
+            final long value = stripe.counts.get(j);
+            counts[j] += value;
+            count += value;
+          }
+        }
+      }
+
+      return new Snapshot(this, counts, count, sumNanos);
+    }
+
+    int index(long value) {
+      if (value < subBuckets) {
+        return (int) value;
+      }
+      final int shift = 63 - Long.numberOfLeadingZeros(value) - precision;
+      return ((shift + 1) << precision) + (int) ((value >>> shift) & (subBuckets - 1));
+    }
+
+    long lowest(int index) {
+      if (index < subBuckets) {
+        return index;
+      }
+      final int shift = (index >>> precision) - 1;
+      return ((long) (subBuckets + (index & (subBuckets - 1)))) << shift;
+    }
+
+    long highest(int index) {
+      if (index < subBuckets) {
+        return index;
+      }
+      final int shift = (index >>> precision) - 1;
+      return lowest(index) + (1L << shift) - 1;
+    }
+
+    private Stripe stripe(int index) {
+      Stripe stripe = stripes.get(index);
+      if (stripe == null) {
+        stripes.compareAndSet(index, null, new Stripe(size));
+        stripe = stripes.get(index);
+      }
+      return stripe;
+    }
+  }
+
+  private static class Stripe {
+    private final AtomicLongArray counts;
+    private final AtomicLong sumNanos;
+
+    Stripe(int size) {
+      this.counts = new AtomicLongArray(size);
+      this.sumNanos = new AtomicLong();
+    }
+  }
+
+  /**
+   * A ring of cumulative counters snapshots taken at scrape time, the oldest snapshot within the
+   * max age is subtracted from the current counters. The ring starts with zero counters at the
+   * time a child is created.
+   */
+  private static class Window {
+    private final long maxAgeNanos;
+    private final long stepNanos;
+    private final long[][] counts;
+    private final long[] totals;
+    private final long[] times;
+    private int oldest;
+    private int size;
+
+    Window(int ageBuckets, long maxAgeNanos, int countsSize, long now) {
+      this.maxAgeNanos = maxAgeNanos;
+      this.stepNanos = maxAgeNanos / ageBuckets;
+      this.counts = new long[ageBuckets][];
+      this.totals = new long[ageBuckets];
+      this.times = new long[ageBuckets];
+      this.counts[0] = new long[countsSize];
+      this.times[0] = now;
+      this.oldest = 0;
+      this.size = 1;
+    }
+
+    synchronized Snapshot rotate(Snapshot current, long now) {
+      while (size > 1 && now - times[oldest] > maxAgeNanos) {
+        oldest = (oldest + 1) % counts.length;
+        size -= 1;
+      }
+
+      final long[] base = counts[oldest];
+      final long[] window = new long[current.counts.length];
+      for (int i = 0; i < window.length; i++) {
+        window[i] = current.counts[i] - base[i];
+      }
+      final Snapshot snapshot =
+          new Snapshot(current.child, window, current.count - totals[oldest], 0);
+
+      final int newest = (oldest + size - 1) % counts.length;
+      if (now - times[newest] >= stepNanos) {
+        if (size == counts.length) {
+          oldest = (oldest + 1) % counts.length;
+          size -= 1;
+        }
+        final int next = (oldest + size) % counts.length;
+        if (counts[next] == null) {
+          counts[next] = new long[current.counts.length];
+        }
+        System.arraycopy(current.counts, 0, counts[next], 0, current.counts.length);
+        totals[next] = current.count;
+        times[next] = now;
+        size += 1;
+      }
+
+      return snapshot;
+    }
+  }
+
+  static class Snapshot {
+    private final Child child;
+    final long[] counts;
+    final long count;
+    final long sumNanos;
+
+    Snapshot(Child child, long[] counts, long count, long sumNanos) {
+      this.child = child;
+      this.counts = counts;
+      this.count = count;
+      this.sumNanos = sumNanos;
+    }
+
+    int index(long nanos) {
+      return child.index(nanos);
+    }
+
+    /**
+     * A value at the quantile, as a middle of a bucket containing it.
+     */
+    double quantile(double quantile) {
+      if (count == 0) {
+        return Double.NaN;
+      }
+
+      final long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+      long cumulative = 0;
+      for (int i = 0; i < counts.length; i++) {
+        cumulative += counts[i];
+        if (cumulative >= rank) {
+          return (child.lowest(i) + child.highest(i)) / 2.0;
+        }
+      }
+      return MAX_NANOS;
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package me.dmexe.telemetry.core.latency;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.SimpleCollector;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+import me.dmexe.telemetry.core.metrics.LabelCache;
+
+/**
+ * A recorder backed by {@link LogLinearHistogram}, exported as a histogram with default buckets
+ * unless buckets or quantiles are assigned.
+ */
+public class LogLinearLatencyRecorder extends LatencyRecorder {
+  private int precision;
+  private int stripes;
+  private double[] buckets;
+  private double[] quantiles;
+  private long maxAgeSeconds;
+  private int ageBuckets;
+
+  LogLinearLatencyRecorder() {
+    this.precision = -1;
+    this.stripes = -1;
+    this.maxAgeSeconds = -1;
+    this.ageBuckets = -1;
+  }
+
+  /**
+   * Assign a precision, see {@link LogLinearHistogram.Builder#precision(int)}.
+   *
+   * @param precision the precision.
+   * @return the recorder.
+   */
+  public LogLinearLatencyRecorder precision(int precision) {
+    this.precision = precision;
+    return this;
+  }
+
+  /**
+   * Assign a number of stripes, see {@link LogLinearHistogram.Builder#stripes(int)}.
+   *
+   * @param stripes the number of stripes.
+   * @return the recorder.
+   */
+  public LogLinearLatencyRecorder stripes(int stripes) {
+    this.stripes = stripes;
+    return this;
+  }
+
+  /**
+   * Export as a Prometheus histogram, see {@link LogLinearHistogram.Builder#buckets(double...)}.
+   * A bucket may include values above its bound by less than {@code 2^-precision} of the bound.
+   *
+   * @param buckets upper bounds in seconds.
+   * @return the recorder.
+   */
+  public LogLinearLatencyRecorder buckets(double... buckets) {
+    this.buckets = Arrays.copyOf(buckets, buckets.length);
+    this.quantiles = null;
+    return this;
+  }
+
+  /**
+   * Export as a Prometheus histogram with the given buckets.
+   *
+   * @param buckets the buckets.
+   * @return the recorder.
+   */
+  public LogLinearLatencyRecorder buckets(Buckets buckets) {
+    Objects.requireNonNull(buckets, "buckets cannot be null");
+    return buckets(buckets.bounds());
+  }
+
+  /**
+   * Export as a Prometheus summary, see {@link LogLinearHistogram.Builder#quantiles(double...)}.
+   *
+   * @param quantiles the quantiles.
+   * @return the recorder.
+   */
+  public LogLinearLatencyRecorder quantiles(double... quantiles) {
+    this.quantiles = Arrays.copyOf(quantiles, quantiles.length);
+    this.buckets = null;
+    return this;
+  }
+
+  /**
+   * Assign a duration of the window quantiles are computed over, see
+   * {@link LogLinearHistogram.Builder#maxAgeSeconds(long)}.
+   *
+   * @param maxAgeSeconds the duration in seconds.
+   * @return the recorder.
+   */
+  public LogLinearLatencyRecorder maxAgeSeconds(long maxAgeSeconds) {
+    this.maxAgeSeconds = maxAgeSeconds;
+    return this;
+  }
+
+  /**
+   * Assign a number of steps the quantile window is rotated by, see
+   * {@link LogLinearHistogram.Builder#ageBuckets(int)}.
+   *
+   * @param ageBuckets the number of steps.
+   * @return the recorder.
+   */
+  public LogLinearLatencyRecorder ageBuckets(int ageBuckets) {
+    this.ageBuckets = ageBuckets;
+    return this;
+  }
+
+  @Override
+  SimpleCollector<?> create(Consumer<SimpleCollector.Builder<?, ?>> metric) {
+    final LogLinearHistogram.Builder builder = LogLinearHistogram.build();
+    metric.accept(builder);
+
+    if (precision != -1) {
+      builder.precision(precision);
+    }
+    if (stripes != -1) {
+      builder.stripes(stripes);
+    }
+    if (buckets != null) {
+      builder.buckets(buckets);
+    }
+    if (quantiles != null) {
+      builder.quantiles(quantiles);
+    }
+    if (maxAgeSeconds != -1) {
+      builder.maxAgeSeconds(maxAgeSeconds);
+    }
+    if (ageBuckets != -1) {
+      builder.ageBuckets(ageBuckets);
+    }
+
+    return builder.create();
+  }
+
+  @Override
+  LatencyHistogram wrap(Collector collector, int labelCount) {
+    final LabelCache<LatencyHistogram.Child> children =
+        LabelCache.of(labelCount, ((LogLinearHistogram) collector)::labels);
+    return children::get;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof LogLinearLatencyRecorder)) {
+      return false;
+    }
+    final LogLinearLatencyRecorder that = (LogLinearLatencyRecorder) other;
+    return precision == that.precision
+        && stripes == that.stripes
+        && maxAgeSeconds == that.maxAgeSeconds
+        && ageBuckets == that.ageBuckets
+        && Arrays.equals(buckets, that.buckets)
+        && Arrays.equals(quantiles, that.quantiles);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Objects.hash(precision, stripes, maxAgeSeconds, ageBuckets);
+    result = 31 * result + Arrays.hashCode(buckets);
+    result = 31 * result + Arrays.hashCode(quantiles);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "logLinear{precision=" + precision
+        + ", stripes=" + stripes
+        + ", buckets=" + Arrays.toString(buckets)
+        + ", quantiles=" + Arrays.toString(quantiles)
+        + ", maxAgeSeconds=" + maxAgeSeconds
+        + ", ageBuckets=" + ageBuckets
+        + "}";
+  }
+}
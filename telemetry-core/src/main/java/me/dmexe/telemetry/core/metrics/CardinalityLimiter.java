@@ -0,0 +1,94 @@
+package me.dmexe.telemetry.core.metrics;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of distinct values of every label of a metric. A value is admitted while the
+ * label has a free slot, values above the limit are replaced by {@link #OVERFLOW} and counted in
+ * {@code metrics_cardinality_rejected_total}. An admitted value is checked by a single lookup in a
+ * concurrent set, slots are reserved by a compare and set without any lock.
+ */
+class CardinalityLimiter {
+  static final String OVERFLOW = "__overflow__";
+
+  private static final MetricDescriptor rejectedMetric = MetricDescriptor.of(
+      "metrics_cardinality_rejected_total",
+      "A total number of label values were been replaced by the overflow value.",
+      "metric", "label");
+
+  private final int maxValues;
+  private final AdmissionSet[] admissions;
+  private final Counter.Child[] rejected;
+
+  CardinalityLimiter(MetricDescriptor descriptor, int maxValues, MetricsBackend backend) {
+    final Counter counter = backend.counter(rejectedMetric);
+    this.maxValues = maxValues;
+    this.admissions = new AdmissionSet[descriptor.labelCount()];
+    this.rejected = new Counter.Child[descriptor.labelCount()];
+    for (int i = 0; i < admissions.length; i++) {
+      admissions[i] = new AdmissionSet(maxValues);
+      rejected[i] = counter.labels(descriptor.name(), descriptor.labelName(i));
+    }
+  }
+
+  int maxValues() {
+    return maxValues;
+  }
+
+  /**
+   * Label values with the rejected values replaced by {@link #OVERFLOW}, the given array is
+   * returned when all the values are admitted.
+   */
+  String[] admit(String[] values) {
+    if (values.length != admissions.length) {
+      throw new IllegalArgumentException(
+          "expected " + admissions.length + " labels, got " + values.length);
+    }
+
+    String[] admitted = values;
+    for (int i = 0; i < values.length; i++) {
+      if (!admissions[i].admit(values[i])) {
+        if (admitted == values) {
+          admitted = values.clone();
+        }
+        admitted[i] = OVERFLOW;
+        rejected[i].inc();
+      }
+    }
+    return admitted;
+  }
+
+  private static class AdmissionSet {
+    private final int maxValues;
+    private final Set<String> values;
+    private final AtomicInteger size;
+
+    AdmissionSet(int maxValues) {
+      this.maxValues = maxValues;
+      this.values = ConcurrentHashMap.newKeySet();
+      this.size = new AtomicInteger();
+    }
+
+    boolean admit(String value) {
+      if (values.contains(value)) {
+        return true;
+      }
+
+      int current;
+      do {
+        current = size.get();
+        if (current >= maxValues) {
+          // another thread may have admitted the same value into the last slot
+          return values.contains(value);
+        }
+      } while (!size.compareAndSet(current, current + 1));
+
+      if (!values.add(value)) {
+        size.decrementAndGet();
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package me.dmexe.telemetry.core.metrics;
+
+/**
+ * A fixed size array of 64 bit cells with atomic updates, a storage of the preallocated metrics.
+ */
+interface Cells {
+
+  long get(int index);
+
+  void add(int index, long delta);
+
+  void set(int index, long value);
+
+  boolean compareAndSet(int index, long expect, long update);
+
+  /**
+   * Add a value to a cell which holds bits of a double.
+   */
+  default void addDouble(int index, double delta) {
+    while (true) {
+      final long current = get(index);
+      final long next = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + delta);
+      if (compareAndSet(index, current, next)) {
+        return;
+      }
+    }
+  }
+
+  default double getDouble(int index) {
+    return Double.longBitsToDouble(get(index));
+  }
+
+  default void setDouble(int index, double value) {
+    set(index, Double.doubleToRawLongBits(value));
+  }
+}
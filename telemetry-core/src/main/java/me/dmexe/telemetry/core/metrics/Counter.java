@@ -0,0 +1,32 @@
+package me.dmexe.telemetry.core.metrics;
+
+/**
+ * A monotonic counter created by a {@link MetricsBackend}.
+ */
+@FunctionalInterface
+public interface Counter {
+
+  /**
+   * Resolve a child of the given label values, a caller should keep the child instead of
+   * resolving it for every event.
+   *
+   * @param labelValues the label values.
+   * @return the child.
+   */
+  Child labels(String... labelValues);
+
+  @FunctionalInterface
+  interface Child {
+
+    /**
+     * Increment the counter by the given amount.
+     *
+     * @param amount a non negative amount.
+     */
+    void inc(long amount);
+
+    default void inc() {
+      inc(1L);
+    }
+  }
+}
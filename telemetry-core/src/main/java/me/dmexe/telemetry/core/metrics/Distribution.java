@@ -0,0 +1,23 @@
+package me.dmexe.telemetry.core.metrics;
+
+/**
+ * A distribution of observed values, for example sizes or durations in seconds, created by a
+ * {@link MetricsBackend}.
+ */
+@FunctionalInterface
+public interface Distribution {
+
+  /**
+   * Resolve a child of the given label values, a caller should keep the child instead of
+   * resolving it for every event.
+   *
+   * @param labelValues the label values.
+   * @return the child.
+   */
+  Child labels(String... labelValues);
+
+  @FunctionalInterface
+  interface Child {
+    void observe(double value);
+  }
+}
@@ -0,0 +1,336 @@
+package me.dmexe.telemetry.core.metrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Encodes samples into the Prometheus text format 0.0.4, the output is the same as the
+ * simpleclient {@code TextFormat} writes. The samples are encoded into a growing byte array which
+ * is reused by the next scrape after {@link #reset()}, so a scrape of a {@link StreamingCollector}
+ * allocates nothing once the array has grown to the size of the output.
+ *
+ * <p>A writer isn't thread safe.
+ */
+public final class ExpositionWriter implements SampleWriter {
+  /**
+   * A content type of the output.
+   */
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  // Double.toString switches to the scientific notation from 10^7
+  private static final double MAX_PLAIN_LONG = 1e7;
+
+  private byte[] buffer;
+  private int size;
+  private String name;
+  private String[] labelNames;
+
+  public ExpositionWriter() {
+    this(8 * 1024);
+  }
+
+  /**
+   * Create a writer with the given initial capacity of the buffer.
+   *
+   * @param initialCapacity the capacity in bytes.
+   */
+  public ExpositionWriter(int initialCapacity) {
+    if (initialCapacity < 1) {
+      throw new IllegalArgumentException("initialCapacity must be positive");
+    }
+    this.buffer = new byte[initialCapacity];
+    this.size = 0;
+  }
+
+  /**
+   * Write the samples of a collector.
+   *
+   * @param collector the collector.
+   * @return the writer.
+   */
+  public ExpositionWriter write(StreamingCollector collector) {
+    Objects.requireNonNull(collector, "collector cannot be null");
+    collector.collect(this);
+    return this;
+  }
+
+  /**
+   * Write the families of regular collectors, for example of
+   * {@code CollectorRegistry#metricFamilySamples()}.
+   *
+   * @param families the families.
+   * @return the writer.
+   */
+  public ExpositionWriter write(Enumeration<MetricFamilySamples> families) {
+    Objects.requireNonNull(families, "families cannot be null");
+    while (families.hasMoreElements()) {
+      final MetricFamilySamples family = families.nextElement();
+      header(family.name, family.help, family.type);
+      for (MetricFamilySamples.Sample sample : family.samples) {
+        ascii(sample.name);
+        final List<String> names = sample.labelNames;
+        if (!names.isEmpty()) {
+          put('{');
+          for (int i = 0; i < names.size(); i++) {
+            label(names.get(i), sample.labelValues.get(i));
+          }
+          put('}');
+        }
+        value(sample.value);
+      }
+    }
+    this.name = null;
+    this.labelNames = null;
+    return this;
+  }
+
+  @Override
+  public void family(String name, String help, Collector.Type type, String[] labelNames) {
+    Objects.requireNonNull(name, "name cannot be null");
+    Objects.requireNonNull(help, "help cannot be null");
+    Objects.requireNonNull(type, "type cannot be null");
+    Objects.requireNonNull(labelNames, "labelNames cannot be null");
+    header(name, help, type);
+    this.name = name;
+    this.labelNames = labelNames;
+  }
+
+  @Override
+  public void sample(double value) {
+    start(0);
+    value(value);
+  }
+
+  @Override
+  public void sample(String labelValue, double value) {
+    start(1);
+    put('{');
+    label(labelNames[0], labelValue);
+    put('}');
+    value(value);
+  }
+
+  @Override
+  public void sample(String first, String second, double value) {
+    start(2);
+    put('{');
+    label(labelNames[0], first);
+    label(labelNames[1], second);
+    put('}');
+    value(value);
+  }
+
+  @Override
+  public void sample(String[] labelValues, double value) {
+    start(labelValues.length);
+    if (labelValues.length > 0) {
+      put('{');
+      for (int i = 0; i < labelValues.length; i++) {
+        label(labelNames[i], labelValues[i]);
+      }
+      put('}');
+    }
+    value(value);
+  }
+
+  /**
+   * Discard the written output, the buffer is kept for the next scrape.
+   */
+  public void reset() {
+    this.size = 0;
+    this.name = null;
+    this.labelNames = null;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * A view of the written output, it's valid until the writer is reset.
+   *
+   * @return the read only buffer.
+   */
+  public ByteBuffer toByteBuffer() {
+    return ByteBuffer.wrap(buffer, 0, size).asReadOnlyBuffer();
+  }
+
+  /**
+   * Copy the written output into a stream.
+   *
+   * @param out the stream.
+   * @throws IOException when the stream fails.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(buffer, 0, size);
+  }
+
+  @Override
+  public String toString() {
+    return new String(buffer, 0, size, StandardCharsets.UTF_8);
+  }
+
+  private void start(int labels) {
+    if (name == null) {
+      throw new IllegalStateException("a family isn't started");
+    }
+    if (labels != labelNames.length) {
+      throw new IllegalArgumentException(
+          "expected " + labelNames.length + " labels, got " + labels);
+    }
+    ascii(name);
+  }
+
+  private void header(String name, String help, Collector.Type type) {
+    ascii("# HELP ");
+    ascii(name);
+    put(' ');
+    escaped(help, false);
+    put('\n');
+    ascii("# TYPE ");
+    ascii(name);
+    put(' ');
+    ascii(typeString(type));
+    put('\n');
+  }
+
+  private void label(String name, String value) {
+    ascii(name);
+    put('=');
+    put('"');
+    escaped(value, true);
+    put('"');
+    put(',');
+  }
+
+  private void value(double value) {
+    put(' ');
+    if (value == (long) value && Math.abs(value) < MAX_PLAIN_LONG) {
+      long digits = (long) value;
+      if (digits < 0 || (digits == 0 && Double.doubleToRawLongBits(value) != 0)) {
+        put('-');
+        digits = -digits;
+      }
+      digits(digits);
+      put('.');
+      put('0');
+    } else {
+      ascii(Collector.doubleToGoString(value));
+    }
+    put('\n');
+  }
+
+  private void digits(long value) {
+    final int length = value < 10 ? 1 : (int) Math.log10(value) + 1;
+    ensure(length);
+    long rest = value;
+    for (int i = size + length - 1; i >= size; i--) {
+      buffer[i] = (byte) ('0' + rest % 10);
+      rest /= 10;
+    }
+    size += length;
+  }
+
+  private void ascii(String value) {
+    final int length = value.length();
+    ensure(length);
+    for (int i = 0; i < length; i++) {
+      final char ch = value.charAt(i);
+      if (ch < 0x80) {
+        buffer[size++] = (byte) ch;
+      } else {
+        i = utf8(value, i);
+        ensure(length - i);
+      }
+    }
+  }
+
+  private void escaped(String value, boolean quotes) {
+    for (int i = 0; i < value.length(); i++) {
+      final char ch = value.charAt(i);
+      if (ch == '\\') {
+        put('\\');
+        put('\\');
+      } else if (ch == '\n') {
+        put('\\');
+        put('n');
+      } else if (ch == '"' && quotes) {
+        put('\\');
+        put('"');
+      } else if (ch < 0x80) {
+        put(ch);
+      } else {
+        i = utf8(value, i);
+      }
+    }
+  }
+
+  /**
+   * Encode a non ASCII char at the index, returns the index of the last encoded char.
+   */
+  private int utf8(String value, int index) {
+    ensure(4);
+    final char ch = value.charAt(index);
+    if (ch < 0x800) {
+      buffer[size++] = (byte) (0xc0 | (ch >> 6));
+      buffer[size++] = (byte) (0x80 | (ch & 0x3f));
+      return index;
+    }
+
+    if (Character.isSurrogate(ch)) {
+      final int next = index + 1;
+      if (Character.isHighSurrogate(ch)
+          && next < value.length()
+          && Character.isLowSurrogate(value.charAt(next))) {
+        final int codePoint = Character.toCodePoint(ch, value.charAt(next));
+        buffer[size++] = (byte) (0xf0 | (codePoint >> 18));
+        buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        buffer[size++] = (byte) (0x80 | (codePoint & 0x3f));
+        return next;
+      }
+      // a malformed surrogate is replaced as String#getBytes does
+      buffer[size++] = '?';
+      return index;
+    }
+
+    buffer[size++] = (byte) (0xe0 | (ch >> 12));
+    buffer[size++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+    buffer[size++] = (byte) (0x80 | (ch & 0x3f));
+    return index;
+  }
+
+  private void put(char ch) {
+    ensure(1);
+    buffer[size++] = (byte) ch;
+  }
+
+  private void ensure(int length) {
+    if (size + length > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+    }
+  }
+
+  private static String typeString(Collector.Type type) {
+    switch (type) {
+      case GAUGE:
+        return "gauge";
+      case COUNTER:
+        return "counter";
+      case SUMMARY:
+        return "summary";
+      case HISTOGRAM:
+        return "histogram";
+      default:
+        return "untyped";
+    }
+  }
+}
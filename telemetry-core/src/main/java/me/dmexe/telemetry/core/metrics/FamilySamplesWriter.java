@@ -0,0 +1,67 @@
+package me.dmexe.telemetry.core.metrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a list of families for {@link StreamingCollector#collect()}.
+ */
+class FamilySamplesWriter implements SampleWriter {
+  private final Map<String, MetricFamilySamples> families;
+  private MetricFamilySamples family;
+  private List<String> labelNames;
+
+  FamilySamplesWriter() {
+    this.families = new LinkedHashMap<>();
+  }
+
+  List<MetricFamilySamples> samples() {
+    return new ArrayList<>(families.values());
+  }
+
+  @Override
+  public void family(String name, String help, Collector.Type type, String[] labelNames) {
+    MetricFamilySamples family = families.get(name);
+    if (family == null) {
+      family = new MetricFamilySamples(name, type, help, new ArrayList<>());
+      families.put(name, family);
+    }
+    this.family = family;
+    this.labelNames = Collections.unmodifiableList(Arrays.asList(labelNames.clone()));
+  }
+
+  @Override
+  public void sample(double value) {
+    sample(new String[0], value);
+  }
+
+  @Override
+  public void sample(String labelValue, double value) {
+    sample(new String[] {labelValue}, value);
+  }
+
+  @Override
+  public void sample(String first, String second, double value) {
+    sample(new String[] {first, second}, value);
+  }
+
+  @Override
+  public void sample(String[] labelValues, double value) {
+    if (family == null) {
+      throw new IllegalStateException("a family isn't started");
+    }
+    if (labelValues.length != labelNames.size()) {
+      throw new IllegalArgumentException(
+          "expected " + labelNames.size() + " labels, got " + labelValues.length);
+    }
+    family.samples.add(
+        new Sample(family.name, labelNames, Arrays.asList(labelValues.clone()), value));
+  }
+}
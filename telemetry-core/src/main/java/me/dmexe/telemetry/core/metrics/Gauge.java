@@ -0,0 +1,31 @@
+package me.dmexe.telemetry.core.metrics;
+
+/**
+ * A value which goes up and down created by a {@link MetricsBackend}.
+ */
+@FunctionalInterface
+public interface Gauge {
+
+  /**
+   * Resolve a child of the given label values, a caller should keep the child instead of
+   * resolving it for every event.
+   *
+   * @param labelValues the label values.
+   * @return the child.
+   */
+  Child labels(String... labelValues);
+
+  interface Child {
+    void inc(double amount);
+
+    default void inc() {
+      inc(1.0);
+    }
+
+    default void dec() {
+      inc(-1.0);
+    }
+
+    void set(double value);
+  }
+}
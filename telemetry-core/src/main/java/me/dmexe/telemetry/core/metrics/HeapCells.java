@@ -0,0 +1,31 @@
+package me.dmexe.telemetry.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+class HeapCells implements Cells {
+  private final AtomicLongArray cells;
+
+  HeapCells(int size) {
+    this.cells = new AtomicLongArray(size);
+  }
+
+  @Override
+  public long get(int index) {
+    return cells.get(index);
+  }
+
+  @Override
+  public void add(int index, long delta) {
+    cells.getAndAdd(index, delta);
+  }
+
+  @Override
+  public void set(int index, long value) {
+    cells.set(index, value);
+  }
+
+  @Override
+  public boolean compareAndSet(int index, long expect, long update) {
+    return cells.compareAndSet(index, expect, update);
+  }
+}
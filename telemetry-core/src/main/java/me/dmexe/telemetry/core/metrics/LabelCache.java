@@ -0,0 +1,193 @@
+package me.dmexe.telemetry.core.metrics;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Caches label children of a metric. A lookup by the simpleclient {@code labels(...)} allocates
+ * a varargs array and a list key for every call, a lookup here walks a tree of maps, one level
+ * per label, and doesn't allocate once the child is created.
+ *
+ * <p>The number of cached children is bounded, once the cache is full a lookup of new label
+ * values resolves a child without caching it, so unexpected values don't grow the cache.
+ *
+ * @param <C> a type of children.
+ */
+public final class LabelCache<C> {
+  /**
+   * A default max number of cached children.
+   */
+  public static final int DEFAULT_MAX_CHILDREN = 4096;
+
+  private final Function<String[], C> labels;
+  private final int arity;
+  private final int maxChildren;
+  private final ConcurrentMap<String, Object> root;
+  private final AtomicInteger size;
+
+  private LabelCache(Function<String[], C> labels, int arity, int maxChildren) {
+    this.labels = labels;
+    this.arity = arity;
+    this.maxChildren = maxChildren;
+    this.root = new ConcurrentHashMap<>();
+    this.size = new AtomicInteger();
+  }
+
+  /**
+   * Create a cache of children with the given number of labels.
+   *
+   * @param arity the number of labels.
+   * @param labels a function which creates a child, for example {@code counter::labels}.
+   * @param <C> a type of children.
+   * @return the cache.
+   */
+  public static <C> LabelCache<C> of(int arity, Function<String[], C> labels) {
+    return of(arity, labels, DEFAULT_MAX_CHILDREN);
+  }
+
+  /**
+   * Create a cache of children with the given number of labels and the max number of cached
+   * children.
+   *
+   * @param arity the number of labels.
+   * @param labels a function which creates a child, for example {@code counter::labels}.
+   * @param maxChildren the max number of cached children.
+   * @param <C> a type of children.
+   * @return the cache.
+   */
+  public static <C> LabelCache<C> of(int arity, Function<String[], C> labels, int maxChildren) {
+    Objects.requireNonNull(labels, "labels cannot be null");
+    if (arity < 0) {
+      throw new IllegalArgumentException("arity cannot be negative");
+    }
+    if (maxChildren < 1) {
+      throw new IllegalArgumentException("maxChildren must be positive");
+    }
+    return new LabelCache<>(labels, arity, maxChildren);
+  }
+
+  /**
+   * A child of a single label metric.
+   *
+   * @param value the label value.
+   * @return the child.
+   */
+  @SuppressWarnings("unchecked")
+  public C get(String value) {
+    checkArity(1);
+    final Object child = root.get(value);
+    return child != null ? (C) child : create(root, value, new String[] {value});
+  }
+
+  /**
+   * A child of a two labels metric.
+   *
+   * @param first the first label value.
+   * @param second the second label value.
+   * @return the child.
+   */
+  @SuppressWarnings("unchecked")
+  public C get(String first, String second) {
+    checkArity(2);
+    final ConcurrentMap<String, Object> level = level(root, first);
+    if (level == null) {
+      return labels.apply(new String[] {first, second});
+    }
+    final Object child = level.get(second);
+    return child != null ? (C) child : create(level, second, new String[] {first, second});
+  }
+
+  /**
+   * A child of a three labels metric.
+   *
+   * @param first the first label value.
+   * @param second the second label value.
+   * @param third the third label value.
+   * @return the child.
+   */
+  @SuppressWarnings("unchecked")
+  public C get(String first, String second, String third) {
+    checkArity(3);
+    final ConcurrentMap<String, Object> level = level(level(root, first), second);
+    if (level == null) {
+      return labels.apply(new String[] {first, second, third});
+    }
+    final Object child = level.get(third);
+    return child != null ? (C) child : create(level, third, new String[] {first, second, third});
+  }
+
+  /**
+   * A child of a metric with any number of labels.
+   *
+   * @param values the label values.
+   * @return the child.
+   */
+  @SuppressWarnings("unchecked")
+  public C get(String... values) {
+    checkArity(values.length);
+    if (values.length == 0) {
+      final Object child = root.get("");
+      return child != null ? (C) child : create(root, "", values);
+    }
+
+    ConcurrentMap<String, Object> level = root;
+    for (int i = 0; i < values.length - 1 && level != null; i++) {
+      level = level(level, values[i]);
+    }
+    if (level == null) {
+      return labels.apply(values.clone());
+    }
+
+    final String last = values[values.length - 1];
+    final Object child = level.get(last);
+    return child != null ? (C) child : create(level, last, values.clone());
+  }
+
+  private void checkArity(int count) {
+    if (count != arity) {
+      throw new IllegalArgumentException("expected " + arity + " labels, got " + count);
+    }
+  }
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  private ConcurrentMap<String, Object> level(@Nullable ConcurrentMap<String, Object> parent,
+                                              String value) {
+    if (parent == null) {
+      return null;
+    }
+
+    Object level = parent.get(value);
+    if (level == null) {
+      if (size.get() >= maxChildren) {
+        return null;
+      }
+
+      final ConcurrentMap<String, Object> created = new ConcurrentHashMap<>();
+      level = parent.putIfAbsent(value, created);
+      if (level == null) {
+        level = created;
+      }
+    }
+    return (ConcurrentMap<String, Object>) level;
+  }
+
+  @SuppressWarnings("unchecked")
+  private C create(ConcurrentMap<String, Object> level, String value, String[] values) {
+    final C created = labels.apply(values);
+    if (size.get() >= maxChildren) {
+      return created;
+    }
+
+    final Object existing = level.putIfAbsent(value, created);
+    if (existing == null) {
+      size.incrementAndGet();
+      return created;
+    }
+    return (C) existing;
+  }
+}
@@ -0,0 +1,90 @@
+package me.dmexe.telemetry.core.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+
+/**
+ * Limits the number of label values of every metric created by a delegate backend, see
+ * {@link CardinalityLimiter}. Metrics of the same name and registry share a limiter, because
+ * factories create their own limited backends for the same registry.
+ */
+class LimitedMetricsBackend implements MetricsBackend {
+  private static final Map<Object, Map<String, CardinalityLimiter>> limiters =
+      new WeakHashMap<>();
+
+  private final MetricsBackend delegate;
+  private final int maxValues;
+
+  LimitedMetricsBackend(MetricsBackend delegate, int maxValues) {
+    Objects.requireNonNull(delegate, "delegate cannot be null");
+    if (maxValues < 1) {
+      throw new IllegalArgumentException("maxValues must be positive");
+    }
+    this.delegate = delegate;
+    this.maxValues = maxValues;
+  }
+
+  @Override
+  public Counter counter(MetricDescriptor descriptor) {
+    final Counter counter = delegate.counter(descriptor);
+    final CardinalityLimiter limiter = limiter(descriptor);
+    return labelValues -> counter.labels(limiter.admit(labelValues));
+  }
+
+  @Override
+  public LatencyHistogram timer(MetricDescriptor descriptor) {
+    final LatencyHistogram timer = delegate.timer(descriptor);
+    final CardinalityLimiter limiter = limiter(descriptor);
+    return labelValues -> timer.labels(limiter.admit(labelValues));
+  }
+
+  @Override
+  public Distribution distribution(MetricDescriptor descriptor) {
+    final Distribution distribution = delegate.distribution(descriptor);
+    final CardinalityLimiter limiter = limiter(descriptor);
+    return labelValues -> distribution.labels(limiter.admit(labelValues));
+  }
+
+  @Override
+  public Gauge gauge(MetricDescriptor descriptor) {
+    final Gauge gauge = delegate.gauge(descriptor);
+    final CardinalityLimiter limiter = limiter(descriptor);
+    return labelValues -> gauge.labels(limiter.admit(labelValues));
+  }
+
+  private CardinalityLimiter limiter(MetricDescriptor descriptor) {
+    synchronized (limiters) {
+      final Map<String, CardinalityLimiter> registered =
+          limiters.computeIfAbsent(registryOf(delegate), it -> new HashMap<>());
+
+      CardinalityLimiter limiter = registered.get(descriptor.name());
+      if (limiter == null) {
+        limiter = new CardinalityLimiter(descriptor, maxValues, delegate);
+        registered.put(descriptor.name(), limiter);
+      }
+
+      if (limiter.maxValues() != maxValues) {
+        throw new IllegalArgumentException(descriptor.name() + " is already limited to "
+            + limiter.maxValues() + " label values");
+      }
+      return limiter;
+    }
+  }
+
+  /**
+   * A registry the metrics of the backend are registered in, backends without a shared registry
+   * are keyed by themselves.
+   */
+  private static Object registryOf(MetricsBackend backend) {
+    if (backend instanceof PrometheusMetricsBackend) {
+      return ((PrometheusMetricsBackend) backend).registry();
+    }
+    if (backend instanceof MicrometerMetricsBackend) {
+      return ((MicrometerMetricsBackend) backend).registry();
+    }
+    return backend;
+  }
+}
@@ -0,0 +1,60 @@
+package me.dmexe.telemetry.core.metrics;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A backend neutral description of a metric: a full name in the Prometheus format, for example
+ * {@code http_server_handled_total}, a help and label names.
+ */
+public final class MetricDescriptor {
+  private final String name;
+  private final String help;
+  private final String[] labelNames;
+
+  private MetricDescriptor(String name, String help, String[] labelNames) {
+    this.name = name;
+    this.help = help;
+    this.labelNames = labelNames;
+  }
+
+  /**
+   * Create a descriptor.
+   *
+   * @param name the full metric name.
+   * @param help the metric help.
+   * @param labelNames the label names.
+   * @return the descriptor.
+   */
+  public static MetricDescriptor of(String name, String help, String... labelNames) {
+    Objects.requireNonNull(name, "name cannot be null");
+    Objects.requireNonNull(help, "help cannot be null");
+    Objects.requireNonNull(labelNames, "labelNames cannot be null");
+    return new MetricDescriptor(name, help, labelNames.clone());
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public String help() {
+    return help;
+  }
+
+  public String[] labelNames() {
+    return labelNames.clone();
+  }
+
+  int labelCount() {
+    return labelNames.length;
+  }
+
+  String labelName(int index) {
+    return labelNames[index];
+  }
+
+  @Override
+  public String toString() {
+    return name + Arrays.toString(labelNames);
+  }
+}
@@ -0,0 +1,139 @@
+package me.dmexe.telemetry.core.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+import me.dmexe.telemetry.core.latency.LatencyRecorder;
+
+/**
+ * Creates the metrics recorded by the instrumentation. A backend decides how an event is
+ * recorded and exported, factories only describe metrics with a {@link MetricDescriptor}, so the
+ * recording strategy is selected per deployment without changes in the factories.
+ *
+ * <p>A metric is created once per a backend and a name, later calls with the same name return
+ * the first created metric.
+ */
+public interface MetricsBackend {
+
+  /**
+   * A default number of distinct values of a label, see {@link #limited(MetricsBackend)}.
+   */
+  int DEFAULT_MAX_LABEL_VALUES = 100;
+
+  /**
+   * Create a counter.
+   *
+   * @param descriptor the metric description.
+   * @return the counter.
+   */
+  Counter counter(MetricDescriptor descriptor);
+
+  /**
+   * Create a latency timer, it's exported in seconds.
+   *
+   * @param descriptor the metric description.
+   * @return the timer.
+   */
+  LatencyHistogram timer(MetricDescriptor descriptor);
+
+  /**
+   * Create a distribution of observed values.
+   *
+   * @param descriptor the metric description.
+   * @return the distribution.
+   */
+  Distribution distribution(MetricDescriptor descriptor);
+
+  /**
+   * Create a gauge.
+   *
+   * @param descriptor the metric description.
+   * @return the gauge.
+   */
+  Gauge gauge(MetricDescriptor descriptor);
+
+  /**
+   * A backend of simpleclient collectors registered in the default collector registry, timers
+   * are recorded by {@link LatencyRecorder#defaultRecorder()}.
+   *
+   * @return the backend.
+   */
+  static MetricsBackend prometheus() {
+    return prometheus(CollectorRegistry.defaultRegistry);
+  }
+
+  /**
+   * A backend of simpleclient collectors registered in the given registry, timers are recorded by
+   * {@link LatencyRecorder#defaultRecorder()}.
+   *
+   * @param registry the collector registry.
+   * @return the backend.
+   */
+  static MetricsBackend prometheus(CollectorRegistry registry) {
+    return new PrometheusMetricsBackend(registry, null);
+  }
+
+  /**
+   * A backend of simpleclient collectors registered in the given registry, timers are recorded by
+   * the given recorder.
+   *
+   * @param registry the collector registry.
+   * @param latencyRecorder the latency recorder.
+   * @return the backend.
+   */
+  static MetricsBackend prometheus(CollectorRegistry registry, LatencyRecorder latencyRecorder) {
+    return new PrometheusMetricsBackend(registry, latencyRecorder);
+  }
+
+  /**
+   * A backend of Micrometer meters registered in the given registry. Metric names are converted
+   * to the Micrometer convention: {@code jooq_latency_seconds} becomes {@code jooq.latency}.
+   * Micrometer isn't a dependency of the library, it must be on the application classpath.
+   *
+   * @param registry the meter registry.
+   * @return the backend.
+   */
+  static MetricsBackend micrometer(MeterRegistry registry) {
+    return new MicrometerMetricsBackend(registry);
+  }
+
+  /**
+   * A backend which limits every label of the metrics created by the given backend to
+   * {@value #DEFAULT_MAX_LABEL_VALUES} distinct values.
+   *
+   * @param backend the backend.
+   * @return the backend.
+   * @see #limited(MetricsBackend, int)
+   */
+  static MetricsBackend limited(MetricsBackend backend) {
+    return limited(backend, DEFAULT_MAX_LABEL_VALUES);
+  }
+
+  /**
+   * A backend which limits every label of the metrics created by the given backend to a number
+   * of distinct values. Values above the limit are recorded with the {@code __overflow__} label
+   * value and counted in {@code metrics_cardinality_rejected_total}, so a client sending an
+   * unexpected HTTP method or a query starting with an odd comment doesn't create a new series
+   * for every request.
+   *
+   * <p>Limited backends of the same registry share the label values of a metric, so the limit
+   * holds across factories. A metric must be limited to the same number of values.
+   *
+   * @param backend the backend.
+   * @param maxLabelValues the max number of distinct values of a label.
+   * @return the backend.
+   */
+  static MetricsBackend limited(MetricsBackend backend, int maxLabelValues) {
+    return new LimitedMetricsBackend(backend, maxLabelValues);
+  }
+
+  /**
+   * A builder of a backend which records into preallocated primitive arrays, indexed by an
+   * ordinal of a label values tuple.
+   *
+   * @return the builder.
+   */
+  static NativeMetricsBackend.Builder preallocated() {
+    return NativeMetricsBackend.builder();
+  }
+}
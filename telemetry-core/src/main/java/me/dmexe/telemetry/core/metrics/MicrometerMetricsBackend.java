@@ -0,0 +1,153 @@
+package me.dmexe.telemetry.core.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Registers Micrometer meters. A meter registry returns an existing meter for the same name and
+ * tags, but a lookup builds the tags and the meter id, so resolved children are cached per label
+ * values. Gauge values are kept here, a Micrometer gauge holds its value weakly.
+ */
+class MicrometerMetricsBackend implements MetricsBackend {
+  private static final Map<MeterRegistry, Map<Meter.Id, GaugeValue>> gauges = new WeakHashMap<>();
+
+  private final MeterRegistry registry;
+
+  MicrometerMetricsBackend(MeterRegistry registry) {
+    Objects.requireNonNull(registry, "registry cannot be null");
+    this.registry = registry;
+  }
+
+  MeterRegistry registry() {
+    return registry;
+  }
+
+  @Override
+  public Counter counter(MetricDescriptor descriptor) {
+    final String name = meterName(descriptor, "_total");
+    final LabelCache<Counter.Child> children = LabelCache.of(descriptor.labelCount(),
+        labelValues -> io.micrometer.core.instrument.Counter.builder(name)
+            .description(descriptor.help())
+            .tags(tags(descriptor, labelValues))
+            .register(registry)::increment);
+    return children::get;
+  }
+
+  @Override
+  public LatencyHistogram timer(MetricDescriptor descriptor) {
+    final String name = meterName(descriptor, "_seconds");
+    final LabelCache<LatencyHistogram.Child> children = LabelCache.of(descriptor.labelCount(),
+        labelValues -> {
+          final Timer timer = Timer.builder(name)
+              .description(descriptor.help())
+              .tags(tags(descriptor, labelValues))
+              .register(registry);
+          return nanos -> timer.record(nanos, TimeUnit.NANOSECONDS);
+        });
+    return children::get;
+  }
+
+  @Override
+  public Distribution distribution(MetricDescriptor descriptor) {
+    final String name = meterName(descriptor, null);
+    final LabelCache<Distribution.Child> children = LabelCache.of(descriptor.labelCount(),
+        labelValues -> DistributionSummary.builder(name)
+            .description(descriptor.help())
+            .tags(tags(descriptor, labelValues))
+            .register(registry)::record);
+    return children::get;
+  }
+
+  @Override
+  public Gauge gauge(MetricDescriptor descriptor) {
+    final String name = meterName(descriptor, null);
+    return labelValues -> {
+      final GaugeValue value = new GaugeValue();
+      final io.micrometer.core.instrument.Gauge gauge = io.micrometer.core.instrument.Gauge
+          .builder(name, value, GaugeValue::doubleValue)
+          .description(descriptor.help())
+          .tags(tags(descriptor, labelValues))
+          .register(registry);
+
+      synchronized (gauges) {
+        return gauges
+            .computeIfAbsent(registry, it -> new HashMap<>())
+            .computeIfAbsent(gauge.getId(), it -> value);
+      }
+    };
+  }
+
+  static String meterName(MetricDescriptor descriptor, @Nullable String unitSuffix) {
+    String name = descriptor.name();
+    if (unitSuffix != null && name.endsWith(unitSuffix)) {
+      name = name.substring(0, name.length() - unitSuffix.length());
+    }
+    return name.replace('_', '.');
+  }
+
+  private static Tags tags(MetricDescriptor descriptor, String[] labelValues) {
+    if (labelValues.length != descriptor.labelCount()) {
+      throw new IllegalArgumentException("expected " + descriptor.labelCount() + " labels, got "
+          + labelValues.length);
+    }
+
+    Tags tags = Tags.empty();
+    for (int i = 0; i < labelValues.length; i++) {
+      tags = tags.and(descriptor.labelName(i), labelValues[i]);
+    }
+    return tags;
+  }
+
+  private static class GaugeValue extends Number implements Gauge.Child {
+    private static final long serialVersionUID = 1L;
+
+    private final AtomicLong bits = new AtomicLong(Double.doubleToLongBits(0.0));
+
+    @Override
+    public void inc(double amount) {
+      while (true) {
+        final long current = bits.get();
+        final long next = Double.doubleToLongBits(Double.longBitsToDouble(current) + amount);
+        if (bits.compareAndSet(current, next)) {
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void set(double value) {
+      bits.set(Double.doubleToLongBits(value));
+    }
+
+    @Override
+    public int intValue() {
+      return (int) doubleValue();
+    }
+
+    @Override
+    public long longValue() {
+      return (long) doubleValue();
+    }
+
+    @Override
+    public float floatValue() {
+      return (float) doubleValue();
+    }
+
+    @Override
+    public double doubleValue() {
+      return Double.longBitsToDouble(bits.get());
+    }
+  }
+}
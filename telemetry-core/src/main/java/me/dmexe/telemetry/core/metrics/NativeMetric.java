@@ -0,0 +1,135 @@
+package me.dmexe.telemetry.core.metrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * A metric of the {@link NativeMetricsBackend}, every label values tuple is an ordinal in the
+ * {@link SeriesIndex}, and a child records directly into cells at the ordinal.
+ */
+abstract class NativeMetric {
+  final MetricDescriptor descriptor;
+  final SeriesIndex series;
+  final List<String> labelNames;
+
+  NativeMetric(MetricDescriptor descriptor, int maxSeries) {
+    this.descriptor = descriptor;
+    this.series = new SeriesIndex(descriptor.labelCount(), maxSeries);
+    this.labelNames = Arrays.asList(descriptor.labelNames());
+  }
+
+  abstract Collector.Type type();
+
+  abstract void collect(int ordinal, List<String> labelValues,
+                        List<MetricFamilySamples.Sample> samples);
+
+  MetricFamilySamples collect() {
+    final List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+    for (int ordinal = 0; ordinal < series.capacity(); ordinal++) {
+      final String[] values = series.labelValues(ordinal);
+      if (values != null) {
+        collect(ordinal, Arrays.asList(values), samples);
+      }
+    }
+    return new MetricFamilySamples(descriptor.name(), type(), descriptor.help(), samples);
+  }
+
+  static class CounterMetric extends NativeMetric implements Counter {
+    private final Cells counts;
+
+    CounterMetric(MetricDescriptor descriptor, int maxSeries, IntFunction<Cells> cells) {
+      super(descriptor, maxSeries);
+      this.counts = cells.apply(maxSeries);
+    }
+
+    @Override
+    public Counter.Child labels(String... labelValues) {
+      final int ordinal = series.ordinal(labelValues);
+      return amount -> counts.add(ordinal, amount);
+    }
+
+    @Override
+    Collector.Type type() {
+      return Collector.Type.COUNTER;
+    }
+
+    @Override
+    void collect(int ordinal, List<String> labelValues, List<MetricFamilySamples.Sample> samples) {
+      samples.add(new MetricFamilySamples.Sample(
+          descriptor.name(), labelNames, labelValues, counts.get(ordinal)));
+    }
+  }
+
+  static class GaugeMetric extends NativeMetric implements Gauge {
+    private final Cells values;
+
+    GaugeMetric(MetricDescriptor descriptor, int maxSeries, IntFunction<Cells> cells) {
+      super(descriptor, maxSeries);
+      this.values = cells.apply(maxSeries);
+    }
+
+    @Override
+    public Gauge.Child labels(String... labelValues) {
+      final int ordinal = series.ordinal(labelValues);
+      return new Gauge.Child() {
+        @Override
+        public void inc(double amount) {
+          values.addDouble(ordinal, amount);
+        }
+
+        @Override
+        public void set(double value) {
+          values.setDouble(ordinal, value);
+        }
+      };
+    }
+
+    @Override
+    Collector.Type type() {
+      return Collector.Type.GAUGE;
+    }
+
+    @Override
+    void collect(int ordinal, List<String> labelValues, List<MetricFamilySamples.Sample> samples) {
+      samples.add(new MetricFamilySamples.Sample(
+          descriptor.name(), labelNames, labelValues, values.getDouble(ordinal)));
+    }
+  }
+
+  static class DistributionMetric extends NativeMetric implements Distribution {
+    private final Cells counts;
+    private final Cells sums;
+
+    DistributionMetric(MetricDescriptor descriptor, int maxSeries, IntFunction<Cells> cells) {
+      super(descriptor, maxSeries);
+      this.counts = cells.apply(maxSeries);
+      this.sums = cells.apply(maxSeries);
+    }
+
+    @Override
+    public Distribution.Child labels(String... labelValues) {
+      final int ordinal = series.ordinal(labelValues);
+      return value -> {
+        counts.add(ordinal, 1L);
+        sums.addDouble(ordinal, value);
+      };
+    }
+
+    @Override
+    Collector.Type type() {
+      return Collector.Type.SUMMARY;
+    }
+
+    @Override
+    void collect(int ordinal, List<String> labelValues, List<MetricFamilySamples.Sample> samples) {
+      samples.add(new MetricFamilySamples.Sample(
+          descriptor.name() + "_count", labelNames, labelValues, counts.get(ordinal)));
+      samples.add(new MetricFamilySamples.Sample(
+          descriptor.name() + "_sum", labelNames, labelValues, sums.getDouble(ordinal)));
+    }
+  }
+}
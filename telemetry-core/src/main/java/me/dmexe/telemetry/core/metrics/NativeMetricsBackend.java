@@ -0,0 +1,165 @@
+package me.dmexe.telemetry.core.metrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import me.dmexe.telemetry.core.latency.Buckets;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+
+/**
+ * A backend which records into preallocated primitive arrays. A label values tuple is interned
+ * into an ordinal once, when a child is resolved, and the child records into the cells at the
+ * ordinal without any lookup or allocation. The number of series of a metric is bounded, tuples
+ * above the bound are recorded into a series with {@code __overflow__} label values.
+ *
+ * <p>Cells are on the heap by default, see {@link Builder#offHeap()}. The metrics are exported by
+ * a single collector registered in a collector registry, so an application should share one
+ * backend between the factories.
+ */
+public final class NativeMetricsBackend implements MetricsBackend {
+  private final int maxSeries;
+  private final double[] bounds;
+  private final IntFunction<Cells> cells;
+  private final ConcurrentMap<String, NativeMetric> metrics;
+
+  private NativeMetricsBackend(Builder builder) {
+    this.maxSeries = builder.maxSeries;
+    this.bounds = builder.buckets.bounds();
+    this.cells = builder.offHeap ? OffHeapCells::new : HeapCells::new;
+    this.metrics = new ConcurrentHashMap<>();
+    new NativeCollector().register(builder.registry);
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public Counter counter(MetricDescriptor descriptor) {
+    return metric(descriptor, NativeMetric.CounterMetric.class,
+        it -> new NativeMetric.CounterMetric(it, maxSeries, cells));
+  }
+
+  @Override
+  public LatencyHistogram timer(MetricDescriptor descriptor) {
+    return metric(descriptor, NativeTimer.class,
+        it -> new NativeTimer(it, maxSeries, bounds, cells));
+  }
+
+  @Override
+  public Distribution distribution(MetricDescriptor descriptor) {
+    return metric(descriptor, NativeMetric.DistributionMetric.class,
+        it -> new NativeMetric.DistributionMetric(it, maxSeries, cells));
+  }
+
+  @Override
+  public Gauge gauge(MetricDescriptor descriptor) {
+    return metric(descriptor, NativeMetric.GaugeMetric.class,
+        it -> new NativeMetric.GaugeMetric(it, maxSeries, cells));
+  }
+
+  private <M extends NativeMetric> M metric(
+      MetricDescriptor descriptor,
+      Class<M> type,
+      Function<MetricDescriptor, M> factory) {
+    Objects.requireNonNull(descriptor, "descriptor cannot be null");
+    final NativeMetric metric =
+        metrics.computeIfAbsent(descriptor.name(), it -> factory.apply(descriptor));
+    if (!type.isInstance(metric)) {
+      throw new IllegalArgumentException(descriptor.name() + " is already created as "
+          + metric.type());
+    }
+    return type.cast(metric);
+  }
+
+  private class NativeCollector extends Collector {
+    @Override
+    public List<MetricFamilySamples> collect() {
+      final List<MetricFamilySamples> samples = new ArrayList<>(metrics.size());
+      for (NativeMetric metric : metrics.values()) {
+        samples.add(metric.collect());
+      }
+      return samples;
+    }
+  }
+
+  public static class Builder {
+    private int maxSeries;
+    private Buckets buckets;
+    private CollectorRegistry registry;
+    private boolean offHeap;
+
+    Builder() {
+      this.offHeap = false;
+      this.maxSeries = 1024;
+      this.buckets = Buckets.defaults();
+      this.registry = CollectorRegistry.defaultRegistry;
+    }
+
+    /**
+     * Assign the max number of series of a metric, including the overflow series. The default is
+     * 1024.
+     *
+     * @param maxSeries the number of series.
+     * @return the builder.
+     */
+    public Builder maxSeries(int maxSeries) {
+      if (maxSeries < 2) {
+        throw new IllegalArgumentException("maxSeries must be above 1");
+      }
+      this.maxSeries = maxSeries;
+      return this;
+    }
+
+    /**
+     * Assign buckets of timers.
+     *
+     * @param buckets the buckets.
+     * @return the builder.
+     */
+    public Builder buckets(Buckets buckets) {
+      Objects.requireNonNull(buckets, "buckets cannot be null");
+      this.buckets = buckets;
+      return this;
+    }
+
+    /**
+     * Assign a registry where the metrics are exported.
+     *
+     * @param registry the registry.
+     * @return the builder.
+     */
+    public Builder collectorRegistry(CollectorRegistry registry) {
+      Objects.requireNonNull(registry, "registry cannot be null");
+      this.registry = registry;
+      return this;
+    }
+
+    /**
+     * Keep metric cells in direct buffers instead of the heap, so a high number of series
+     * doesn't add to the garbage collection cost. Label values of a series stay on the heap.
+     * A cell is updated under a striped lock, so contended updates are slower than on the heap.
+     *
+     * @return the builder.
+     */
+    public Builder offHeap() {
+      this.offHeap = true;
+      return this;
+    }
+
+    /**
+     * Create the backend and register its collector.
+     *
+     * @return the backend.
+     */
+    public NativeMetricsBackend build() {
+      return new NativeMetricsBackend(this);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package me.dmexe.telemetry.core.metrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+
+/**
+ * A latency histogram of the {@link NativeMetricsBackend}. Bucket counters of a series are
+ * adjacent cells, an observation is a binary search over bounds in nanoseconds and two atomic
+ * additions.
+ */
+class NativeTimer extends NativeMetric implements LatencyHistogram {
+  private final double[] bounds;
+  private final long[] boundsNanos;
+  private final int stride;
+  private final Cells buckets;
+  private final Cells sums;
+  private final List<String> bucketLabelNames;
+
+  NativeTimer(MetricDescriptor descriptor, int maxSeries, double[] bounds,
+              IntFunction<Cells> cells) {
+    super(descriptor, maxSeries);
+    this.bounds = bounds;
+    this.boundsNanos = new long[bounds.length];
+    for (int i = 0; i < bounds.length; i++) {
+      boundsNanos[i] = (long) Math.ceil(bounds[i] * Collector.NANOSECONDS_PER_SECOND);
+    }
+    this.stride = bounds.length + 1;
+    this.buckets = cells.apply(maxSeries * stride);
+    this.sums = cells.apply(maxSeries);
+
+    final List<String> names = new ArrayList<>(labelNames);
+    names.add("le");
+    this.bucketLabelNames = names;
+  }
+
+  @Override
+  public LatencyHistogram.Child labels(String... labelValues) {
+    final int ordinal = series.ordinal(labelValues);
+    final int offset = ordinal * stride;
+    return nanos -> {
+      final int found = Arrays.binarySearch(boundsNanos, nanos);
+      final int bucket = found >= 0 ? found : -found - 1;
+      buckets.add(offset + bucket, 1L);
+      sums.add(ordinal, nanos);
+    };
+  }
+
+  @Override
+  Collector.Type type() {
+    return Collector.Type.HISTOGRAM;
+  }
+
+  @Override
+  void collect(int ordinal, List<String> labelValues, List<MetricFamilySamples.Sample> samples) {
+    final int offset = ordinal * stride;
+    long count = 0;
+    for (int i = 0; i < stride; i++) {
+      count += buckets.get(offset + i);
+      final String le = i < bounds.length ? Collector.doubleToGoString(bounds[i]) : "+Inf";
+      final List<String> values = new ArrayList<>(labelValues);
+      values.add(le);
+      samples.add(new MetricFamilySamples.Sample(
+          descriptor.name() + "_bucket", bucketLabelNames, values, count));
+    }
+    samples.add(new MetricFamilySamples.Sample(
+        descriptor.name() + "_count", labelNames, labelValues, count));
+    samples.add(new MetricFamilySamples.Sample(
+        descriptor.name() + "_sum", labelNames, labelValues,
+        sums.get(ordinal) / Collector.NANOSECONDS_PER_SECOND));
+  }
+}
@@ -0,0 +1,83 @@
+package me.dmexe.telemetry.core.metrics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Cells in a direct {@link ByteBuffer}, so they are neither scanned nor copied by a garbage
+ * collector. Java 8 has no atomic operations on a buffer, so a cell is updated under one of the
+ * striped locks, neighbour cells are guarded by different locks. The memory is released with the
+ * buffer.
+ */
+class OffHeapCells implements Cells {
+  private static final int STRIPES = 64;
+
+  private final ByteBuffer buffer;
+  private final Object[] locks;
+  private final int size;
+
+  OffHeapCells(int size) {
+    this.buffer = ByteBuffer.allocateDirect(size * Long.BYTES).order(ByteOrder.nativeOrder());
+    this.locks = new Object[Math.min(size, STRIPES)];
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new Object();
+    }
+    this.size = size;
+  }
+
+  @Override
+  public long get(int index) {
+    final int offset = offset(index);
+    synchronized (lock(index)) {
+      return buffer.getLong(offset);
+    }
+  }
+
+  @Override
+  public void add(int index, long delta) {
+    final int offset = offset(index);
+    synchronized (lock(index)) {
+      buffer.putLong(offset, buffer.getLong(offset) + delta);
+    }
+  }
+
+  @Override
+  public void set(int index, long value) {
+    final int offset = offset(index);
+    synchronized (lock(index)) {
+      buffer.putLong(offset, value);
+    }
+  }
+
+  @Override
+  public boolean compareAndSet(int index, long expect, long update) {
+    final int offset = offset(index);
+    synchronized (lock(index)) {
+      if (buffer.getLong(offset) != expect) {
+        return false;
+      }
+      buffer.putLong(offset, update);
+      return true;
+    }
+  }
+
+  @Override
+  public void addDouble(int index, double delta) {
+    final int offset = offset(index);
+    synchronized (lock(index)) {
+      final double current = Double.longBitsToDouble(buffer.getLong(offset));
+      buffer.putLong(offset, Double.doubleToRawLongBits(current + delta));
+    }
+  }
+
+  private Object lock(int index) {
+    return locks[index % locks.length];
+  }
+
+  private int offset(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index " + index);
+    }
+    return index * Long.BYTES;
+  }
+}
@@ -0,0 +1,118 @@
+package me.dmexe.telemetry.core.metrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.SimpleCollector;
+import io.prometheus.client.Summary;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+import me.dmexe.telemetry.core.latency.LatencyRecorder;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Registers simpleclient collectors. A collector is registered once per a registry and a name,
+ * because factories create their own backends for the same registry.
+ */
+class PrometheusMetricsBackend implements MetricsBackend {
+  private static final Map<CollectorRegistry, Map<String, Collector>> registered =
+      new WeakHashMap<>();
+
+  private final CollectorRegistry registry;
+
+  @Nullable
+  private final LatencyRecorder latencyRecorder;
+
+  PrometheusMetricsBackend(CollectorRegistry registry, @Nullable LatencyRecorder latencyRecorder) {
+    Objects.requireNonNull(registry, "registry cannot be null");
+    this.registry = registry;
+    this.latencyRecorder = latencyRecorder;
+  }
+
+  CollectorRegistry registry() {
+    return registry;
+  }
+
+  @Override
+  public Counter counter(MetricDescriptor descriptor) {
+    final io.prometheus.client.Counter counter = register(
+        descriptor,
+        io.prometheus.client.Counter.class,
+        () -> io.prometheus.client.Counter.build());
+    return labelValues -> {
+      final io.prometheus.client.Counter.Child child = counter.labels(labelValues);
+      return child::inc;
+    };
+  }
+
+  @Override
+  public LatencyHistogram timer(MetricDescriptor descriptor) {
+    Objects.requireNonNull(descriptor, "descriptor cannot be null");
+    final LatencyRecorder recorder = latencyRecorder == null
+        ? LatencyRecorder.defaultRecorder()
+        : latencyRecorder;
+    return recorder.register(registry, builder -> builder
+        .name(descriptor.name())
+        .help(descriptor.help())
+        .labelNames(descriptor.labelNames()));
+  }
+
+  @Override
+  public Distribution distribution(MetricDescriptor descriptor) {
+    final Summary summary = register(descriptor, Summary.class, Summary::build);
+    return labelValues -> summary.labels(labelValues)::observe;
+  }
+
+  @Override
+  public Gauge gauge(MetricDescriptor descriptor) {
+    final io.prometheus.client.Gauge gauge = register(
+        descriptor,
+        io.prometheus.client.Gauge.class,
+        () -> io.prometheus.client.Gauge.build());
+    return labelValues -> {
+      final io.prometheus.client.Gauge.Child child = gauge.labels(labelValues);
+      return new Gauge.Child() {
+        @Override
+        public void inc(double amount) {
+          child.inc(amount);
+        }
+
+        @Override
+        public void set(double value) {
+          child.set(value);
+        }
+      };
+    };
+  }
+
+  private <C extends SimpleCollector<?>> C register(
+      MetricDescriptor descriptor,
+      Class<C> type,
+      Supplier<SimpleCollector.Builder<?, C>> builder) {
+    Objects.requireNonNull(descriptor, "descriptor cannot be null");
+
+    synchronized (registered) {
+      final Map<String, Collector> collectors =
+          registered.computeIfAbsent(registry, it -> new HashMap<>());
+
+      Collector collector = collectors.get(descriptor.name());
+      if (collector == null) {
+        collector = builder.get()
+            .name(descriptor.name())
+            .help(descriptor.help())
+            .labelNames(descriptor.labelNames())
+            .register(registry);
+        collectors.put(descriptor.name(), collector);
+      }
+
+      if (!type.isInstance(collector)) {
+        throw new IllegalArgumentException(descriptor.name() + " is already registered as "
+            + collector.getClass().getSimpleName());
+      }
+      return type.cast(collector);
+    }
+  }
+}
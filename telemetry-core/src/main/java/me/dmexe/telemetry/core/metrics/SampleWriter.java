@@ -0,0 +1,53 @@
+package me.dmexe.telemetry.core.metrics;
+
+import io.prometheus.client.Collector;
+
+/**
+ * A sink of metric samples written by a {@link StreamingCollector}. A family is started by
+ * {@link #family(String, String, Collector.Type, String[])}, the following samples belong to the
+ * family until the next one is started. A family name must not be repeated during a collection.
+ */
+public interface SampleWriter {
+
+  /**
+   * Start a family of samples.
+   *
+   * @param name the family name, the samples are written under the same name.
+   * @param help the family help.
+   * @param type the family type.
+   * @param labelNames label names of the samples, the array is kept until the next family.
+   */
+  void family(String name, String help, Collector.Type type, String[] labelNames);
+
+  /**
+   * Write a sample of a family without labels.
+   *
+   * @param value the value.
+   */
+  void sample(double value);
+
+  /**
+   * Write a sample of a single label family.
+   *
+   * @param labelValue the label value.
+   * @param value the value.
+   */
+  void sample(String labelValue, double value);
+
+  /**
+   * Write a sample of a two labels family.
+   *
+   * @param first the first label value.
+   * @param second the second label value.
+   * @param value the value.
+   */
+  void sample(String first, String second, double value);
+
+  /**
+   * Write a sample of a family with any number of labels.
+   *
+   * @param labelValues the label values.
+   * @param value the value.
+   */
+  void sample(String[] labelValues, double value);
+}
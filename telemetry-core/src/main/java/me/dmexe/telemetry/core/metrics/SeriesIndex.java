@@ -0,0 +1,80 @@
+package me.dmexe.telemetry.core.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Interns label values tuples into ordinals of a fixed capacity. The last ordinal is reserved for
+ * tuples which don't fit, it's exported with {@link #OVERFLOW} label values.
+ */
+class SeriesIndex {
+  static final String OVERFLOW = CardinalityLimiter.OVERFLOW;
+
+  private final int arity;
+  private final int capacity;
+  private final ConcurrentMap<List<String>, Integer> ordinals;
+  private final AtomicReferenceArray<String[]> labelValues;
+  private int size;
+
+  SeriesIndex(int arity, int capacity) {
+    if (capacity < 2) {
+      throw new IllegalArgumentException("capacity must be above 1");
+    }
+    this.arity = arity;
+    this.capacity = capacity;
+    this.ordinals = new ConcurrentHashMap<>();
+    this.labelValues = new AtomicReferenceArray<>(capacity);
+    this.size = 0;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  int ordinal(String[] values) {
+    if (values.length != arity) {
+      throw new IllegalArgumentException("expected " + arity + " labels, got " + values.length);
+    }
+    for (String value : values) {
+      Objects.requireNonNull(value, "label value cannot be null");
+    }
+
+    final Integer ordinal = ordinals.get(Arrays.asList(values));
+    return ordinal != null ? ordinal : allocate(values.clone());
+  }
+
+  /**
+   * Label values of an ordinal or null when the ordinal isn't used yet.
+   */
+  String[] labelValues(int ordinal) {
+    return labelValues.get(ordinal);
+  }
+
+  private synchronized int allocate(String[] values) {
+    final List<String> key = Arrays.asList(values);
+    final Integer existing = ordinals.get(key);
+    if (existing != null) {
+      return existing;
+    }
+
+    final int overflow = capacity - 1;
+    if (size == overflow) {
+      if (labelValues.get(overflow) == null) {
+        final String[] overflowValues = new String[arity];
+        Arrays.fill(overflowValues, OVERFLOW);
+        labelValues.set(overflow, overflowValues);
+      }
+      return overflow;
+    }
+
+    final int ordinal = size;
+    labelValues.set(ordinal, values);
+    ordinals.put(key, ordinal);
+    size += 1;
+    return ordinal;
+  }
+}
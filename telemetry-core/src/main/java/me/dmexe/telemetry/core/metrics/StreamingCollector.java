@@ -0,0 +1,28 @@
+package me.dmexe.telemetry.core.metrics;
+
+import io.prometheus.client.Collector;
+import java.util.List;
+
+/**
+ * A collector which writes samples into a {@link SampleWriter} instead of building a list of
+ * families. An {@link ExpositionWriter} encodes the samples straight into the text format, so a
+ * scrape of a collector with many series doesn't allocate a family, a sample and label lists for
+ * every series. The collector still can be registered in a collector registry, {@link #collect()}
+ * builds the families by the same {@link #collect(SampleWriter)}.
+ */
+public abstract class StreamingCollector extends Collector {
+
+  @Override
+  public final List<MetricFamilySamples> collect() {
+    final FamilySamplesWriter writer = new FamilySamplesWriter();
+    collect(writer);
+    return writer.samples();
+  }
+
+  /**
+   * Write the samples of the collector.
+   *
+   * @param writer the writer.
+   */
+  public abstract void collect(SampleWriter writer);
+}
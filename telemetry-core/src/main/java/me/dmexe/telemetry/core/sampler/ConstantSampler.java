@@ -0,0 +1,17 @@
+package me.dmexe.telemetry.core.sampler;
+
+class ConstantSampler implements Sampler {
+  static final Sampler ALWAYS = new ConstantSampler(true);
+  static final Sampler NEVER = new ConstantSampler(false);
+
+  private final boolean sampled;
+
+  private ConstantSampler(boolean sampled) {
+    this.sampled = sampled;
+  }
+
+  @Override
+  public boolean isSampled(String operation) {
+    return sampled;
+  }
+}
@@ -0,0 +1,79 @@
+package me.dmexe.telemetry.core.sampler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Delegates the decision to a sampler registered for the longest matching operation prefix, for
+ * example different rates for {@code /health} and {@code /api} URIs.
+ */
+public class PrefixSampler implements Sampler {
+  private final String[] prefixes;
+  private final Sampler[] samplers;
+  private final Sampler fallback;
+
+  private PrefixSampler(List<Entry> entries, Sampler fallback) {
+    entries.sort(Comparator.comparingInt((Entry it) -> it.prefix.length()).reversed());
+
+    this.prefixes = new String[entries.size()];
+    this.samplers = new Sampler[entries.size()];
+    for (int i = 0; i < entries.size(); i++) {
+      prefixes[i] = entries.get(i).prefix;
+      samplers[i] = entries.get(i).sampler;
+    }
+    this.fallback = fallback;
+  }
+
+  @Override
+  public boolean isSampled(String operation) {
+    if (operation != null) {
+      for (int i = 0; i < prefixes.length; i++) {
+        if (operation.startsWith(prefixes[i])) {
+          return samplers[i].isSampled(operation);
+        }
+      }
+    }
+    return fallback.isSampled(operation);
+  }
+
+  public static class Builder {
+    private final List<Entry> entries;
+    private final Sampler fallback;
+
+    Builder(Sampler fallback) {
+      Objects.requireNonNull(fallback, "fallback cannot be null");
+      this.entries = new ArrayList<>();
+      this.fallback = fallback;
+    }
+
+    /**
+     * Register a sampler for the operation prefix.
+     *
+     * @param prefix an operation prefix.
+     * @param sampler a sampler for operations starting with the prefix.
+     * @return the builder.
+     */
+    public Builder prefix(String prefix, Sampler sampler) {
+      Objects.requireNonNull(prefix, "prefix cannot be null");
+      Objects.requireNonNull(sampler, "sampler cannot be null");
+      entries.add(new Entry(prefix, sampler));
+      return this;
+    }
+
+    public PrefixSampler build() {
+      return new PrefixSampler(new ArrayList<>(entries), fallback);
+    }
+  }
+
+  private static class Entry {
+    private final String prefix;
+    private final Sampler sampler;
+
+    Entry(String prefix, Sampler sampler) {
+      this.prefix = prefix;
+      this.sampler = sampler;
+    }
+  }
+}
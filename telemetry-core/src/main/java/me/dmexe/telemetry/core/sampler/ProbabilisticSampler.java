@@ -0,0 +1,19 @@
+package me.dmexe.telemetry.core.sampler;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+class ProbabilisticSampler implements Sampler {
+  private final double rate;
+
+  ProbabilisticSampler(double rate) {
+    if (rate < 0.0 || rate > 1.0) {
+      throw new IllegalArgumentException("rate must be in [0.0, 1.0] range");
+    }
+    this.rate = rate;
+  }
+
+  @Override
+  public boolean isSampled(String operation) {
+    return ThreadLocalRandom.current().nextDouble() < rate;
+  }
+}
@@ -0,0 +1,48 @@
+package me.dmexe.telemetry.core.sampler;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A lock-free rate limiter based on the generic cell rate algorithm. It allows a burst of up to
+ * one second worth of operations, and then one operation per emission interval.
+ */
+class RateLimitingSampler implements Sampler {
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private final LongSupplier nanoTime;
+  private final long intervalNanos;
+  private final long burstNanos;
+  private final AtomicLong theoreticalArrivalNanos;
+
+  RateLimitingSampler(double operationsPerSecond, LongSupplier nanoTime) {
+    Objects.requireNonNull(nanoTime, "nanoTime cannot be null");
+    if (operationsPerSecond <= 0.0) {
+      throw new IllegalArgumentException("operationsPerSecond must be positive");
+    }
+
+    this.nanoTime = nanoTime;
+    this.intervalNanos = Math.max(1L, (long) (NANOS_PER_SECOND / operationsPerSecond));
+    this.burstNanos = Math.max(intervalNanos, NANOS_PER_SECOND);
+    this.theoreticalArrivalNanos = new AtomicLong(nanoTime.getAsLong() - burstNanos);
+  }
+
+  @Override
+  public boolean isSampled(String operation) {
+    final long now = nanoTime.getAsLong();
+
+    while (true) {
+      final long arrival = theoreticalArrivalNanos.get();
+      final long next = Math.max(arrival, now - burstNanos) + intervalNanos;
+
+      if (next - now > 0) {
+        return false;
+      }
+
+      if (theoreticalArrivalNanos.compareAndSet(arrival, next)) {
+        return true;
+      }
+    }
+  }
+}
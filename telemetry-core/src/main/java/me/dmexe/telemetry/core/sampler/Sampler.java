@@ -0,0 +1,61 @@
+package me.dmexe.telemetry.core.sampler;
+
+/**
+ * A head sampling decision, it runs before any span or tag work, so an unsampled operation only
+ * pays for metrics. The operation is an integration specific key: an URI for HTTP, a statement
+ * name for databases, a topic for Kafka.
+ */
+@FunctionalInterface
+public interface Sampler {
+
+  boolean isSampled(String operation);
+
+  /**
+   * A sampler which samples every operation.
+   *
+   * @return the sampler.
+   */
+  static Sampler always() {
+    return ConstantSampler.ALWAYS;
+  }
+
+  /**
+   * A sampler which never samples any operation.
+   *
+   * @return the sampler.
+   */
+  static Sampler never() {
+    return ConstantSampler.NEVER;
+  }
+
+  /**
+   * A sampler which samples operations randomly with the given probability.
+   *
+   * @param rate a probability in [0.0, 1.0] range.
+   * @return the sampler.
+   */
+  static Sampler probabilistic(double rate) {
+    return new ProbabilisticSampler(rate);
+  }
+
+  /**
+   * A sampler which samples no more than the given number of operations per second.
+   *
+   * @param operationsPerSecond a maximum number of sampled operations per second.
+   * @return the sampler.
+   */
+  static Sampler rateLimiting(double operationsPerSecond) {
+    return new RateLimitingSampler(operationsPerSecond, System::nanoTime);
+  }
+
+  /**
+   * A sampler which delegates the decision to a sampler registered for the longest matching
+   * operation prefix.
+   *
+   * @param fallback a sampler used when no prefix matches.
+   * @return the builder.
+   */
+  static PrefixSampler.Builder byPrefix(Sampler fallback) {
+    return new PrefixSampler.Builder(fallback);
+  }
+}
@@ -0,0 +1,36 @@
+package me.dmexe.telemetry.core.tracer;
+
+import io.prometheus.client.Collector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class AsyncReportingCollector extends Collector {
+  private final AsyncReportingTracer tracer;
+
+  AsyncReportingCollector(AsyncReportingTracer tracer) {
+    this.tracer = tracer;
+  }
+
+  @Override
+  public List<MetricFamilySamples> collect() {
+    final List<MetricFamilySamples> samples = new ArrayList<>(5);
+    samples.add(sample("tracing_reporter_dropped_spans_total", Type.COUNTER,
+        "Spans dropped because the reporter buffer was full.", tracer.droppedSpans()));
+    samples.add(sample("tracing_reporter_reported_spans_total", Type.COUNTER,
+        "Spans finished on the delegate tracer.", tracer.reportedSpans()));
+    samples.add(sample("tracing_reporter_failed_spans_total", Type.COUNTER,
+        "Spans the delegate tracer failed to finish.", tracer.failedSpans()));
+    samples.add(sample("tracing_reporter_backlog_spans", Type.GAUGE,
+        "Spans waiting in the reporter buffer.", tracer.backlog()));
+    samples.add(sample("tracing_reporter_capacity_spans", Type.GAUGE,
+        "The reporter buffer capacity.", tracer.capacity()));
+    return samples;
+  }
+
+  private static MetricFamilySamples sample(String name, Type type, String help, double value) {
+    return new MetricFamilySamples(name, type, help, Collections.singletonList(
+        new MetricFamilySamples.Sample(name, Collections.emptyList(), Collections.emptyList(),
+            value)));
+  }
+}
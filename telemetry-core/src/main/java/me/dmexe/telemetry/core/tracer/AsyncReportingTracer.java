@@ -0,0 +1,321 @@
+package me.dmexe.telemetry.core.tracer;
+
+import io.opentracing.ActiveSpan;
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.propagation.Format;
+import io.prometheus.client.CollectorRegistry;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A tracer decorator which moves span reporting off the calling thread. A finished span is put
+ * into a preallocated lock-free ring buffer and finished on the delegate tracer by a dedicated
+ * thread, so an event loop never blocks on a span export. When the buffer is full the span is
+ * handled by the {@link OverflowPolicy}.
+ */
+public class AsyncReportingTracer implements Tracer, Closeable {
+  private static final int DRAIN_BATCH = 256;
+
+  private final Tracer delegate;
+  private final SpanRingBuffer buffer;
+  private final int capacity;
+  private final OverflowPolicy overflowPolicy;
+  private final long idleNanos;
+  private final long baseMicros;
+  private final long baseNanos;
+  private final LongAdder dropped;
+  private final LongAdder reported;
+  private final LongAdder failed;
+  private final Thread reporter;
+  private final Object drainLock;
+  private volatile boolean closed;
+  private volatile boolean terminated;
+
+  private AsyncReportingTracer(Builder builder) {
+    this.delegate = builder.delegate;
+    this.capacity = builder.capacity;
+    this.buffer = new SpanRingBuffer(builder.capacity);
+    this.overflowPolicy = builder.overflowPolicy;
+    this.idleNanos = builder.idleWait.toNanos();
+    this.baseMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    this.baseNanos = System.nanoTime();
+    this.dropped = new LongAdder();
+    this.reported = new LongAdder();
+    this.failed = new LongAdder();
+    this.drainLock = new Object();
+    this.closed = false;
+    this.terminated = false;
+
+    this.reporter = new Thread(this::run, builder.threadName);
+    this.reporter.setDaemon(true);
+    this.reporter.start();
+
+    if (builder.registry != null) {
+      new AsyncReportingCollector(this).register(builder.registry);
+    }
+  }
+
+  /**
+   * Create a builder of the decorator.
+   *
+   * @param delegate a tracer which reports spans.
+   * @return the builder.
+   */
+  public static Builder builder(Tracer delegate) {
+    return new Builder(delegate);
+  }
+
+  @Override
+  public SpanBuilder buildSpan(String operationName) {
+    return new AsyncSpanBuilder(delegate.buildSpan(operationName), this);
+  }
+
+  @Override
+  public <C> void inject(SpanContext spanContext, Format<C> format, C carrier) {
+    delegate.inject(spanContext, format, carrier);
+  }
+
+  @Override
+  public <C> SpanContext extract(Format<C> format, C carrier) {
+    return delegate.extract(format, carrier);
+  }
+
+  @Override
+  public ActiveSpan activeSpan() {
+    return delegate.activeSpan();
+  }
+
+  @Override
+  public ActiveSpan makeActive(Span span) {
+    return delegate.makeActive(span);
+  }
+
+  /**
+   * The number of spans dropped because the buffer was full.
+   *
+   * @return the number of spans.
+   */
+  public long droppedSpans() {
+    return dropped.sum();
+  }
+
+  /**
+   * The number of spans finished on the delegate tracer.
+   *
+   * @return the number of spans.
+   */
+  public long reportedSpans() {
+    return reported.sum();
+  }
+
+  /**
+   * The number of spans the delegate tracer failed to finish.
+   *
+   * @return the number of spans.
+   */
+  public long failedSpans() {
+    return failed.sum();
+  }
+
+  /**
+   * The number of finished spans waiting in the buffer.
+   *
+   * @return the number of spans.
+   */
+  public long backlog() {
+    return buffer.size();
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Stop the reporting thread and finish the remaining spans on the calling thread, spans finished
+   * after the call are reported on their own threads.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    LockSupport.unpark(reporter);
+
+    boolean interrupted = false;
+    while (reporter.isAlive()) {
+      try {
+        reporter.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+
+    // the reporting thread is stopped, spans offered from now on are drained by their callers
+    terminated = true;
+    drainTerminated();
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  long nowMicros() {
+    return baseMicros + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - baseNanos);
+  }
+
+  void finish(Span span, long finishMicros) {
+    if (closed) {
+      report(span, finishMicros);
+      return;
+    }
+
+    if (buffer.offer(span, finishMicros)) {
+      // close() could have drained the buffer between the check above and the offer
+      if (terminated) {
+        drainTerminated();
+      }
+      return;
+    }
+
+    if (overflowPolicy == OverflowPolicy.FINISH_ON_CALLER) {
+      report(span, finishMicros);
+    } else {
+      dropped.increment();
+    }
+  }
+
+  /**
+   * Drain the buffer after the reporting thread has stopped, a producer which claimed a slot
+   * publishes it right away, so it's awaited instead of being left in the buffer.
+   */
+  private void drainTerminated() {
+    synchronized (drainLock) {
+      while (buffer.size() > 0) {
+        if (buffer.drain(this::report, Integer.MAX_VALUE) == 0) {
+          Thread.yield();
+        }
+      }
+    }
+  }
+
+  private void report(Span span, long finishMicros) {
+    try {
+      span.finish(finishMicros);
+      reported.increment();
+    } catch (RuntimeException e) {
+      failed.increment();
+    }
+  }
+
+  private void run() {
+    while (!closed) {
+      if (buffer.drain(this::report, DRAIN_BATCH) == 0) {
+        LockSupport.parkNanos(this, idleNanos);
+      }
+    }
+  }
+
+  public static class Builder {
+    private final Tracer delegate;
+    private int capacity;
+    private OverflowPolicy overflowPolicy;
+    private Duration idleWait;
+    private String threadName;
+    @Nullable
+    private CollectorRegistry registry;
+
+    Builder(Tracer delegate) {
+      Objects.requireNonNull(delegate, "delegate cannot be null");
+      this.delegate = delegate;
+      this.capacity = 4096;
+      this.overflowPolicy = OverflowPolicy.DROP;
+      this.idleWait = Duration.ofMillis(1);
+      this.threadName = "tracing-reporter";
+      this.registry = null;
+    }
+
+    /**
+     * Assign the buffer capacity, it's rounded up to a power of two. The default is 4096.
+     *
+     * @param capacity the max number of spans waiting for reporting.
+     * @return the builder.
+     */
+    public Builder capacity(int capacity) {
+      if (capacity < 1 || capacity > (1 << 30)) {
+        throw new IllegalArgumentException("capacity must be in 1.." + (1 << 30));
+      }
+      this.capacity = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+      return this;
+    }
+
+    /**
+     * Assign what to do with a span when the buffer is full. The default is
+     * {@link OverflowPolicy#DROP}.
+     *
+     * @param overflowPolicy the policy.
+     * @return the builder.
+     */
+    public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+      Objects.requireNonNull(overflowPolicy, "overflowPolicy cannot be null");
+      this.overflowPolicy = overflowPolicy;
+      return this;
+    }
+
+    /**
+     * Assign how long the reporting thread parks when the buffer is empty. The default is 1ms.
+     *
+     * @param idleWait the park duration.
+     * @return the builder.
+     */
+    public Builder idleWait(Duration idleWait) {
+      Objects.requireNonNull(idleWait, "idleWait cannot be null");
+      if (idleWait.isNegative() || idleWait.isZero()) {
+        throw new IllegalArgumentException("idleWait must be positive");
+      }
+      this.idleWait = idleWait;
+      return this;
+    }
+
+    /**
+     * Assign the reporting thread name.
+     *
+     * @param threadName the name.
+     * @return the builder.
+     */
+    public Builder threadName(String threadName) {
+      Objects.requireNonNull(threadName, "threadName cannot be null");
+      this.threadName = threadName;
+      return this;
+    }
+
+    /**
+     * Export dropped, reported, failed spans counters and the backlog gauge into the given
+     * registry.
+     *
+     * @param registry the registry.
+     * @return the builder.
+     */
+    public Builder collectorRegistry(CollectorRegistry registry) {
+      Objects.requireNonNull(registry, "registry cannot be null");
+      this.registry = registry;
+      return this;
+    }
+
+    /**
+     * Create the decorator and start its reporting thread.
+     *
+     * @return the tracer.
+     */
+    public AsyncReportingTracer build() {
+      return new AsyncReportingTracer(this);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package me.dmexe.telemetry.core.tracer;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import java.util.Map;
+
+/**
+ * Delegates everything but {@link #finish()}, which hands the span over to the reporter.
+ */
+class AsyncSpan implements Span {
+  private final Span delegate;
+  private final AsyncReportingTracer tracer;
+
+  AsyncSpan(Span delegate, AsyncReportingTracer tracer) {
+    this.delegate = delegate;
+    this.tracer = tracer;
+  }
+
+  @Override
+  public void finish() {
+    tracer.finish(delegate, tracer.nowMicros());
+  }
+
+  @Override
+  public void finish(long finishMicros) {
+    tracer.finish(delegate, finishMicros);
+  }
+
+  @Override
+  public SpanContext context() {
+    return delegate.context();
+  }
+
+  @Override
+  public Span setTag(String key, String value) {
+    delegate.setTag(key, value);
+    return this;
+  }
+
+  @Override
+  public Span setTag(String key, boolean value) {
+    delegate.setTag(key, value);
+    return this;
+  }
+
+  @Override
+  public Span setTag(String key, Number value) {
+    delegate.setTag(key, value);
+    return this;
+  }
+
+  @Override
+  public Span log(Map<String, ?> fields) {
+    delegate.log(fields);
+    return this;
+  }
+
+  @Override
+  public Span log(long timestampMicros, Map<String, ?> fields) {
+    delegate.log(timestampMicros, fields);
+    return this;
+  }
+
+  @Override
+  public Span log(String event) {
+    delegate.log(event);
+    return this;
+  }
+
+  @Override
+  public Span log(long timestampMicros, String event) {
+    delegate.log(timestampMicros, event);
+    return this;
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public Span log(String eventName, Object payload) {
+    delegate.log(eventName, payload);
+    return this;
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public Span log(long timestampMicros, String eventName, Object payload) {
+    delegate.log(timestampMicros, eventName, payload);
+    return this;
+  }
+
+  @Override
+  public Span setBaggageItem(String key, String value) {
+    delegate.setBaggageItem(key, value);
+    return this;
+  }
+
+  @Override
+  public String getBaggageItem(String key) {
+    return delegate.getBaggageItem(key);
+  }
+
+  @Override
+  public Span setOperationName(String operationName) {
+    delegate.setOperationName(operationName);
+    return this;
+  }
+}
@@ -0,0 +1,91 @@
+package me.dmexe.telemetry.core.tracer;
+
+import io.opentracing.ActiveSpan;
+import io.opentracing.BaseSpan;
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+
+/**
+ * Wraps started spans into {@link AsyncSpan}. The start timestamp is taken from the same clock as
+ * the finish timestamp, so a duration doesn't depend on the delegate tracer clock.
+ */
+class AsyncSpanBuilder implements Tracer.SpanBuilder {
+  private final Tracer.SpanBuilder delegate;
+  private final AsyncReportingTracer tracer;
+  private boolean hasStartTimestamp;
+
+  AsyncSpanBuilder(Tracer.SpanBuilder delegate, AsyncReportingTracer tracer) {
+    this.delegate = delegate;
+    this.tracer = tracer;
+    this.hasStartTimestamp = false;
+  }
+
+  @Override
+  public Tracer.SpanBuilder asChildOf(SpanContext parent) {
+    delegate.asChildOf(parent);
+    return this;
+  }
+
+  @Override
+  public Tracer.SpanBuilder asChildOf(BaseSpan<?> parent) {
+    delegate.asChildOf(parent == null ? null : parent.context());
+    return this;
+  }
+
+  @Override
+  public Tracer.SpanBuilder addReference(String referenceType, SpanContext referencedContext) {
+    delegate.addReference(referenceType, referencedContext);
+    return this;
+  }
+
+  @Override
+  public Tracer.SpanBuilder ignoreActiveSpan() {
+    delegate.ignoreActiveSpan();
+    return this;
+  }
+
+  @Override
+  public Tracer.SpanBuilder withTag(String key, String value) {
+    delegate.withTag(key, value);
+    return this;
+  }
+
+  @Override
+  public Tracer.SpanBuilder withTag(String key, boolean value) {
+    delegate.withTag(key, value);
+    return this;
+  }
+
+  @Override
+  public Tracer.SpanBuilder withTag(String key, Number value) {
+    delegate.withTag(key, value);
+    return this;
+  }
+
+  @Override
+  public Tracer.SpanBuilder withStartTimestamp(long microseconds) {
+    delegate.withStartTimestamp(microseconds);
+    hasStartTimestamp = true;
+    return this;
+  }
+
+  @Override
+  public ActiveSpan startActive() {
+    return tracer.makeActive(startManual());
+  }
+
+  @Override
+  public Span startManual() {
+    if (!hasStartTimestamp) {
+      delegate.withStartTimestamp(tracer.nowMicros());
+    }
+    return new AsyncSpan(delegate.startManual(), tracer);
+  }
+
+  @Override
+  @Deprecated
+  public Span start() {
+    return startManual();
+  }
+}
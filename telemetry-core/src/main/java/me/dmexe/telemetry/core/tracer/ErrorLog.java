@@ -0,0 +1,104 @@
+package me.dmexe.telemetry.core.tracer;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Span log fields of an error: {@code error.kind} and {@code message}. It's an immutable map of
+ * two fields, which is cheaper to create than a {@link java.util.HashMap} and doesn't allocate
+ * anything until a tracer iterates it.
+ */
+public final class ErrorLog extends AbstractMap<String, Object> {
+  public static final String ERROR_KIND = "error.kind";
+  public static final String MESSAGE = "message";
+
+  private final String kind;
+  @Nullable
+  private final Object message;
+
+  private ErrorLog(String kind, @Nullable Object message) {
+    this.kind = kind;
+    this.message = message;
+  }
+
+  /**
+   * Log fields of the given exception.
+   *
+   * @param err the exception.
+   * @return the fields.
+   */
+  public static Map<String, Object> of(Throwable err) {
+    return new ErrorLog(err.getClass().getName(), err.getMessage());
+  }
+
+  /**
+   * Log fields of an error which isn't an exception.
+   *
+   * @param kind the error kind.
+   * @param message the error message.
+   * @return the fields.
+   */
+  public static Map<String, Object> of(String kind, @Nullable Object message) {
+    return new ErrorLog(kind, message);
+  }
+
+  @Override
+  public int size() {
+    return 2;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return ERROR_KIND.equals(key) || MESSAGE.equals(key);
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (ERROR_KIND.equals(key)) {
+      return kind;
+    }
+    if (MESSAGE.equals(key)) {
+      return message;
+    }
+    return null;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return new AbstractSet<Entry<String, Object>>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new Iterator<Entry<String, Object>>() {
+          private int index = 0;
+
+          @Override
+          public boolean hasNext() {
+            return index < 2;
+          }
+
+          @Override
+          public Entry<String, Object> next() {
+            switch (index++) {
+              case 0:
+                return new SimpleImmutableEntry<>(ERROR_KIND, kind);
+              case 1:
+                return new SimpleImmutableEntry<>(MESSAGE, message);
+              default:
+                throw new NoSuchElementException();
+            }
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return 2;
+      }
+    };
+  }
+}
@@ -0,0 +1,12 @@
+package me.dmexe.telemetry.core.tracer;
+
+/**
+ * What {@link AsyncReportingTracer} does with a finished span when its buffer is full.
+ */
+public enum OverflowPolicy {
+  /** Drop the span, it's never reported. */
+  DROP,
+
+  /** Finish the span on the calling thread, as without the decorator. */
+  FINISH_ON_CALLER
+}
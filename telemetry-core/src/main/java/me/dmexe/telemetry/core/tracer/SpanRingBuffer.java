@@ -0,0 +1,102 @@
+package me.dmexe.telemetry.core.tracer;
+
+import io.opentracing.Span;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded lock-free multi-producer single-consumer queue of finished spans, preallocated at
+ * construction. Every slot has a sequence number: a producer claims a slot by a CAS on the tail
+ * and publishes it by setting the slot sequence, the consumer frees it by advancing the sequence
+ * by the capacity.
+ */
+class SpanRingBuffer {
+  private final int mask;
+  private final Span[] spans;
+  private final long[] finishMicros;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail;
+  private final AtomicLong head;
+
+  SpanRingBuffer(int capacity) {
+    if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two above 1");
+    }
+
+    this.mask = capacity - 1;
+    this.spans = new Span[capacity];
+    this.finishMicros = new long[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    this.tail = new AtomicLong();
+    this.head = new AtomicLong();
+
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Enqueue a span, it's safe to call from any thread.
+   *
+   * @return false when the buffer is full.
+   */
+  boolean offer(Span span, long finishMicros) {
+    long position = tail.get();
+
+    while (true) {
+      final int index = (int) position & mask;
+      final long difference = sequences.get(index) - position;
+
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          spans[index] = span;
+          this.finishMicros[index] = finishMicros;
+          sequences.lazySet(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Dequeue up to the given number of spans and finish them, it's called only by the consumer.
+   *
+   * @return the number of finished spans.
+   */
+  int drain(SpanConsumer consumer, int limit) {
+    long position = head.get();
+    int count = 0;
+
+    while (count < limit) {
+      final int index = (int) position & mask;
+      if (sequences.get(index) != position + 1) {
+        break;
+      }
+
+      final Span span = spans[index];
+      final long micros = finishMicros[index];
+      spans[index] = null;
+      sequences.lazySet(index, position + mask + 1);
+      position += 1;
+      head.lazySet(position);
+      count += 1;
+
+      consumer.accept(span, micros);
+    }
+
+    return count;
+  }
+
+  long size() {
+    return Math.max(0L, tail.get() - head.get());
+  }
+
+  interface SpanConsumer {
+    void accept(Span span, long finishMicros);
+  }
+}
@@ -0,0 +1,21 @@
+package me.dmexe.telemetry.core.tracer;
+
+import io.opentracing.Tracer;
+import io.opentracing.util.GlobalTracer;
+import org.jetbrains.annotations.Nullable;
+
+public final class Tracers {
+
+  private Tracers() {
+  }
+
+  /**
+   * Resolve a tracer assigned to a factory, an unassigned tracer is the {@link GlobalTracer}.
+   *
+   * @param tracer an assigned tracer or null.
+   * @return the tracer.
+   */
+  public static Tracer resolve(@Nullable Tracer tracer) {
+    return tracer == null ? GlobalTracer.get() : tracer;
+  }
+}
@@ -0,0 +1,24 @@
+package me.dmexe.telemetry.core.latency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class BucketsTest {
+
+  @Test
+  void should_build_bucket_layouts() {
+    assertThat(Buckets.explicit(0.001, 0.01).bounds()).containsExactly(0.001, 0.01);
+    assertThat(Buckets.linear(0.1, 0.1, 3).bounds()).containsExactly(0.1, 0.2, 0.1 + 2 * 0.1);
+    assertThat(Buckets.exponential(0.0001, 10, 3).bounds()).containsExactly(0.0001, 0.001, 0.01);
+  }
+
+  @Test
+  void should_reject_unordered_bounds() {
+    assertThatThrownBy(() -> Buckets.explicit(0.1, 0.01))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> Buckets.exponential(0.1, 1, 3))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,175 @@
+package me.dmexe.telemetry.core.latency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import io.prometheus.client.CollectorRegistry;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LogLinearHistogramTest {
+  private CollectorRegistry collectorRegistry;
+
+  @BeforeEach
+  void before() {
+    collectorRegistry = new CollectorRegistry();
+  }
+
+  @Test
+  void should_keep_relative_error_within_precision() {
+    final LogLinearHistogram.Child child = new LogLinearHistogram.Child(5, 1);
+
+    LongStream.of(0, 1, 31, 32, 33, 1_000, 123_456, 999_999_999, LogLinearHistogram.MAX_NANOS)
+        .forEach(value -> {
+          final int index = child.index(value);
+          assertThat(child.lowest(index)).isLessThanOrEqualTo(value);
+          assertThat(child.highest(index)).isGreaterThanOrEqualTo(value);
+          assertThat((double) (child.highest(index) - child.lowest(index)))
+              .isLessThanOrEqualTo(Math.max(1.0, value / 32.0));
+        });
+  }
+
+  @Test
+  void should_export_as_histogram() {
+    final LatencyHistogram histogram = LatencyRecorder.logLinear()
+        .buckets(0.0001, 0.001, 0.01)
+        .register(collectorRegistry, builder -> builder
+            .name("test_latency_seconds")
+            .labelNames("op")
+            .help("help"));
+
+    histogram.labels("get").observeNanos(50_000);
+    histogram.labels("get").observeNanos(500_000);
+    histogram.labels("get").observeNanos(5_000_000);
+    histogram.labels("get").observeNanos(50_000_000);
+
+    assertThat(samples(collectorRegistry))
+        .containsExactly(
+            "test_latency_seconds_bucket{get,+Inf}=4.0",
+            "test_latency_seconds_bucket{get,0.001}=2.0",
+            "test_latency_seconds_bucket{get,0.01}=3.0",
+            "test_latency_seconds_bucket{get,1.0E-4}=1.0",
+            "test_latency_seconds_count{get}=4.0",
+            "test_latency_seconds_sum{get}=0.05555");
+  }
+
+  @Test
+  void should_export_as_summary() {
+    final LatencyHistogram histogram = LatencyRecorder.logLinear()
+        .quantiles(0.5, 0.99, 0.999)
+        .register(collectorRegistry, builder -> builder
+            .name("test_latency_seconds")
+            .labelNames("op")
+            .help("help"));
+
+    LongStream.rangeClosed(1, 10_000).forEach(n -> histogram.labels("get").observeNanos(n * 100));
+
+    assertThat(value(collectorRegistry, "0.5")).isCloseTo(0.0005, within(0.0005 / 32));
+    assertThat(value(collectorRegistry, "0.99")).isCloseTo(0.00099, within(0.00099 / 32));
+    assertThat(value(collectorRegistry, "0.999")).isCloseTo(0.000999, within(0.000999 / 32));
+    assertThat(collectorRegistry.getSampleValue(
+        "test_latency_seconds_count",
+        new String[] {"op"},
+        new String[] {"get"})).isEqualTo(10_000.0);
+  }
+
+  @Test
+  void should_compute_quantiles_over_window() {
+    final AtomicLong nanoTime = new AtomicLong();
+    final LogLinearHistogram histogram = LogLinearHistogram.build()
+        .name("test_latency_seconds")
+        .labelNames("op")
+        .help("help")
+        .quantiles(0.99)
+        .maxAgeSeconds(60)
+        .ageBuckets(3)
+        .clock(nanoTime::get)
+        .register(collectorRegistry);
+
+    LongStream.range(0, 100).forEach(n -> histogram.labels("get").observeNanos(1_000_000_000));
+    assertThat(value(collectorRegistry, "0.99")).isCloseTo(1.0, within(1.0 / 32));
+
+    // scrapes rotate the window every 20 seconds, the slow observations age out after a minute
+    for (int step = 0; step < 4; step++) {
+      nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(20));
+      LongStream.range(0, 100).forEach(n -> histogram.labels("get").observeNanos(1_000));
+      collectorRegistry.metricFamilySamples();
+    }
+
+    assertThat(value(collectorRegistry, "0.99")).isCloseTo(0.000001, within(0.000001 / 32));
+    assertThat(collectorRegistry.getSampleValue(
+        "test_latency_seconds_count",
+        new String[] {"op"},
+        new String[] {"get"})).isEqualTo(500.0);
+  }
+
+  @Test
+  void should_register_metric_once_per_registry() {
+    final LatencyHistogram first = LatencyRecorder.logLinear()
+        .register(collectorRegistry, builder -> builder.name("test_latency_seconds").help("help"));
+    final LatencyHistogram second = LatencyRecorder.logLinear()
+        .register(collectorRegistry, builder -> builder.name("test_latency_seconds").help("help"));
+
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  void should_not_register_metric_by_another_recorder() {
+    final LatencyHistogram first = LatencyRecorder.histogram(Buckets.explicit(0.1, 1.0))
+        .register(collectorRegistry, builder -> builder.name("test_latency_seconds").help("help"));
+    final LatencyHistogram second = LatencyRecorder.histogram(Buckets.explicit(0.1, 1.0))
+        .register(collectorRegistry, builder -> builder.name("test_latency_seconds").help("help"));
+    assertThat(second).isSameAs(first);
+
+    assertThatThrownBy(() -> LatencyRecorder.logLinear()
+        .register(collectorRegistry, builder -> builder.name("test_latency_seconds").help("help")))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("test_latency_seconds");
+  }
+
+  @Test
+  void should_cache_wrapped_children() {
+    final LatencyHistogram histogram = LatencyRecorder.histogram(Buckets.explicit(0.1, 1.0))
+        .register(collectorRegistry, builder -> builder
+            .name("test_latency_seconds")
+            .help("help")
+            .labelNames("op"));
+
+    final LatencyHistogram.Child child = histogram.labels("get");
+    assertThat(histogram.labels("get")).isSameAs(child);
+    assertThat(histogram.labels("put")).isNotSameAs(child);
+    assertThatThrownBy(() -> histogram.labels("get", "put"))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    child.observeNanos(TimeUnit.MILLISECONDS.toNanos(50));
+    assertThat(collectorRegistry.getSampleValue(
+        "test_latency_seconds_count",
+        new String[] {"op"},
+        new String[] {"get"})).isEqualTo(1.0);
+  }
+
+  private static double value(CollectorRegistry collectorRegistry, String quantile) {
+    return collectorRegistry.getSampleValue(
+        "test_latency_seconds",
+        new String[] {"op", "quantile"},
+        new String[] {"get", quantile});
+  }
+
+  private static List<String> samples(CollectorRegistry collectorRegistry) {
+    return Collections.list(collectorRegistry.metricFamilySamples()).stream()
+        .flatMap(family ->
+            family.samples.stream().map(sample ->
+                sample.name + "{" + String.join(",", sample.labelValues) + "}=" + sample.value
+            )
+        )
+        .sorted()
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,86 @@
+package me.dmexe.telemetry.core.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class ExpositionWriterTest {
+
+  @Test
+  void should_write_same_output_as_text_format() throws Exception {
+    final CollectorRegistry registry = new CollectorRegistry();
+    final TestCollector collector = new TestCollector().register(registry);
+    final StringWriter expected = new StringWriter();
+    TextFormat.write004(expected, registry.metricFamilySamples());
+
+    final ExpositionWriter writer = new ExpositionWriter(16);
+    writer.write(collector);
+
+    assertThat(writer.toString()).isEqualTo(expected.toString());
+    assertThat(StandardCharsets.UTF_8.decode(writer.toByteBuffer()).toString())
+        .isEqualTo(expected.toString());
+
+    writer.reset();
+    writer.write(registry.metricFamilySamples());
+
+    assertThat(writer.toString()).isEqualTo(expected.toString());
+  }
+
+  @Test
+  void should_merge_families_of_registered_collector() {
+    final CollectorRegistry registry = new CollectorRegistry();
+    final String[] labelNames = new String[] {"name"};
+    new StreamingCollector() {
+      @Override
+      public void collect(SampleWriter writer) {
+        writer.family("test_size", "A size.", Type.GAUGE, labelNames);
+        writer.sample("a", 1.0);
+        writer.family("test_size", "A size.", Type.GAUGE, labelNames);
+        writer.sample("b", -2.5);
+      }
+    }.register(registry);
+
+    assertThat(registry.metricFamilySamples().nextElement().samples).hasSize(2);
+    assertThat(registry.getSampleValue("test_size", labelNames, new String[] {"a"}))
+        .isEqualTo(1.0);
+    assertThat(registry.getSampleValue("test_size", labelNames, new String[] {"b"}))
+        .isEqualTo(-2.5);
+  }
+
+  @Test
+  void should_reject_samples_without_family() {
+    final ExpositionWriter writer = new ExpositionWriter();
+
+    assertThatThrownBy(() -> writer.sample(1.0))
+        .isInstanceOf(IllegalStateException.class);
+
+    writer.family("test", "help", Collector.Type.GAUGE, new String[] {"name"});
+
+    assertThatThrownBy(() -> writer.sample("a", "b", 1.0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static class TestCollector extends StreamingCollector {
+    @Override
+    public void collect(SampleWriter writer) {
+      writer.family("test_size", "A size\nwith \\ escapes.", Type.GAUGE, new String[] {"name"});
+      writer.sample("a", 1.0);
+      writer.family("test_total", "A total.", Type.COUNTER, new String[0]);
+      writer.sample(0.0);
+      writer.sample(-0.0);
+      writer.sample(Double.NaN);
+      writer.sample(Double.POSITIVE_INFINITY);
+      writer.sample(12345678.0);
+      writer.sample(-42.0);
+      writer.family("test_rate", "A rate.", Type.UNTYPED, new String[] {"name", "kind"});
+      writer.sample("a\"\\\nb", "\u0436\ud83d\ude00", 1e9);
+      writer.sample(new String[] {"c", "d"}, 0.125);
+    }
+  }
+}
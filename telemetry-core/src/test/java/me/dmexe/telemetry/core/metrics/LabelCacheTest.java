@@ -0,0 +1,60 @@
+package me.dmexe.telemetry.core.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import org.junit.jupiter.api.Test;
+
+class LabelCacheTest {
+
+  @Test
+  void should_cache_label_children() {
+    final CollectorRegistry registry = new CollectorRegistry();
+    final Counter counter = Counter.build()
+        .name("test_total")
+        .labelNames("a", "b", "c")
+        .help("help")
+        .register(registry);
+    final LabelCache<Counter.Child> cache = LabelCache.of(3, counter::labels);
+
+    final Counter.Child child = cache.get("1", "2", "3");
+    child.inc();
+    cache.get("1", "2", "3").inc();
+    cache.get("1", "2", "4").inc();
+
+    assertThat(cache.get("1", "2", "3")).isSameAs(child);
+    assertThat(cache.get(new String[] {"1", "2", "3"})).isSameAs(child);
+    assertThat(registry.getSampleValue("test_total", new String[] {"a", "b", "c"},
+        new String[] {"1", "2", "3"})).isEqualTo(2.0);
+    assertThat(registry.getSampleValue("test_total", new String[] {"a", "b", "c"},
+        new String[] {"1", "2", "4"})).isEqualTo(1.0);
+  }
+
+  @Test
+  void should_not_cache_children_above_limit() {
+    final LabelCache<String[]> cache = LabelCache.of(2, it -> it, 2);
+
+    final String[] first = cache.get("a", "b");
+    final String[] second = cache.get("a", "c");
+
+    assertThat(cache.get("a", "b")).isSameAs(first);
+    assertThat(cache.get("a", "c")).isSameAs(second);
+    assertThat(cache.get("a", "d")).containsExactly("a", "d")
+        .isNotSameAs(cache.get("a", "d"));
+    assertThat(cache.get("x", "y")).containsExactly("x", "y")
+        .isNotSameAs(cache.get("x", "y"));
+  }
+
+  @Test
+  void should_reject_wrong_number_of_labels() {
+    final LabelCache<String[]> cache = LabelCache.of(2, it -> it);
+
+    assertThat(cache.get("a", "b")).containsExactly("a", "b");
+    assertThatThrownBy(() -> cache.get("a"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> cache.get("a", "b", "c"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
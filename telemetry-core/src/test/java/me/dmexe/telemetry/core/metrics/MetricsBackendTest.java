@@ -0,0 +1,193 @@
+package me.dmexe.telemetry.core.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import java.util.concurrent.TimeUnit;
+import me.dmexe.telemetry.core.latency.Buckets;
+import me.dmexe.telemetry.core.latency.LatencyRecorder;
+import org.junit.jupiter.api.Test;
+
+class MetricsBackendTest {
+  private static final MetricDescriptor total =
+      MetricDescriptor.of("test_handled_total", "help", "code");
+  private static final MetricDescriptor latency =
+      MetricDescriptor.of("test_latency_seconds", "help", "code");
+  private static final MetricDescriptor size =
+      MetricDescriptor.of("test_size_bytes", "help", "code");
+  private static final MetricDescriptor active =
+      MetricDescriptor.of("test_active_count", "help", "code");
+
+  @Test
+  void should_record_by_prometheus_backend() {
+    final CollectorRegistry registry = new CollectorRegistry();
+    final LatencyRecorder recorder = LatencyRecorder.histogram(Buckets.explicit(0.1, 1.0));
+
+    record(MetricsBackend.prometheus(registry, recorder));
+    record(MetricsBackend.prometheus(registry, recorder));
+
+    assertSamples(registry, 2.0);
+  }
+
+  @Test
+  void should_record_by_preallocated_backend() {
+    final CollectorRegistry registry = new CollectorRegistry();
+    final MetricsBackend backend = MetricsBackend.preallocated()
+        .buckets(Buckets.explicit(0.1, 1.0))
+        .collectorRegistry(registry)
+        .build();
+
+    record(backend);
+    record(backend);
+
+    assertSamples(registry, 2.0);
+  }
+
+  @Test
+  void should_record_by_off_heap_backend() {
+    final CollectorRegistry registry = new CollectorRegistry();
+    final MetricsBackend backend = MetricsBackend.preallocated()
+        .buckets(Buckets.explicit(0.1, 1.0))
+        .collectorRegistry(registry)
+        .offHeap()
+        .build();
+
+    record(backend);
+    record(backend);
+
+    assertSamples(registry, 2.0);
+  }
+
+  @Test
+  void should_record_overflowed_series_by_preallocated_backend() {
+    final CollectorRegistry registry = new CollectorRegistry();
+    final MetricsBackend backend = MetricsBackend.preallocated()
+        .maxSeries(3)
+        .collectorRegistry(registry)
+        .build();
+    final Counter counter = backend.counter(total);
+
+    counter.labels("200").inc();
+    counter.labels("404").inc();
+    counter.labels("500").inc();
+    counter.labels("503").inc(2);
+    counter.labels("200").inc();
+
+    assertThat(value(registry, "test_handled_total", "200")).isEqualTo(2.0);
+    assertThat(value(registry, "test_handled_total", "404")).isEqualTo(1.0);
+    assertThat(value(registry, "test_handled_total", "500")).isNull();
+    assertThat(value(registry, "test_handled_total", "__overflow__")).isEqualTo(3.0);
+  }
+
+  @Test
+  void should_limit_label_values() {
+    final CollectorRegistry registry = new CollectorRegistry();
+    final MetricsBackend backend = MetricsBackend.limited(MetricsBackend.prometheus(registry), 2);
+    final MetricDescriptor requests =
+        MetricDescriptor.of("test_requests_total", "help", "code", "method");
+
+    backend.counter(requests).labels("200", "GET").inc();
+    backend.counter(requests).labels("200", "POST").inc();
+    backend.counter(requests).labels("404", "FOO").inc();
+    backend.counter(requests).labels("500", "BAR").inc(2);
+    backend.counter(requests).labels("200", "GET").inc();
+
+    final String[] labelNames = new String[] {"code", "method"};
+    assertThat(registry.getSampleValue("test_requests_total", labelNames,
+        new String[] {"200", "GET"})).isEqualTo(2.0);
+    assertThat(registry.getSampleValue("test_requests_total", labelNames,
+        new String[] {"404", "__overflow__"})).isEqualTo(1.0);
+    assertThat(registry.getSampleValue("test_requests_total", labelNames,
+        new String[] {"__overflow__", "__overflow__"})).isEqualTo(2.0);
+    assertThat(registry.getSampleValue("metrics_cardinality_rejected_total",
+        new String[] {"metric", "label"}, new String[] {"test_requests_total", "code"}))
+        .isEqualTo(1.0);
+    assertThat(registry.getSampleValue("metrics_cardinality_rejected_total",
+        new String[] {"metric", "label"}, new String[] {"test_requests_total", "method"}))
+        .isEqualTo(2.0);
+  }
+
+  @Test
+  void should_share_label_values_between_limited_backends() {
+    final CollectorRegistry registry = new CollectorRegistry();
+    final MetricDescriptor requests = MetricDescriptor.of("test_requests_total", "help", "code");
+
+    MetricsBackend.limited(MetricsBackend.prometheus(registry), 2)
+        .counter(requests).labels("200").inc();
+    MetricsBackend.limited(MetricsBackend.prometheus(registry), 2)
+        .counter(requests).labels("404").inc();
+    MetricsBackend.limited(MetricsBackend.prometheus(registry), 2)
+        .counter(requests).labels("500").inc();
+    MetricsBackend.limited(MetricsBackend.prometheus(new CollectorRegistry()), 2)
+        .counter(requests).labels("500").inc();
+
+    assertThat(value(registry, "test_requests_total", "500")).isNull();
+    assertThat(value(registry, "test_requests_total", "__overflow__")).isEqualTo(1.0);
+    assertThatThrownBy(() -> MetricsBackend.limited(MetricsBackend.prometheus(registry), 3)
+        .counter(requests))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void should_reject_metric_of_other_type() {
+    final MetricsBackend backend = MetricsBackend.preallocated()
+        .collectorRegistry(new CollectorRegistry())
+        .build();
+    backend.counter(total);
+
+    assertThat(backend.counter(total)).isSameAs(backend.counter(total));
+    assertThatThrownBy(() -> backend.gauge(total))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> MetricsBackend.prometheus(new CollectorRegistry()).counter(total)
+        .labels("200", "GET"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void should_record_by_micrometer_backend() {
+    final MeterRegistry registry = new SimpleMeterRegistry();
+
+    record(MetricsBackend.micrometer(registry));
+    record(MetricsBackend.micrometer(registry));
+
+    assertThat(registry.get("test.handled").tag("code", "200").counter().count())
+        .isEqualTo(2.0);
+    assertThat(registry.get("test.latency").tag("code", "200").timer().count())
+        .isEqualTo(2L);
+    assertThat(registry.get("test.latency").tag("code", "200").timer()
+        .totalTime(TimeUnit.MILLISECONDS)).isEqualTo(1000.0);
+    assertThat(registry.get("test.size.bytes").tag("code", "200").summary().totalAmount())
+        .isEqualTo(20.0);
+    assertThat(registry.get("test.active.count").tag("code", "200").gauge().value())
+        .isEqualTo(2.0);
+  }
+
+  private static void record(MetricsBackend backend) {
+    backend.counter(total).labels("200").inc();
+    backend.timer(latency).labels("200").observeNanos(TimeUnit.MILLISECONDS.toNanos(500));
+    backend.distribution(size).labels("200").observe(10.0);
+    backend.gauge(active).labels("200").inc();
+  }
+
+  private static void assertSamples(CollectorRegistry registry, double count) {
+    assertThat(value(registry, "test_handled_total", "200")).isEqualTo(count);
+    assertThat(value(registry, "test_latency_seconds_count", "200")).isEqualTo(count);
+    assertThat(value(registry, "test_latency_seconds_sum", "200")).isEqualTo(count * 0.5);
+    assertThat(registry.getSampleValue("test_latency_seconds_bucket",
+        new String[] {"code", "le"}, new String[] {"200", "0.1"})).isEqualTo(0.0);
+    assertThat(registry.getSampleValue("test_latency_seconds_bucket",
+        new String[] {"code", "le"}, new String[] {"200", "1.0"})).isEqualTo(count);
+    assertThat(registry.getSampleValue("test_latency_seconds_bucket",
+        new String[] {"code", "le"}, new String[] {"200", "+Inf"})).isEqualTo(count);
+    assertThat(value(registry, "test_size_bytes_count", "200")).isEqualTo(count);
+    assertThat(value(registry, "test_size_bytes_sum", "200")).isEqualTo(count * 10.0);
+    assertThat(value(registry, "test_active_count", "200")).isEqualTo(count);
+  }
+
+  private static Double value(CollectorRegistry registry, String name, String code) {
+    return registry.getSampleValue(name, new String[] {"code"}, new String[] {code});
+  }
+}
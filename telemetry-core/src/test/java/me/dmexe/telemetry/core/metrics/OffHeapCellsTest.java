@@ -0,0 +1,48 @@
+package me.dmexe.telemetry.core.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCellsTest {
+
+  @Test
+  void should_update_cells() {
+    final Cells cells = new OffHeapCells(3);
+
+    cells.add(0, 5L);
+    cells.add(0, 2L);
+    cells.set(1, 42L);
+    cells.addDouble(2, 0.5);
+    cells.addDouble(2, 0.25);
+
+    assertThat(cells.get(0)).isEqualTo(7L);
+    assertThat(cells.get(1)).isEqualTo(42L);
+    assertThat(cells.getDouble(2)).isEqualTo(0.75);
+    assertThat(cells.compareAndSet(1, 42L, 43L)).isTrue();
+    assertThat(cells.compareAndSet(1, 42L, 44L)).isFalse();
+    assertThatThrownBy(() -> cells.get(3)).isInstanceOf(IndexOutOfBoundsException.class);
+  }
+
+  @Test
+  void should_add_concurrently() throws Exception {
+    final Cells cells = new OffHeapCells(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    for (int i = 0; i < 4; i++) {
+      executor.submit(() -> {
+        for (int j = 0; j < 100_000; j++) {
+          cells.add(0, 1L);
+        }
+      });
+    }
+    executor.shutdown();
+
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(cells.get(0)).isEqualTo(400_000L);
+  }
+}
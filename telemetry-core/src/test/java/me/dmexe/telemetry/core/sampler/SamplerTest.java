@@ -0,0 +1,48 @@
+package me.dmexe.telemetry.core.sampler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class SamplerTest {
+
+  @Test
+  void should_sample_constant() {
+    assertThat(Sampler.always().isSampled("op")).isTrue();
+    assertThat(Sampler.never().isSampled("op")).isFalse();
+    assertThat(Sampler.probabilistic(1.0).isSampled("op")).isTrue();
+    assertThat(Sampler.probabilistic(0.0).isSampled("op")).isFalse();
+  }
+
+  @Test
+  void should_limit_sampled_operations_per_second() {
+    final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(10));
+    final Sampler sampler = new RateLimitingSampler(2.0, clock::get);
+
+    final long burst = IntStream.range(0, 10).filter(it -> sampler.isSampled("op")).count();
+    assertThat(burst).isEqualTo(2);
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(499));
+    assertThat(sampler.isSampled("op")).isFalse();
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+    assertThat(sampler.isSampled("op")).isTrue();
+    assertThat(sampler.isSampled("op")).isFalse();
+  }
+
+  @Test
+  void should_sample_by_longest_prefix() {
+    final Sampler sampler = Sampler.byPrefix(Sampler.always())
+        .prefix("/api", Sampler.never())
+        .prefix("/api/orders", Sampler.always())
+        .build();
+
+    assertThat(sampler.isSampled("/health")).isTrue();
+    assertThat(sampler.isSampled("/api/users")).isFalse();
+    assertThat(sampler.isSampled("/api/orders/1")).isTrue();
+    assertThat(sampler.isSampled(null)).isTrue();
+  }
+}
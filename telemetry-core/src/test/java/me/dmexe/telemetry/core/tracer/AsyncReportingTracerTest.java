@@ -0,0 +1,171 @@
+package me.dmexe.telemetry.core.tracer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentracing.ActiveSpan;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.util.ThreadLocalActiveSpanSource;
+import io.prometheus.client.CollectorRegistry;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AsyncReportingTracerTest {
+
+  @Test
+  void should_finish_spans_on_reporting_thread() throws Exception {
+    final RecordingTracer delegate = new RecordingTracer(2);
+    final CollectorRegistry registry = new CollectorRegistry();
+
+    try (AsyncReportingTracer tracer = AsyncReportingTracer.builder(delegate)
+        .threadName("test-reporter")
+        .collectorRegistry(registry)
+        .build()) {
+      try (ActiveSpan parent = tracer.buildSpan("parent").startActive()) {
+        tracer.buildSpan("child").startManual().setTag("key", "value").finish();
+      }
+
+      assertThat(delegate.finished.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    assertThat(delegate.finishedSpans())
+        .extracting(MockSpan::operationName)
+        .containsExactly("child", "parent");
+    assertThat(delegate.finishedSpans().get(0).parentId())
+        .isEqualTo(delegate.finishedSpans().get(1).context().spanId());
+    assertThat(delegate.finishedSpans().get(0).finishMicros())
+        .isGreaterThanOrEqualTo(delegate.finishedSpans().get(0).startMicros());
+    assertThat(delegate.threads).containsOnly("test-reporter");
+    assertThat(registry.getSampleValue("tracing_reporter_reported_spans_total")).isEqualTo(2.0);
+    assertThat(registry.getSampleValue("tracing_reporter_backlog_spans")).isEqualTo(0.0);
+  }
+
+  @Test
+  void should_drop_spans_when_buffer_is_full() throws Exception {
+    final RecordingTracer delegate = new RecordingTracer(0);
+    final AsyncReportingTracer tracer = AsyncReportingTracer.builder(delegate)
+        .capacity(2)
+        .idleWait(Duration.ofHours(1))
+        .threadName("drop-reporter")
+        .build();
+    awaitParked("drop-reporter");
+
+    for (int i = 0; i < 4; i++) {
+      tracer.buildSpan("span" + i).startManual().finish();
+    }
+
+    assertThat(tracer.backlog()).isEqualTo(2);
+    assertThat(tracer.droppedSpans()).isEqualTo(2);
+    assertThat(delegate.finishedSpans()).isEmpty();
+
+    tracer.close();
+
+    assertThat(tracer.backlog()).isEqualTo(0);
+    assertThat(tracer.reportedSpans()).isEqualTo(2);
+    assertThat(delegate.finishedSpans())
+        .extracting(MockSpan::operationName)
+        .containsExactly("span0", "span1");
+  }
+
+  @Test
+  void should_finish_on_caller_when_buffer_is_full() throws Exception {
+    final RecordingTracer delegate = new RecordingTracer(0);
+    final AsyncReportingTracer tracer = AsyncReportingTracer.builder(delegate)
+        .capacity(2)
+        .overflowPolicy(OverflowPolicy.FINISH_ON_CALLER)
+        .idleWait(Duration.ofHours(1))
+        .threadName("caller-reporter")
+        .build();
+    awaitParked("caller-reporter");
+
+    for (int i = 0; i < 3; i++) {
+      tracer.buildSpan("span" + i).startManual().finish();
+    }
+
+    assertThat(tracer.droppedSpans()).isEqualTo(0);
+    assertThat(delegate.finishedSpans())
+        .extracting(MockSpan::operationName)
+        .containsExactly("span2");
+    assertThat(delegate.threads).containsOnly(Thread.currentThread().getName());
+
+    tracer.close();
+    tracer.buildSpan("late").startManual().finish();
+
+    assertThat(delegate.finishedSpans())
+        .extracting(MockSpan::operationName)
+        .containsExactly("span2", "span0", "span1", "late");
+  }
+
+  @Test
+  void should_report_spans_finished_concurrently_with_close() throws Exception {
+    final int threads = 4;
+    final int spans = 200;
+
+    for (int attempt = 0; attempt < 50; attempt++) {
+      final RecordingTracer delegate = new RecordingTracer(0);
+      final AsyncReportingTracer tracer = AsyncReportingTracer.builder(delegate)
+          .capacity(threads * spans)
+          .threadName("close-reporter")
+          .build();
+      final CountDownLatch start = new CountDownLatch(1);
+
+      final Thread[] finishers = new Thread[threads];
+      for (int i = 0; i < threads; i++) {
+        finishers[i] = new Thread(() -> {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          for (int n = 0; n < spans; n++) {
+            tracer.buildSpan("span").startManual().finish();
+          }
+        });
+        finishers[i].start();
+      }
+
+      start.countDown();
+      tracer.close();
+      for (Thread finisher : finishers) {
+        finisher.join();
+      }
+
+      assertThat(tracer.backlog()).isEqualTo(0);
+      assertThat(tracer.droppedSpans()).isEqualTo(0);
+      assertThat(delegate.finishedSpans()).hasSize(threads * spans);
+    }
+  }
+
+  private static void awaitParked(String name) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      for (Thread thread : Thread.getAllStackTraces().keySet()) {
+        if (thread.getName().equals(name) && thread.getState() == Thread.State.TIMED_WAITING) {
+          return;
+        }
+      }
+      Thread.sleep(1);
+    }
+    throw new AssertionError(name + " is not parked");
+  }
+
+  private static class RecordingTracer extends MockTracer {
+    final Set<String> threads = ConcurrentHashMap.newKeySet();
+    final CountDownLatch finished;
+
+    RecordingTracer(int expected) {
+      super(new ThreadLocalActiveSpanSource());
+      this.finished = new CountDownLatch(expected);
+    }
+
+    @Override
+    protected void onSpanFinished(MockSpan span) {
+      threads.add(Thread.currentThread().getName());
+      finished.countDown();
+    }
+  }
+}
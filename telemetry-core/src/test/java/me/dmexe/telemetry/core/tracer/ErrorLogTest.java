@@ -0,0 +1,33 @@
+package me.dmexe.telemetry.core.tracer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ErrorLogTest {
+
+  @Test
+  void should_log_exception_fields() {
+    final Map<String, Object> log = ErrorLog.of(new IllegalStateException("boom"));
+    final Map<String, Object> expected = new HashMap<>();
+    expected.put("error.kind", IllegalStateException.class.getName());
+    expected.put("message", "boom");
+
+    assertThat(log).containsOnly(
+        entry("error.kind", IllegalStateException.class.getName()),
+        entry("message", "boom"));
+    assertThat(log).isEqualTo(expected);
+    assertThat(log.hashCode()).isEqualTo(expected.hashCode());
+  }
+
+  @Test
+  void should_keep_missing_message() {
+    final Map<String, Object> log = ErrorLog.of(new IllegalStateException());
+
+    assertThat(log).hasSize(2).containsKey("message");
+    assertThat(log.get("message")).isNull();
+  }
+}
@@ -1,26 +1,29 @@
 package me.dmexe.telemetry.jooq;
 
 import io.opentracing.Tracer;
-import io.opentracing.util.GlobalTracer;
 import io.prometheus.client.CollectorRegistry;
-import io.prometheus.client.Counter;
-import io.prometheus.client.Histogram;
 import java.util.Objects;
+import me.dmexe.telemetry.core.Clock;
+import me.dmexe.telemetry.core.latency.Buckets;
+import me.dmexe.telemetry.core.latency.LatencyRecorder;
+import me.dmexe.telemetry.core.metrics.MetricDescriptor;
+import me.dmexe.telemetry.core.metrics.MetricsBackend;
+import me.dmexe.telemetry.core.sampler.Sampler;
+import me.dmexe.telemetry.core.tracer.Tracers;
 import org.jetbrains.annotations.Nullable;
 import org.jooq.impl.CallbackExecuteListener;
 
 class DefaultJooqTracingFactory implements JooqTracingFactory {
 
-  private static final Counter.Builder totalBuilder = Counter.build()
-      .namespace("jooq")
-      .name("started_total")
-      .labelNames("sql_op").help("A total number of database queries were been started.");
+  private static final MetricDescriptor totalMetric = MetricDescriptor.of(
+      "jooq_started_total",
+      "A total number of database queries were been started.",
+      "sql_op");
 
-  private static final Histogram.Builder latencyBuilder = Histogram.build()
-      .namespace("jooq")
-      .name("latency_seconds")
-      .labelNames("sql_op")
-      .help("A seconds which spend to execute database queries.");
+  private static final MetricDescriptor latencyMetric = MetricDescriptor.of(
+      "jooq_latency_seconds",
+      "A seconds which spend to execute database queries.",
+      "sql_op");
 
   @Nullable
   private Tracer tracer;
@@ -28,13 +31,19 @@ class DefaultJooqTracingFactory implements JooqTracingFactory {
   @Nullable
   private CollectorRegistry collectorRegistry;
 
-  private static class Lazy {
-    private static final Counter total = totalBuilder.register();
+  @Nullable
+  private LatencyRecorder latencyRecorder;
 
-    private static final Histogram latency = latencyBuilder.register();
-  }
+  @Nullable
+  private MetricsBackend metricsBackend;
+
+  private Sampler sampler;
+
+  private Clock clock;
 
   DefaultJooqTracingFactory() {
+    this.sampler = Sampler.always();
+    this.clock = Clock.system();
   }
 
   JooqTracingFactory collectorRegistry(CollectorRegistry collectorRegistry) {
@@ -43,6 +52,12 @@ class DefaultJooqTracingFactory implements JooqTracingFactory {
     return this;
   }
 
+  JooqTracingFactory clock(Clock clock) {
+    Objects.requireNonNull(clock, "clock cannot be null");
+    this.clock = clock;
+    return this;
+  }
+
   @Override
   public JooqTracingFactory tracer(Tracer tracer) {
     Objects.requireNonNull(tracer, "tracer cannot be null");
@@ -50,30 +65,60 @@ class DefaultJooqTracingFactory implements JooqTracingFactory {
     return this;
   }
 
+  @Override
+  public JooqTracingFactory sampler(Sampler sampler) {
+    Objects.requireNonNull(sampler, "sampler cannot be null");
+    this.sampler = sampler;
+    return this;
+  }
+
+  @Override
+  public JooqTracingFactory latencyRecorder(LatencyRecorder latencyRecorder) {
+    Objects.requireNonNull(latencyRecorder, "latencyRecorder cannot be null");
+    this.latencyRecorder = latencyRecorder;
+    return this;
+  }
+
+  @Override
+  public JooqTracingFactory latencyBuckets(Buckets buckets) {
+    return latencyRecorder(LatencyRecorder.histogram(buckets));
+  }
+
+  @Override
+  public JooqTracingFactory metricsBackend(MetricsBackend metricsBackend) {
+    Objects.requireNonNull(metricsBackend, "metricsBackend cannot be null");
+    this.metricsBackend = metricsBackend;
+    return this;
+  }
+
   @Override
   public CallbackExecuteListener createListener() {
-    Tracer tracer;
-    if (this.tracer == null) {
-      tracer = GlobalTracer.get();
-    } else {
-      tracer = this.tracer;
-    }
+    final Tracer tracer = Tracers.resolve(this.tracer);
+    final MetricsBackend metricsBackend = resolveMetricsBackend();
 
-    JooqTracingExecuteListener listener;
-    if (this.collectorRegistry == null) {
-      listener = new JooqTracingExecuteListener(
-          tracer,
-          Lazy.total,
-          Lazy.latency);
-    } else {
-      listener = new JooqTracingExecuteListener(
-          tracer,
-          totalBuilder.register(collectorRegistry),
-          latencyBuilder.register(collectorRegistry));
-    }
+    final JooqTracingExecuteListener listener = new JooqTracingExecuteListener(
+        tracer,
+        sampler,
+        clock,
+        metricsBackend.counter(totalMetric),
+        metricsBackend.timer(latencyMetric));
 
     return new CallbackExecuteListener()
         .onStart(listener::onStart)
         .onEnd(listener::onEnd);
   }
+
+  private MetricsBackend resolveMetricsBackend() {
+    if (metricsBackend != null) {
+      return metricsBackend;
+    }
+
+    final CollectorRegistry registry = collectorRegistry == null
+        ? CollectorRegistry.defaultRegistry
+        : collectorRegistry;
+    final LatencyRecorder latencyRecorder = this.latencyRecorder == null
+        ? LatencyRecorder.defaultRecorder()
+        : this.latencyRecorder;
+    return MetricsBackend.limited(MetricsBackend.prometheus(registry, latencyRecorder));
+  }
 }
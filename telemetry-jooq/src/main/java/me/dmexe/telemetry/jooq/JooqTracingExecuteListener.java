@@ -4,31 +4,44 @@ import io.opentracing.ActiveSpan;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
 import io.opentracing.tag.Tags;
-import io.prometheus.client.Counter;
-import io.prometheus.client.Histogram;
-import io.prometheus.client.SimpleTimer;
 import java.util.Objects;
+import me.dmexe.telemetry.core.Clock;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+import me.dmexe.telemetry.core.metrics.Counter;
+import me.dmexe.telemetry.core.metrics.LabelCache;
+import me.dmexe.telemetry.core.sampler.Sampler;
 import org.jetbrains.annotations.Nullable;
 import org.jooq.ExecuteContext;
 
 class JooqTracingExecuteListener {
   private static final String DATA_KEY = JooqTracingExecuteListener.class.getName();
-  private final Counter total;
-  private final Histogram latency;
+  private final LabelCache<Counter.Child> total;
+  private final LabelCache<LatencyHistogram.Child> latency;
   private final Tracer tracer;
+  private final Sampler sampler;
+  private final Clock clock;
 
-  JooqTracingExecuteListener(Tracer tracer, Counter total, Histogram latency) {
+  JooqTracingExecuteListener(
+      Tracer tracer,
+      Sampler sampler,
+      Clock clock,
+      Counter total,
+      LatencyHistogram latency) {
     Objects.requireNonNull(total, "total cannot be null");
     Objects.requireNonNull(latency, "latency cannot be null");
     Objects.requireNonNull(tracer, "tracer cannot be null");
-    this.total = total;
-    this.latency = latency;
+    Objects.requireNonNull(sampler, "sampler cannot be null");
+    Objects.requireNonNull(clock, "clock cannot be null");
+    this.total = LabelCache.of(1, total::labels);
+    this.latency = LabelCache.of(1, latency::labels);
     this.tracer = tracer;
+    this.sampler = sampler;
+    this.clock = clock;
   }
 
   void onStart(ExecuteContext ctx) {
     final Span span = buildSpan(ctx);
-    final long startTime = System.nanoTime();
+    final long startTime = clock.nanoTime();
     final ContextData contextData = new ContextData(span, startTime);
     ctx.data(DATA_KEY, contextData);
   }
@@ -41,11 +54,10 @@ class JooqTracingExecuteListener {
 
     final ContextData contextData = (ContextData) data;
 
-    long endTime = System.nanoTime();
+    long endTime = clock.nanoTime();
     String opName = ctx.type().name();
-    total.labels(opName).inc();
-    final double elapsed = SimpleTimer.elapsedSecondsFromNanos(contextData.startTime, endTime);
-    latency.labels(opName).observe(elapsed);
+    total.get(opName).inc();
+    latency.get(opName).observeNanos(endTime - contextData.startTime);
 
     if (contextData.span != null) {
       if (ctx.sql() != null) {
@@ -62,8 +74,13 @@ class JooqTracingExecuteListener {
       return null;
     }
 
+    final String opName = ctx.type().name();
+    if (!sampler.isSampled(opName)) {
+      return null;
+    }
+
     return tracer
-        .buildSpan("sql." + ctx.type().name())
+        .buildSpan("sql." + opName)
         .withTag(Tags.DB_TYPE.getKey(), ctx.dialect().getName())
         .withTag(Tags.COMPONENT.getKey(), "jooq")
         .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT)
@@ -1,11 +1,51 @@
 package me.dmexe.telemetry.jooq;
 
 import io.opentracing.Tracer;
+import me.dmexe.telemetry.core.latency.Buckets;
+import me.dmexe.telemetry.core.latency.LatencyRecorder;
+import me.dmexe.telemetry.core.metrics.MetricsBackend;
+import me.dmexe.telemetry.core.sampler.Sampler;
 import org.jooq.impl.CallbackExecuteListener;
 
 public interface JooqTracingFactory {
   JooqTracingFactory tracer(Tracer tracer);
 
+  /**
+   * Assign a head {@link Sampler}, it decides by a query type whether a span is created.
+   *
+   * @param sampler the sampler.
+   * @return the factory.
+   */
+  JooqTracingFactory sampler(Sampler sampler);
+
+  /**
+   * Assign a {@link LatencyRecorder} for query latency, by default it's
+   * {@link LatencyRecorder#defaultRecorder()}.
+   *
+   * @param latencyRecorder the recorder.
+   * @return the factory.
+   */
+  JooqTracingFactory latencyRecorder(LatencyRecorder latencyRecorder);
+
+  /**
+   * Record query latency by a simpleclient histogram with the given buckets.
+   *
+   * @param buckets the buckets.
+   * @return the factory.
+   */
+  JooqTracingFactory latencyBuckets(Buckets buckets);
+
+  /**
+   * Assign a {@link MetricsBackend}, by default metrics are simpleclient collectors in the default
+   * registry with a limited number of label values. The latency recorder and buckets apply only
+   * to the default backend, an assigned backend can be limited by
+   * {@link MetricsBackend#limited(MetricsBackend)}.
+   *
+   * @param metricsBackend the backend.
+   * @return the factory.
+   */
+  JooqTracingFactory metricsBackend(MetricsBackend metricsBackend);
+
   CallbackExecuteListener createListener();
 
   static JooqTracingFactory newFactory() {
@@ -12,6 +12,7 @@ import java.sql.DriverManager;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.Objects;
+import me.dmexe.telemetry.core.sampler.Sampler;
 import me.dmexe.telemetry.jooq.tables.records.PagesRecord;
 import org.jooq.Configuration;
 import org.jooq.DSLContext;
@@ -83,4 +84,19 @@ abstract class TestEnv {
     Objects.requireNonNull(db, "db cannot be null");
     return db;
   }
+
+  DSLContext db(Sampler sampler) {
+    Objects.requireNonNull(connection, "connection cannot be null");
+    final Configuration sampled = new DefaultConfiguration();
+    sampled
+        .set(SQLDialect.MYSQL)
+        .set(connection)
+        .set(new DefaultJooqTracingFactory()
+            .collectorRegistry(collectorRegistry)
+            .tracer(tracer)
+            .sampler(sampler)
+            .createListener())
+        .settings().withRenderSchema(false);
+    return new DefaultDSLContext(sampled);
+  }
 }
@@ -7,6 +7,7 @@ import io.opentracing.ActiveSpan;
 import java.sql.Timestamp;
 import me.dmexe.telemetry.jooq.tables.records.PagesRecord;
 import org.jooq.Cursor;
+import org.jooq.DSLContext;
 import org.junit.jupiter.api.Test;
 
 class TracingTest extends TestEnv {
@@ -140,6 +141,22 @@ class TracingTest extends TestEnv {
         .containsEntry("span.kind", "client");
   }
 
+  @Test
+  void should_not_record_unsampled_statements() {
+    final DSLContext db = db(operation -> !operation.equals("READ"));
+
+    newSpan(() -> {
+      db.insertInto(PAGES).set(record(1)).execute();
+      db.selectFrom(PAGES).where(PAGES.ID.eq(1)).execute();
+    });
+
+    assertThat(tracer().finishedSpans()).hasSize(2);
+    assertThat(tracer().finishedSpans().get(0).operationName())
+        .isEqualTo("sql.WRITE");
+    assertThat(tracer().finishedSpans().get(1).operationName())
+        .isEqualTo("root");
+  }
+
   private void newSpan(Runnable runnable) {
     tracer().reset();
     try (ActiveSpan ignored = tracer().buildSpan("root").startActive()) {
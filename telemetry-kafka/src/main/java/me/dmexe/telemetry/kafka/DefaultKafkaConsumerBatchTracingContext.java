@@ -0,0 +1,232 @@
+package me.dmexe.telemetry.kafka;
+
+import static me.dmexe.telemetry.kafka.KafkaConstants.COMPONENT_NAME;
+import static me.dmexe.telemetry.kafka.KafkaConstants.FIRST_OFFSET;
+import static me.dmexe.telemetry.kafka.KafkaConstants.LAST_OFFSET;
+import static me.dmexe.telemetry.kafka.KafkaConstants.MDC_KEY;
+import static me.dmexe.telemetry.kafka.KafkaConstants.MDC_OFFSET;
+import static me.dmexe.telemetry.kafka.KafkaConstants.MDC_PARTITION;
+import static me.dmexe.telemetry.kafka.KafkaConstants.MDC_TOPIC;
+import static me.dmexe.telemetry.kafka.KafkaConstants.PARTITION_COUNT;
+import static me.dmexe.telemetry.kafka.KafkaConstants.RECORD_COUNT;
+import static me.dmexe.telemetry.kafka.KafkaConstants.RECORD_PARTITION;
+import static me.dmexe.telemetry.kafka.KafkaConstants.TOPIC_KEY;
+
+import io.opentracing.ActiveSpan;
+import io.opentracing.NoopSpan;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.tag.Tags;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import me.dmexe.telemetry.core.sampler.Sampler;
+import me.dmexe.telemetry.core.tracer.ErrorLog;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.MDC;
+
+class DefaultKafkaConsumerBatchTracingContext<K,V>
+    implements KafkaConsumerBatchTracingContext<K,V> {
+  private static final OperationNames operationNames =
+      new OperationNames("kafka.consume_partition ");
+
+  private final Tracer tracer;
+  private final ConsumerRecords<K,V> records;
+  private final boolean sampled;
+  private final Sampler recordSampler;
+  private final MdcStrategy mdcStrategy;
+  private final KeyFormat keyFormat;
+
+  @Nullable
+  private final KafkaConsumerLagTracker lagTracker;
+
+  private final Span span;
+  private final Map<String,String> mdc;
+  private final Map<String,String> mdcView;
+
+  DefaultKafkaConsumerBatchTracingContext(Tracer tracer, ConsumerRecords<K,V> records,
+                                          boolean sampled, Sampler recordSampler,
+                                          MdcStrategy mdcStrategy, KeyFormat keyFormat,
+                                          @Nullable KafkaConsumerLagTracker lagTracker) {
+    Objects.requireNonNull(tracer, "tracer cannot be null");
+    Objects.requireNonNull(records, "records cannot be null");
+    Objects.requireNonNull(recordSampler, "recordSampler cannot be null");
+    Objects.requireNonNull(mdcStrategy, "mdcStrategy cannot be null");
+    Objects.requireNonNull(keyFormat, "keyFormat cannot be null");
+    this.tracer = tracer;
+    this.records = records;
+    this.sampled = sampled;
+    this.recordSampler = recordSampler;
+    this.mdcStrategy = mdcStrategy;
+    this.keyFormat = keyFormat;
+    this.lagTracker = lagTracker;
+    this.span = sampled ? createSpan(tracer, records) : NoopSpan.INSTANCE;
+    this.mdc = new HashMap<>();
+    this.mdcView = Collections.unmodifiableMap(mdc);
+  }
+
+  @Override
+  public Span span() {
+    return span;
+  }
+
+  @Override
+  public Map<String, String> mdc() {
+    return mdcView;
+  }
+
+  @Override
+  public void handleException(Throwable err) {
+    Objects.requireNonNull(err, "err cannot be null");
+    if (!sampled) {
+      return;
+    }
+
+    Tags.ERROR.set(span, true);
+    span.log(ErrorLog.of(err));
+  }
+
+  @Override
+  public void finish() {
+    span.finish();
+  }
+
+  @Override
+  public Runnable decorateConsumer(Consumer<ConsumerRecord<K, V>> consumer) {
+    return () -> {
+      final MdcStrategy.Scope mdcScope = mdcStrategy.applyBatch();
+      final boolean mdcEnabled = mdcScope != null;
+
+      // spans are finished when they are deactivated, so errors are tagged inside the scopes
+      try (ActiveSpan ignored = activate(span)) {
+        try {
+          for (TopicPartition partition : records.partitions()) {
+            consumePartition(partition, records.records(partition), consumer, mdcEnabled);
+          }
+        } catch (Exception err) {
+          handleException(err);
+          throw err;
+        }
+      } finally {
+        mdc.clear();
+        if (mdcScope != null) {
+          mdcScope.close();
+        }
+      }
+    };
+  }
+
+  private void consumePartition(TopicPartition partition, List<ConsumerRecord<K,V>> records,
+                                Consumer<ConsumerRecord<K,V>> consumer, boolean mdcEnabled) {
+    if (mdcEnabled) {
+      putMdc(MDC_TOPIC, partition.topic());
+      putMdc(MDC_PARTITION, Integer.toString(partition.partition()));
+    }
+
+    final Span partitionSpan =
+        sampled ? createPartitionSpan(tracer, partition, records) : NoopSpan.INSTANCE;
+    try (ActiveSpan ignored = activate(partitionSpan)) {
+      try {
+        for (int i = 0; i < records.size(); i++) {
+          consumeRecord(records.get(i), consumer, mdcEnabled);
+        }
+      } catch (Exception err) {
+        if (sampled) {
+          Tags.ERROR.set(partitionSpan, true);
+        }
+        throw err;
+      }
+    }
+  }
+
+  private void consumeRecord(ConsumerRecord<K,V> record, Consumer<ConsumerRecord<K,V>> consumer,
+                             boolean mdcEnabled) {
+    final boolean recordSampled = recordSampler.isSampled(record.topic());
+
+    // the offset and the key are formatted only when they are logged or traced
+    String offset = null;
+    String key = null;
+    if (mdcEnabled || recordSampled) {
+      offset = Long.toString(record.offset());
+      key = keyFormat.format(record.key());
+    }
+
+    if (mdcEnabled) {
+      putMdc(MDC_OFFSET, offset);
+      if (key != null) {
+        putMdc(MDC_KEY, key);
+      } else {
+        mdc.remove(MDC_KEY);
+        MDC.remove(MDC_KEY);
+      }
+    }
+
+    if (recordSampled) {
+      final Span recordSpan =
+          DefaultKafkaConsumerTracingContext.createSpan(tracer, record, offset, key);
+      try (ActiveSpan ignored = tracer.makeActive(recordSpan)) {
+        try {
+          consumer.accept(record);
+        } catch (Exception err) {
+          Tags.ERROR.set(recordSpan, true);
+          recordSpan.log(ErrorLog.of(err));
+          throw err;
+        }
+      }
+    } else {
+      consumer.accept(record);
+    }
+
+    if (lagTracker != null) {
+      lagTracker.record(record);
+    }
+  }
+
+  private void putMdc(String key, String value) {
+    mdc.put(key, value);
+    MDC.put(key, value);
+  }
+
+  @Nullable
+  private ActiveSpan activate(Span span) {
+    return sampled ? tracer.makeActive(span) : null;
+  }
+
+  private static Span createSpan(Tracer tracer, ConsumerRecords<?,?> records) {
+    final Span span = tracer
+        .buildSpan("kafka.consume_batch")
+        .startManual();
+
+    Tags.SPAN_KIND.set(span, Tags.SPAN_KIND_CONSUMER);
+    Tags.COMPONENT.set(span, COMPONENT_NAME);
+    RECORD_COUNT.set(span, records.count());
+    PARTITION_COUNT.set(span, records.partitions().size());
+
+    return span;
+  }
+
+  private static Span createPartitionSpan(Tracer tracer, TopicPartition partition,
+                                          List<? extends ConsumerRecord<?,?>> records) {
+    final Span span = tracer
+        .buildSpan(operationNames.get(partition.topic()))
+        .startManual();
+
+    Tags.SPAN_KIND.set(span, Tags.SPAN_KIND_CONSUMER);
+    Tags.COMPONENT.set(span, COMPONENT_NAME);
+    TOPIC_KEY.set(span, partition.topic());
+    RECORD_PARTITION.set(span, partition.partition());
+    RECORD_COUNT.set(span, records.size());
+    if (!records.isEmpty()) {
+      FIRST_OFFSET.set(span, Long.toString(records.get(0).offset()));
+      LAST_OFFSET.set(span, Long.toString(records.get(records.size() - 1).offset()));
+    }
+
+    return span;
+  }
+}
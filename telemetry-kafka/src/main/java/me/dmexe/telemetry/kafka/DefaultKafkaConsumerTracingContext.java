@@ -1,8 +1,6 @@
 package me.dmexe.telemetry.kafka;
 
 import static me.dmexe.telemetry.kafka.KafkaConstants.COMPONENT_NAME;
-import static me.dmexe.telemetry.kafka.KafkaConstants.ERROR_KIND_LOG_NAME;
-import static me.dmexe.telemetry.kafka.KafkaConstants.ERROR_MESSAGE_LOG_NAME;
 import static me.dmexe.telemetry.kafka.KafkaConstants.MDC_KEY;
 import static me.dmexe.telemetry.kafka.KafkaConstants.MDC_OFFSET;
 import static me.dmexe.telemetry.kafka.KafkaConstants.MDC_PARTITION;
@@ -13,6 +11,7 @@ import static me.dmexe.telemetry.kafka.KafkaConstants.RECORD_PARTITION;
 import static me.dmexe.telemetry.kafka.KafkaConstants.TOPIC_KEY;
 
 import io.opentracing.ActiveSpan;
+import io.opentracing.NoopSpan;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
 import io.opentracing.tag.Tags;
@@ -20,25 +19,60 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import me.dmexe.telemetry.core.tracer.ErrorLog;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.slf4j.MDC;
+import org.jetbrains.annotations.Nullable;
 
 class DefaultKafkaConsumerTracingContext<K,V> implements KafkaConsumerTracingContext<K,V> {
+  private static final OperationNames operationNames = new OperationNames("kafka.consume ");
+
   private final ConsumerRecord<K,V> record;
   private final Tracer tracer;
   private final Span span;
-  private final Map<String,String> mdc;
+  private final boolean sampled;
+  private final MdcStrategy mdcStrategy;
+  private final KeyFormat keyFormat;
+
+  @Nullable
+  private final KafkaConsumerLagTracker lagTracker;
+
+  // the offset and the key are formatted on demand and once for both the span and the MDC
+  @Nullable
+  private String offset;
+
+  @Nullable
+  private String key;
+
+  private boolean keyFormatted;
+
+  @Nullable
+  private Map<String,String> mdc;
 
   DefaultKafkaConsumerTracingContext(Tracer tracer, ConsumerRecord<K,V> record) {
+    this(tracer, record, true, MdcStrategy.replace(),
+        KeyFormat.truncate(KeyFormat.DEFAULT_MAX_LENGTH), null);
+  }
+
+  DefaultKafkaConsumerTracingContext(Tracer tracer, ConsumerRecord<K,V> record, boolean sampled,
+                                     MdcStrategy mdcStrategy, KeyFormat keyFormat,
+                                     @Nullable KafkaConsumerLagTracker lagTracker) {
     Objects.requireNonNull(tracer, "tracer cannot be null");
     Objects.requireNonNull(record, "record cannot be null");
+    Objects.requireNonNull(mdcStrategy, "mdcStrategy cannot be null");
+    Objects.requireNonNull(keyFormat, "keyFormat cannot be null");
     this.tracer = tracer;
     this.record = record;
-    this.span = createSpan(tracer, record);
-    this.mdc = createMdc(record);
+    this.sampled = sampled;
+    this.mdcStrategy = mdcStrategy;
+    this.keyFormat = keyFormat;
+    this.lagTracker = lagTracker;
+    this.mdc = null;
+    this.span = sampled ? createSpan(tracer, record, offset(), key()) : NoopSpan.INSTANCE;
   }
 
   @Override
@@ -48,18 +82,42 @@ class DefaultKafkaConsumerTracingContext<K,V> implements KafkaConsumerTracingCon
 
   @Override
   public Map<String, String> mdc() {
+    // the map is built on demand, a merging MDC strategy doesn't need it
+    if (mdc == null) {
+      mdc = createMdc();
+    }
     return mdc;
   }
 
+  ConsumerRecord<K,V> record() {
+    return record;
+  }
+
+  String offset() {
+    if (offset == null) {
+      offset = Long.toString(record.offset());
+    }
+    return offset;
+  }
+
+  @Nullable
+  String key() {
+    if (!keyFormatted) {
+      key = keyFormat.format(record.key());
+      keyFormatted = true;
+    }
+    return key;
+  }
+
   @Override
   public void handleException(Throwable err) {
     Objects.requireNonNull(err, "err cannot be null");
+    if (!sampled) {
+      return;
+    }
 
-    final Map<String,String> map = new HashMap<>(2);
-    map.put(ERROR_KIND_LOG_NAME, err.getClass().getName());
-    map.put(ERROR_MESSAGE_LOG_NAME, err.getMessage());
     Tags.ERROR.set(span, true);
-    span.log(map);
+    span.log(ErrorLog.of(err));
   }
 
   @Override
@@ -70,14 +128,13 @@ class DefaultKafkaConsumerTracingContext<K,V> implements KafkaConsumerTracingCon
   @Override
   public Runnable decorateConsumer(Consumer<ConsumerRecord<K, V>> consumer) {
     return () -> {
-      MDC.setContextMap(mdc);
-      try (ActiveSpan ignored = tracer.makeActive(span)) {
+      try (MdcStrategy.Scope ignoredMdc = mdcStrategy.apply(this);
+           ActiveSpan ignored = activate()) {
         consumer.accept(record);
+        processed();
       } catch (Exception err) {
         handleException(err);
         throw err;
-      } finally {
-        MDC.clear();
       }
     };
   }
@@ -85,45 +142,91 @@ class DefaultKafkaConsumerTracingContext<K,V> implements KafkaConsumerTracingCon
   @Override
   public <T> Supplier<T> decorateFunction(Function<ConsumerRecord<K, V>, T> func) {
     return () -> {
-      MDC.setContextMap(mdc);
-      try (ActiveSpan ignored = tracer.makeActive(span)) {
-        return func.apply(record);
+      try (MdcStrategy.Scope ignoredMdc = mdcStrategy.apply(this);
+           ActiveSpan ignored = activate()) {
+        final T result = func.apply(record);
+        processed();
+        return result;
+      } catch (Exception err) {
+        handleException(err);
+        throw err;
+      }
+    };
+  }
+
+  @Override
+  public Runnable decorateContextConsumer(
+      BiConsumer<ConsumerRecord<K, V>, KafkaConsumerTracingContext<K, V>> consumer) {
+    return () -> {
+      try {
+        consumer.accept(record, this);
+        processed();
       } catch (Exception err) {
         handleException(err);
         throw err;
       } finally {
-        MDC.clear();
+        finish();
       }
     };
   }
 
-  private static Map<String,String> createMdc(ConsumerRecord<?,?> record) {
+  @Override
+  public <T> Supplier<T> decorateContextFunction(
+      BiFunction<ConsumerRecord<K, V>, KafkaConsumerTracingContext<K, V>, T> func) {
+    return () -> {
+      try {
+        final T result = func.apply(record, this);
+        processed();
+        return result;
+      } catch (Exception err) {
+        handleException(err);
+        throw err;
+      } finally {
+        finish();
+      }
+    };
+  }
+
+  private void processed() {
+    if (lagTracker != null) {
+      lagTracker.record(record);
+    }
+  }
+
+  @Nullable
+  private ActiveSpan activate() {
+    return sampled ? tracer.makeActive(span) : null;
+  }
+
+  private Map<String,String> createMdc() {
     final Map<String,String> mdc = new HashMap<>();
 
     mdc.put(MDC_TOPIC, record.topic());
     mdc.put(MDC_PARTITION, Integer.toString(record.partition()));
-    mdc.put(MDC_OFFSET, Long.toString(record.offset()));
+    mdc.put(MDC_OFFSET, offset());
 
-    if (record.key() != null) {
-      mdc.put(MDC_KEY, record.key().toString());
+    final String key = key();
+    if (key != null) {
+      mdc.put(MDC_KEY, key);
     }
 
     return Collections.unmodifiableMap(mdc);
   }
 
-  private static Span createSpan(Tracer tracer, ConsumerRecord<?,?> record) {
+  static Span createSpan(Tracer tracer, ConsumerRecord<?,?> record, String offset,
+                         @Nullable String key) {
     final Span span = tracer
-        .buildSpan("kafka.consume " + record.topic())
+        .buildSpan(operationNames.get(record.topic()))
         .startManual();
 
     Tags.SPAN_KIND.set(span, Tags.SPAN_KIND_CONSUMER);
     Tags.COMPONENT.set(span, COMPONENT_NAME);
     TOPIC_KEY.set(span, record.topic());
     RECORD_PARTITION.set(span, record.partition());
-    RECORD_OFFSET.set(span, Long.toString(record.offset()));
+    RECORD_OFFSET.set(span, offset);
 
-    if (record.key() != null) {
-      RECORD_KEY.set(span, record.key().toString());
+    if (key != null) {
+      RECORD_KEY.set(span, key);
     }
 
     return span;
@@ -1,18 +1,34 @@
 package me.dmexe.telemetry.kafka;
 
 import io.opentracing.Tracer;
-import io.opentracing.util.GlobalTracer;
+import java.util.Iterator;
 import java.util.Objects;
+import me.dmexe.telemetry.core.sampler.Sampler;
+import me.dmexe.telemetry.core.tracer.Tracers;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
 import org.jetbrains.annotations.Nullable;
 
 class DefaultKafkaConsumerTracingFactory<K,V> implements KafkaConsumerTracingFactory<K,V> {
 
   @Nullable
   private Tracer tracer;
+  private Sampler sampler;
+  private Sampler recordSampler;
+  private MdcStrategy mdcStrategy;
+  private KeyFormat keyFormat;
+
+  @Nullable
+  private KafkaConsumerLagTracker lagTracker;
 
   DefaultKafkaConsumerTracingFactory() {
     this.tracer = null;
+    this.sampler = Sampler.always();
+    this.recordSampler = Sampler.never();
+    this.mdcStrategy = MdcStrategy.replace();
+    this.keyFormat = KeyFormat.truncate(KeyFormat.DEFAULT_MAX_LENGTH);
+    this.lagTracker = null;
   }
 
   @Override
@@ -22,17 +38,61 @@ class DefaultKafkaConsumerTracingFactory<K,V> implements KafkaConsumerTracingFac
     return this;
   }
 
+  @Override
+  public KafkaConsumerTracingFactory<K,V> sampler(Sampler sampler) {
+    Objects.requireNonNull(sampler, "sampler cannot be null");
+    this.sampler = sampler;
+    return this;
+  }
+
+  @Override
+  public KafkaConsumerTracingFactory<K,V> recordSampler(Sampler recordSampler) {
+    Objects.requireNonNull(recordSampler, "recordSampler cannot be null");
+    this.recordSampler = recordSampler;
+    return this;
+  }
+
+  @Override
+  public KafkaConsumerTracingFactory<K,V> mdcStrategy(MdcStrategy mdcStrategy) {
+    Objects.requireNonNull(mdcStrategy, "mdcStrategy cannot be null");
+    this.mdcStrategy = mdcStrategy;
+    return this;
+  }
+
+  @Override
+  public KafkaConsumerTracingFactory<K,V> keyFormat(KeyFormat keyFormat) {
+    Objects.requireNonNull(keyFormat, "keyFormat cannot be null");
+    this.keyFormat = keyFormat;
+    return this;
+  }
+
+  @Override
+  public KafkaConsumerTracingFactory<K,V> lagTracker(KafkaConsumerLagTracker lagTracker) {
+    Objects.requireNonNull(lagTracker, "lagTracker cannot be null");
+    this.lagTracker = lagTracker;
+    return this;
+  }
+
   @Override
   public KafkaConsumerTracingContext<K,V> create(ConsumerRecord<K, V> record) {
     Objects.requireNonNull(record, "record cannot be null");
 
-    Tracer tracer;
-    if (this.tracer == null) {
-      tracer = GlobalTracer.get();
-    } else {
-      tracer = this.tracer;
-    }
+    final Tracer tracer = Tracers.resolve(this.tracer);
+
+    final boolean sampled = sampler.isSampled(record.topic());
+    return new DefaultKafkaConsumerTracingContext<>(
+        tracer, record, sampled, mdcStrategy, keyFormat, lagTracker);
+  }
+
+  @Override
+  public KafkaConsumerBatchTracingContext<K,V> create(ConsumerRecords<K, V> records) {
+    Objects.requireNonNull(records, "records cannot be null");
+
+    final Tracer tracer = Tracers.resolve(this.tracer);
 
-    return new DefaultKafkaConsumerTracingContext<>(tracer, record);
+    final Iterator<TopicPartition> partitions = records.partitions().iterator();
+    final boolean sampled = partitions.hasNext() && sampler.isSampled(partitions.next().topic());
+    return new DefaultKafkaConsumerBatchTracingContext<>(
+        tracer, records, sampled, recordSampler, mdcStrategy, keyFormat, lagTracker);
   }
 }
@@ -1,7 +1,5 @@
 package me.dmexe.telemetry.kafka;
 
-import static me.dmexe.telemetry.kafka.KafkaConstants.ERROR_KIND_LOG_NAME;
-import static me.dmexe.telemetry.kafka.KafkaConstants.ERROR_MESSAGE_LOG_NAME;
 import static me.dmexe.telemetry.kafka.KafkaConstants.RECORD_KEY_SIZE;
 import static me.dmexe.telemetry.kafka.KafkaConstants.RECORD_OFFSET;
 import static me.dmexe.telemetry.kafka.KafkaConstants.RECORD_PARTITION;
@@ -9,9 +7,8 @@ import static me.dmexe.telemetry.kafka.KafkaConstants.RECORD_VALUE_SIZE;
 
 import io.opentracing.Span;
 import io.opentracing.tag.Tags;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
+import me.dmexe.telemetry.core.tracer.ErrorLog;
 import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.RecordMetadata;
 
@@ -54,11 +51,8 @@ class DefaultKafkaProducerTracingContext implements KafkaProducerTracingContext
   }
 
   private void handleException(Exception exception) {
-    final Map<String,String> map = new HashMap<>(2);
-    map.put(ERROR_KIND_LOG_NAME, exception.getClass().getName());
-    map.put(ERROR_MESSAGE_LOG_NAME, exception.getMessage());
     Tags.ERROR.set(span, true);
-    span.log(map);
+    span.log(ErrorLog.of(exception));
   }
 
   private void handleMetadata(RecordMetadata metadata) {
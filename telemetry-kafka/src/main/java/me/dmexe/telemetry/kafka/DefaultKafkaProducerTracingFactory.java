@@ -9,8 +9,9 @@ import io.opentracing.ActiveSpan;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
 import io.opentracing.tag.Tags;
-import io.opentracing.util.GlobalTracer;
 import java.util.Objects;
+import me.dmexe.telemetry.core.sampler.Sampler;
+import me.dmexe.telemetry.core.tracer.Tracers;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.jetbrains.annotations.Nullable;
 
@@ -18,8 +19,10 @@ class DefaultKafkaProducerTracingFactory implements KafkaProducerTracingFactory
 
   @Nullable
   private Tracer tracer;
+  private Sampler sampler;
 
   DefaultKafkaProducerTracingFactory() {
+    this.sampler = Sampler.always();
   }
 
   @Override
@@ -29,17 +32,19 @@ class DefaultKafkaProducerTracingFactory implements KafkaProducerTracingFactory
     return this;
   }
 
+  @Override
+  public KafkaProducerTracingFactory sampler(Sampler sampler) {
+    Objects.requireNonNull(sampler, "sampler cannot be null");
+    this.sampler = sampler;
+    return this;
+  }
+
   @Override
   public KafkaProducerTracingContext create(ProducerRecord<?, ?> record) {
-    Tracer tracer;
-    if (this.tracer == null) {
-      tracer = GlobalTracer.get();
-    } else {
-      tracer = this.tracer;
-    }
+    final Tracer tracer = Tracers.resolve(this.tracer);
 
     final ActiveSpan parent = tracer.activeSpan();
-    if (parent == null) {
+    if (parent == null || !sampler.isSampled(record.topic())) {
       return new NoopKafkaProducerTracingContext();
     }
 
@@ -0,0 +1,159 @@
+package me.dmexe.telemetry.kafka;
+
+import io.prometheus.client.Collector;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import me.dmexe.telemetry.core.metrics.SampleWriter;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Groups Kafka metrics into gauge families, a family is written once with the samples of all
+ * clients and topics.
+ *
+ * <p>A Kafka client keeps the same {@link MetricName} instance while a metric is registered, so
+ * a name is parsed into a family and label values once, when it appears, and the result is
+ * cached by the identity of the name. A scrape walks the metrics with an identity lookup per
+ * metric and reads the values, names are parsed again only when they are added or removed.
+ */
+class GaugeFamilies {
+  private static final String[][] LABEL_NAMES = new String[][] {
+      new String[] {"client_id"},
+      new String[] {"client_id", "topic"},
+      new String[] {"client_id", "topic", "partition"}
+  };
+
+  private final Function<MetricName, KafkaSeries> parser;
+  private final Map<MetricName, Series> series;
+  private final Map<String, Family> families;
+  private long generation;
+
+  /**
+   * Create families of the metrics accepted by the given function.
+   *
+   * @param parser a function which returns a series of an exported metric and null for a metric
+   *     which isn't exported.
+   */
+  GaugeFamilies(Function<MetricName, KafkaSeries> parser) {
+    this.parser = parser;
+    this.series = new IdentityHashMap<>();
+    this.families = new LinkedHashMap<>();
+    this.generation = 0;
+  }
+
+  synchronized void collect(Map<MetricName, ? extends Metric> metrics, SampleWriter writer) {
+    final long generation = ++this.generation;
+    for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+      Series current = series.get(entry.getKey());
+      if (current == null) {
+        current = create(entry.getKey());
+        series.put(entry.getKey(), current);
+      }
+      current.metric = entry.getValue();
+      current.generation = generation;
+    }
+
+    // all the collected metrics are in the cache now, so it's larger only when metrics were
+    // removed since the previous scrape
+    if (series.size() > metrics.size()) {
+      evict(generation);
+    }
+
+    for (Family family : families.values()) {
+      family.writeTo(writer);
+    }
+  }
+
+  private Series create(MetricName metricName) {
+    final KafkaSeries parsed = parser.apply(metricName);
+    if (parsed == null) {
+      return new Series(null, null);
+    }
+
+    Family family = families.get(parsed.name);
+    if (family == null) {
+      family = new Family(
+          parsed.name,
+          metricName.description(),
+          LABEL_NAMES[parsed.labelValues.length - 1]);
+      families.put(parsed.name, family);
+    }
+    if (family.labelNames.length != parsed.labelValues.length) {
+      // a family can't have series with different labels, the conflicting metric is skipped
+      return new Series(null, null);
+    }
+
+    final Series created = new Series(family, parsed.labelValues);
+    family.series.add(created);
+    return created;
+  }
+
+  private void evict(long generation) {
+    final Iterator<Series> iterator = series.values().iterator();
+    while (iterator.hasNext()) {
+      final Series current = iterator.next();
+      if (current.generation != generation) {
+        iterator.remove();
+        if (current.family != null) {
+          current.family.series.remove(current);
+        }
+      }
+    }
+    families.values().removeIf(family -> family.series.isEmpty());
+  }
+
+  private static class Family {
+    private final String name;
+    private final String help;
+    private final String[] labelNames;
+    private final List<Series> series;
+
+    Family(String name, String help, String[] labelNames) {
+      this.name = name;
+      this.help = help;
+      this.labelNames = labelNames;
+      this.series = new ArrayList<>();
+    }
+
+    void writeTo(SampleWriter writer) {
+      writer.family(name, help, Collector.Type.GAUGE, labelNames);
+      for (int i = 0; i < series.size(); i++) {
+        final Series current = series.get(i);
+        final double value = current.metric.value();
+        switch (labelNames.length) {
+          case 1:
+            writer.sample(current.labelValues[0], value);
+            break;
+          case 2:
+            writer.sample(current.labelValues[0], current.labelValues[1], value);
+            break;
+          default:
+            writer.sample(current.labelValues, value);
+            break;
+        }
+      }
+    }
+  }
+
+  private static class Series {
+    @Nullable
+    private final Family family;
+
+    @Nullable
+    private final String[] labelValues;
+
+    private Metric metric;
+    private long generation;
+
+    Series(@Nullable Family family, @Nullable String[] labelValues) {
+      this.family = family;
+      this.labelValues = labelValues;
+    }
+  }
+}
@@ -12,10 +12,12 @@ class KafkaConstants {
   static final StringTag TOPIC_KEY = new StringTag("kafka.topic");
   static final IntTag RECORD_KEY_SIZE = new IntTag("kafka.key_size");
   static final IntTag RECORD_VALUE_SIZE = new IntTag("kafka.value_size");
+  static final StringTag FIRST_OFFSET = new StringTag("kafka.first_offset");
+  static final StringTag LAST_OFFSET = new StringTag("kafka.last_offset");
+  static final IntTag RECORD_COUNT = new IntTag("kafka.records");
+  static final IntTag PARTITION_COUNT = new IntTag("kafka.partitions");
 
-  static final String ERROR_KIND_LOG_NAME = "error.kind";
-  static final String ERROR_MESSAGE_LOG_NAME = "message";
-
+  static final String MDC_PREFIX = "kafka:";
   static final String MDC_TOPIC = "kafka:topic";
   static final String MDC_PARTITION = "kafka:partition";
   static final String MDC_OFFSET = "kafka:offset";
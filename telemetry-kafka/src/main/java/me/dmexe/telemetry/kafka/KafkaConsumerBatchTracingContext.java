@@ -0,0 +1,36 @@
+package me.dmexe.telemetry.kafka;
+
+import io.opentracing.Span;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+/**
+ * A tracing context of records returned by a single poll. The batch gets one span with a child
+ * span per partition, a record gets a span only when it's sampled by the record sampler of the
+ * factory.
+ */
+public interface KafkaConsumerBatchTracingContext<K,V> {
+  Span span();
+
+  /**
+   * The MDC of the record which is being consumed, it's updated in place for every record and
+   * stays empty when the MDC strategy of the factory doesn't touch the MDC.
+   *
+   * @return the unmodifiable view of the MDC.
+   */
+  Map<String,String> mdc();
+
+  void handleException(Throwable err);
+
+  void finish();
+
+  /**
+   * Decorate a consumer of a single record, the decorated runnable consumes all the records of
+   * the batch, partition by partition, with the MDC of each record.
+   *
+   * @param consumer the consumer of a record.
+   * @return the runnable which consumes the batch.
+   */
+  Runnable decorateConsumer(Consumer<ConsumerRecord<K,V>> consumer);
+}
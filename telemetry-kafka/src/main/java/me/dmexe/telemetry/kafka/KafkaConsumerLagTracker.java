@@ -0,0 +1,274 @@
+package me.dmexe.telemetry.kafka;
+
+import io.prometheus.client.Collector;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import me.dmexe.telemetry.core.metrics.SampleWriter;
+import me.dmexe.telemetry.core.metrics.StreamingCollector;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Tracks a processing lag of partitions by offsets of the processed records, without calls to
+ * brokers. The lag of a partition is the number of records between the last processed offset and
+ * the end offset of the partition, it's exported as {@code kafka_consumer_processing_lag} with
+ * {@code client_id}, {@code topic} and {@code partition} labels, together with the
+ * {@code kafka_consumer_processed_records_total} counter of processed records.
+ *
+ * <p>End offsets are estimated on every scrape from the {@code records-lag} metrics of the
+ * consumer, or assigned by {@link #endOffsets(Map)}, for example with
+ * {@code consumer.endOffsets(consumer.assignment())} on the polling thread.
+ *
+ * <pre>{@code
+ * KafkaConsumerLagTracker tracker = new KafkaConsumerLagTracker("client", consumer::metrics);
+ * KafkaConsumerTracingFactory<K,V> factory = KafkaConsumerTracingFactory
+ *     .newFactory(keyClass, valueClass)
+ *     .lagTracker(tracker);
+ * }</pre>
+ */
+public class KafkaConsumerLagTracker extends StreamingCollector {
+  private static final String[] LABEL_NAMES = new String[] {"client_id", "topic", "partition"};
+  private static final String FETCH_MANAGER_GROUP = "consumer-fetch-manager-metrics";
+  private static final String RECORDS_LAG = "records-lag";
+  private static final Partition NOT_LAG = new Partition("", "", -1);
+  private static final KafkaMetricsProducer NO_METRICS = Collections::emptyMap;
+
+  private final String clientId;
+  private final KafkaMetricsProducer producer;
+  private final Map<String, Topic> topics;
+  private final Map<MetricName, Partition> lagMetrics;
+
+  /**
+   * Create a tracker which gets end offsets only by {@link #endOffsets(Map)}.
+   *
+   * @param clientId a client id of the consumer.
+   */
+  public KafkaConsumerLagTracker(String clientId) {
+    this(clientId, NO_METRICS);
+  }
+
+  /**
+   * Create a tracker which estimates end offsets from lag metrics of the consumer.
+   *
+   * @param clientId a client id of the consumer.
+   * @param producer the source of metrics, for example {@code consumer::metrics}.
+   */
+  public KafkaConsumerLagTracker(String clientId, KafkaMetricsProducer producer) {
+    Objects.requireNonNull(clientId, "clientId cannot be null");
+    Objects.requireNonNull(producer, "metrics producer cannot be null");
+    this.clientId = clientId;
+    this.producer = producer;
+    this.topics = new ConcurrentHashMap<>();
+    this.lagMetrics = new IdentityHashMap<>();
+  }
+
+  /**
+   * Track an offset of a record which was processed successfully.
+   *
+   * @param record the record.
+   */
+  public void record(ConsumerRecord<?,?> record) {
+    final Partition partition = partition(record.topic(), record.partition());
+    partition.offset = record.offset();
+    partition.records.incrementAndGet();
+  }
+
+  /**
+   * Assign end offsets of partitions.
+   *
+   * @param endOffsets end offsets by partitions.
+   */
+  public void endOffsets(Map<TopicPartition, Long> endOffsets) {
+    Objects.requireNonNull(endOffsets, "endOffsets cannot be null");
+    for (Map.Entry<TopicPartition, Long> entry : endOffsets.entrySet()) {
+      if (entry.getValue() != null) {
+        partition(entry.getKey().topic(), entry.getKey().partition()).endOffset = entry.getValue();
+      }
+    }
+  }
+
+  /**
+   * Stop tracking partitions, for example when they are revoked from the consumer.
+   *
+   * @param partitions the partitions.
+   */
+  public synchronized void remove(Collection<TopicPartition> partitions) {
+    Objects.requireNonNull(partitions, "partitions cannot be null");
+    lagMetrics.clear();
+    for (TopicPartition partition : partitions) {
+      final Topic topic = topics.get(partition.topic());
+      if (topic != null) {
+        topic.remove(partition.partition());
+      }
+    }
+  }
+
+  @Override
+  public synchronized void collect(SampleWriter writer) {
+    updateEndOffsets(producer.metrics());
+
+    writer.family(
+        "kafka_consumer_processing_lag",
+        "Records between the last processed offset and the end offset of a partition.",
+        Collector.Type.GAUGE,
+        LABEL_NAMES);
+    for (Topic topic : topics.values()) {
+      for (Partition partition : topic.partitions) {
+        if (partition != null && partition.offset >= 0 && partition.endOffset >= 0) {
+          writer.sample(
+              partition.labelValues,
+              Math.max(0, partition.endOffset - partition.offset - 1));
+        }
+      }
+    }
+
+    writer.family(
+        "kafka_consumer_processed_records_total",
+        "Processed records of a partition.",
+        Collector.Type.COUNTER,
+        LABEL_NAMES);
+    for (Topic topic : topics.values()) {
+      for (Partition partition : topic.partitions) {
+        if (partition != null) {
+          writer.sample(partition.labelValues, partition.records.get());
+        }
+      }
+    }
+  }
+
+  private Partition partition(String topic, int partition) {
+    Topic current = topics.get(topic);
+    if (current == null) {
+      current = topics.computeIfAbsent(topic, Topic::new);
+    }
+    return current.get(partition);
+  }
+
+  /**
+   * A lag metric is measured from the fetch position, which is next to the last fetched record,
+   * so the end offset is estimated as the last processed offset plus the lag. The estimate is
+   * exact when all the fetched records are processed and it's lower while fetched records wait
+   * for processing, so an estimate never decreases the end offset.
+   */
+  private void updateEndOffsets(Map<MetricName, ? extends Metric> metrics) {
+    if (lagMetrics.size() > metrics.size()) {
+      lagMetrics.clear();
+    }
+    for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+      Partition partition = lagMetrics.get(entry.getKey());
+      if (partition == null) {
+        partition = parseLagMetric(entry.getKey());
+        lagMetrics.put(entry.getKey(), partition);
+      }
+      if (partition == NOT_LAG || partition.offset < 0) {
+        continue;
+      }
+
+      final double lag = entry.getValue().value();
+      if (!Double.isNaN(lag) && !Double.isInfinite(lag) && lag >= 0) {
+        partition.endOffset = Math.max(partition.endOffset, partition.offset + 1 + (long) lag);
+      }
+    }
+  }
+
+  private Partition parseLagMetric(MetricName name) {
+    if (!name.group().equals(FETCH_MANAGER_GROUP)) {
+      return NOT_LAG;
+    }
+
+    // since 1.1 the lag is tagged by a topic and a partition
+    final String topic = name.tags().get("topic");
+    final String partition = name.tags().get("partition");
+    if (name.name().equals(RECORDS_LAG) && topic != null && partition != null) {
+      return parsePartition(topic, partition);
+    }
+
+    // before 1.1 the lag is named as "{topic}-{partition}.records-lag"
+    final int suffix = name.name().length() - RECORDS_LAG.length() - 1;
+    if (suffix > 0 && name.name().endsWith("." + RECORDS_LAG)) {
+      final int dash = name.name().lastIndexOf('-', suffix);
+      if (dash > 0) {
+        return parsePartition(
+            name.name().substring(0, dash),
+            name.name().substring(dash + 1, suffix));
+      }
+    }
+    return NOT_LAG;
+  }
+
+  private Partition parsePartition(String topic, String partition) {
+    try {
+      return partition(topic, Integer.parseInt(partition));
+    } catch (NumberFormatException err) {
+      return NOT_LAG;
+    }
+  }
+
+  /**
+   * Partitions of a topic in an array indexed by a partition number, the array is copied on
+   * write, so a lookup of a partition of a record takes neither a lock nor an allocation.
+   */
+  private class Topic {
+    private final String name;
+    private volatile Partition[] partitions;
+
+    Topic(String name) {
+      this.name = name;
+      this.partitions = new Partition[0];
+    }
+
+    Partition get(int partition) {
+      final Partition[] current = partitions;
+      if (partition >= 0 && partition < current.length && current[partition] != null) {
+        return current[partition];
+      }
+      return create(partition);
+    }
+
+    private synchronized Partition create(int partition) {
+      if (partition < 0) {
+        throw new IllegalArgumentException("partition cannot be negative");
+      }
+      final Partition[] current = partitions;
+      if (partition < current.length && current[partition] != null) {
+        return current[partition];
+      }
+
+      final Partition[] updated = new Partition[Math.max(current.length, partition + 1)];
+      System.arraycopy(current, 0, updated, 0, current.length);
+      updated[partition] = new Partition(clientId, name, partition);
+      partitions = updated;
+      return updated[partition];
+    }
+
+    synchronized void remove(int partition) {
+      final Partition[] current = partitions;
+      if (partition >= 0 && partition < current.length && current[partition] != null) {
+        final Partition[] updated = current.clone();
+        updated[partition] = null;
+        partitions = updated;
+      }
+    }
+  }
+
+  private static class Partition {
+    private final String[] labelValues;
+    private final AtomicLong records;
+    private volatile long offset;
+    private volatile long endOffset;
+
+    Partition(String clientId, String topic, int partition) {
+      this.labelValues = new String[] {clientId, topic, Integer.toString(partition)};
+      this.records = new AtomicLong();
+      this.offset = -1;
+      this.endOffset = -1;
+    }
+  }
+}
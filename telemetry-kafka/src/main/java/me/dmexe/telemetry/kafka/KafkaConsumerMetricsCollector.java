@@ -1,62 +1,104 @@
 package me.dmexe.telemetry.kafka;
 
-import static me.dmexe.telemetry.kafka.GaugesFactory.gauge;
-
-import io.prometheus.client.Collector;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Objects;
+import me.dmexe.telemetry.core.metrics.SampleWriter;
+import me.dmexe.telemetry.core.metrics.StreamingCollector;
+import org.apache.kafka.common.MetricName;
+import org.jetbrains.annotations.Nullable;
+
+public class KafkaConsumerMetricsCollector extends StreamingCollector {
+  private static final String FETCH_MANAGER_GROUP = "consumer-fetch-manager-metrics";
+  private static final String FETCH_MANAGER_TOPIC_GROUP = "consumer-fetch-manager-topic-metrics";
+  private static final String FETCH_MANAGER_PARTITION_GROUP =
+      "consumer-fetch-manager-partition-metrics";
+  private static final String RECORDS_LAG = ".records-lag";
 
-public class KafkaConsumerMetricsCollector extends Collector {
   private final KafkaMetricsProducer producer;
+  private final boolean partitionMetrics;
+  private final GaugeFamilies families;
 
+  /**
+   * Create a collector of consumer metrics of clients.
+   *
+   * @param producer the source of metrics, for example {@code consumer::metrics}.
+   */
   public KafkaConsumerMetricsCollector(KafkaMetricsProducer producer) {
+    this(producer, false);
+  }
+
+  /**
+   * Create a collector of consumer metrics. When partition metrics are enabled, fetch manager
+   * metrics of topics (bytes and records consumed rates, fetch sizes) are exported with a
+   * {@code topic} label, as {@code kafka_consumer_fetch_manager_topic_metrics_*}, and metrics of
+   * partitions (records lag) are exported with {@code topic} and {@code partition} labels, as
+   * {@code kafka_consumer_fetch_manager_partition_metrics_*}. A series is exported while the
+   * consumer keeps the metric, so the number of series follows the assigned partitions.
+   *
+   * @param producer the source of metrics, for example {@code consumer::metrics}.
+   * @param partitionMetrics true to export metrics of topics and partitions.
+   */
+  public KafkaConsumerMetricsCollector(KafkaMetricsProducer producer, boolean partitionMetrics) {
     Objects.requireNonNull(producer, "metrics producer cannot be null");
     this.producer = producer;
+    this.partitionMetrics = partitionMetrics;
+    this.families = new GaugeFamilies(this::parse);
   }
 
   @Override
-  public List<MetricFamilySamples> collect() {
-    final List<MetricFamilySamples> samples = new LinkedList<>();
-
-    producer.metrics().forEach((name, metric) -> {
-      // skip, per topic metrics
-      if (name.tags().size() == 1 && !name.name().contains(".")) {
-        switch (name.group()) {
-          case "consumer-metrics": {
-            final String clientId = name.tags().get("client-id");
-            if (clientId != null) {
-              final List<String> labelValues = new ArrayList<>(1);
-              labelValues.add(clientId);
-              samples.add(gauge(name, "client_id").addMetric(labelValues, metric.value()));
-            }
-            break;
-          }
-          case "consumer-coordinator-metrics": {
-            final String clientId = name.tags().get("client-id");
-            if (clientId != null) {
-              final List<String> labelValues = new ArrayList<>(1);
-              labelValues.add(clientId);
-              samples.add(gauge(name, "client_id").addMetric(labelValues, metric.value()));
-            }
-            break;
-          }
-          case "consumer-fetch-manager-metrics": {
-            final String clientId = name.tags().get("client-id");
-            if (clientId != null) {
-              final List<String> labelValues = new ArrayList<>(1);
-              labelValues.add(clientId);
-              samples.add(gauge(name, "client_id").addMetric(labelValues, metric.value()));
-            }
-            break;
-          }
-          default:
-            break;
-        }
+  public void collect(SampleWriter writer) {
+    families.collect(producer.metrics(), writer);
+  }
+
+  @Nullable
+  private KafkaSeries parse(MetricName name) {
+    final String clientId = name.tags().get("client-id");
+    if (clientId == null) {
+      return null;
+    }
+
+    // metrics of clients, per topic metrics are named as "{topic}.{name}" before 0.11
+    if (name.tags().size() == 1 && !name.name().contains(".")) {
+      switch (name.group()) {
+        case "consumer-metrics":
+        case "consumer-coordinator-metrics":
+        case FETCH_MANAGER_GROUP:
+          return KafkaSeries.of(name, clientId);
+        default:
+          return null;
       }
-    });
+    }
+
+    if (partitionMetrics && name.group().equals(FETCH_MANAGER_GROUP)) {
+      return parsePartition(name, clientId);
+    }
+    return null;
+  }
+
+  @Nullable
+  private static KafkaSeries parsePartition(MetricName name, String clientId) {
+    final String topic = name.tags().get("topic");
+    final String partition = name.tags().get("partition");
+
+    if (topic != null && partition != null && name.tags().size() == 3) {
+      return KafkaSeries.of(
+          FETCH_MANAGER_PARTITION_GROUP, name.name(), clientId, topic, partition);
+    }
+    if (topic != null && name.tags().size() == 2) {
+      return KafkaSeries.of(FETCH_MANAGER_TOPIC_GROUP, name.name(), clientId, topic);
+    }
 
-    return samples;
+    // before 1.1 a lag of a partition is named as "{topic}-{partition}.records-lag-max" and
+    // tagged by a client id only
+    final int lag = name.name().lastIndexOf(RECORDS_LAG);
+    final int dash = lag < 0 ? -1 : name.name().lastIndexOf('-', lag);
+    if (name.tags().size() == 1 && dash > 0) {
+      return KafkaSeries.of(
+          FETCH_MANAGER_PARTITION_GROUP,
+          name.name().substring(lag + 1),
+          clientId,
+          name.name().substring(0, dash),
+          name.name().substring(dash + 1, lag));
+    }
+    return null;
   }
 }
@@ -2,6 +2,8 @@ package me.dmexe.telemetry.kafka;
 
 import io.opentracing.Span;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -19,4 +21,27 @@ public interface KafkaConsumerTracingContext<K,V> {
   Runnable decorateConsumer(Consumer<ConsumerRecord<K,V>> consumer);
 
   <T> Supplier<T> decorateFunction(Function<ConsumerRecord<K,V>, T> func);
+
+  /**
+   * Decorate a consumer which gets the context as an argument instead of thread locals: the span
+   * isn't activated and the MDC isn't assigned, the consumer parents child spans by
+   * {@link #span()} and logs the {@link #mdc()} itself. The decorated runnable finishes the span,
+   * it doesn't touch thread locals, so it's cheap on executors with a thread per task.
+   *
+   * @param consumer the consumer of a record and its context.
+   * @return the decorated runnable.
+   */
+  Runnable decorateContextConsumer(
+      BiConsumer<ConsumerRecord<K,V>, KafkaConsumerTracingContext<K,V>> consumer);
+
+  /**
+   * Decorate a function which gets the context as an argument instead of thread locals, see
+   * {@link #decorateContextConsumer(BiConsumer)}.
+   *
+   * @param func the function of a record and its context.
+   * @param <T> a type of the result.
+   * @return the decorated supplier.
+   */
+  <T> Supplier<T> decorateContextFunction(
+      BiFunction<ConsumerRecord<K,V>, KafkaConsumerTracingContext<K,V>, T> func);
 }
@@ -1,13 +1,69 @@
 package me.dmexe.telemetry.kafka;
 
 import io.opentracing.Tracer;
+import me.dmexe.telemetry.core.sampler.Sampler;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
 
 public interface KafkaConsumerTracingFactory<K,V> {
   KafkaConsumerTracingFactory<K,V> tracer(Tracer tracer);
 
+  /**
+   * Assign a head {@link Sampler}, it decides by a record topic whether a span is created, an
+   * unsampled record gets a no-op span and only the MDC.
+   *
+   * @param sampler the sampler.
+   * @return the factory.
+   */
+  KafkaConsumerTracingFactory<K,V> sampler(Sampler sampler);
+
+  /**
+   * Assign a sampler of records of a batch context, a sampled record gets its own span. The
+   * default sampler never samples, so a batch gets only spans of the batch and its partitions.
+   *
+   * @param recordSampler the sampler.
+   * @return the factory.
+   */
+  KafkaConsumerTracingFactory<K,V> recordSampler(Sampler recordSampler);
+
+  /**
+   * Assign a strategy of the MDC of decorated consumers and functions, the default strategy is
+   * {@link MdcStrategy#replace()}.
+   *
+   * @param mdcStrategy the strategy.
+   * @return the factory.
+   */
+  KafkaConsumerTracingFactory<K,V> mdcStrategy(MdcStrategy mdcStrategy);
+
+  /**
+   * Assign a format of record keys in spans and the MDC, the default format is
+   * {@link KeyFormat#truncate(int)} with {@value KeyFormat#DEFAULT_MAX_LENGTH} characters.
+   *
+   * @param keyFormat the format.
+   * @return the factory.
+   */
+  KafkaConsumerTracingFactory<K,V> keyFormat(KeyFormat keyFormat);
+
+  /**
+   * Assign a tracker of the processing lag, an offset of a record is tracked when a decorated
+   * consumer or function of its context, or of a batch context, completes successfully.
+   *
+   * @param lagTracker the tracker.
+   * @return the factory.
+   */
+  KafkaConsumerTracingFactory<K,V> lagTracker(KafkaConsumerLagTracker lagTracker);
+
   KafkaConsumerTracingContext<K,V> create(ConsumerRecord<K,V> record);
 
+  /**
+   * Create a context of records returned by a poll. The batch span is sampled by the topic of
+   * the first partition, records are sampled by the record sampler.
+   *
+   * @param records the records.
+   * @return the context of the batch.
+   */
+  KafkaConsumerBatchTracingContext<K,V> create(ConsumerRecords<K,V> records);
+
   static <K,V> KafkaConsumerTracingFactory<K,V> newFactory(Class<K> keyClass, Class<V> valueClass) {
     return new DefaultKafkaConsumerTracingFactory<>();
   }
@@ -0,0 +1,348 @@
+package me.dmexe.telemetry.kafka;
+
+import io.opentracing.ActiveSpan;
+import io.opentracing.Tracer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import me.dmexe.telemetry.core.Clock;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+import me.dmexe.telemetry.core.metrics.Gauge;
+import me.dmexe.telemetry.core.metrics.MetricDescriptor;
+import me.dmexe.telemetry.core.metrics.MetricsBackend;
+import me.dmexe.telemetry.core.tracer.Tracers;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.MDC;
+
+/**
+ * Processes records of a poll on an executor with one ordered lane per partition: records of a
+ * partition are processed one by one in the offset order, also across polls, and partitions are
+ * processed in parallel. A record is processed in a context of the tracing factory, its span is a
+ * child of the span which was active when the records were submitted, and the MDC of the
+ * submitting thread is added to the MDC of the record while the record is processed.
+ *
+ * <p>The executor exports the processing latency as
+ * {@code kafka_consumer_partition_processing_seconds} and the number of submitted but not
+ * processed records as {@code kafka_consumer_partition_queued_records}, both with {@code topic}
+ * and {@code partition} labels.
+ *
+ * <p>A failed record stops its lane, later records of the partition aren't processed until the
+ * partition is removed by {@link #remove(Collection)}, for example after a seek or a rebalance.
+ * Records submitted after a removal wait for the records of the removed lane, so a reassigned
+ * partition keeps the offset order. Records and removals of a partition should be submitted from
+ * a single thread, like the polling thread of a consumer.
+ *
+ * <pre>{@code
+ * KafkaPartitionExecutor<K,V> executor = KafkaPartitionExecutor.builder(tracingFactory)
+ *     .executor(Executors.newFixedThreadPool(4))
+ *     .build();
+ * while (running) {
+ *   consumer.commitSync(executor.submit(consumer.poll(timeout), this::handle).join());
+ * }
+ * }</pre>
+ */
+public final class KafkaPartitionExecutor<K,V> {
+  private static final String[] LABEL_NAMES = new String[] {"topic", "partition"};
+
+  private static final MetricDescriptor latencyMetric = MetricDescriptor.of(
+      "kafka_consumer_partition_processing_seconds",
+      "Processing latency of records of a partition.",
+      LABEL_NAMES);
+
+  private static final MetricDescriptor queuedMetric = MetricDescriptor.of(
+      "kafka_consumer_partition_queued_records",
+      "Records of a partition submitted to a lane and not processed yet.",
+      LABEL_NAMES);
+
+  private final KafkaConsumerTracingFactory<K,V> tracingFactory;
+  private final Executor executor;
+  private final Tracer tracer;
+  private final Clock clock;
+  private final LatencyHistogram latency;
+  private final Gauge queued;
+  private final Map<TopicPartition, Lane> lanes;
+  private final Map<TopicPartition, CompletableFuture<Void>> removed;
+
+  private KafkaPartitionExecutor(Builder<K,V> builder) {
+    final MetricsBackend metricsBackend = builder.metricsBackend == null
+        ? MetricsBackend.limited(MetricsBackend.prometheus())
+        : builder.metricsBackend;
+    this.tracingFactory = builder.tracingFactory;
+    this.executor = builder.executor;
+    this.tracer = Tracers.resolve(builder.tracer);
+    this.clock = builder.clock;
+    this.latency = metricsBackend.timer(latencyMetric);
+    this.queued = metricsBackend.gauge(queuedMetric);
+    this.lanes = new ConcurrentHashMap<>();
+    this.removed = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Create a builder of an executor which processes records in contexts of the given factory.
+   *
+   * @param tracingFactory the factory.
+   * @param <K> a type of record keys.
+   * @param <V> a type of record values.
+   * @return the builder.
+   */
+  public static <K,V> Builder<K,V> builder(KafkaConsumerTracingFactory<K,V> tracingFactory) {
+    return new Builder<>(tracingFactory);
+  }
+
+  /**
+   * Submit records of a poll to the lanes of their partitions.
+   *
+   * @param records the records.
+   * @param consumer the consumer of a record.
+   * @return a future of offsets to commit, it's completed when all the lanes have processed the
+   *     submitted records, or completed exceptionally when any of them failed.
+   */
+  public CompletableFuture<Map<TopicPartition, OffsetAndMetadata>> submit(
+      ConsumerRecords<K,V> records, Consumer<ConsumerRecord<K,V>> consumer) {
+    Objects.requireNonNull(records, "records cannot be null");
+    Objects.requireNonNull(consumer, "consumer cannot be null");
+
+    final ActiveSpan parent = tracer.activeSpan();
+    final Map<String,String> mdc = MDC.getCopyOfContextMap();
+    final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[records.partitions().size()];
+
+    int index = 0;
+    for (TopicPartition partition : records.partitions()) {
+      final List<ConsumerRecord<K,V>> partitionRecords = records.records(partition);
+      final Lane lane = lanes.computeIfAbsent(partition, this::newLane);
+      final ActiveSpan.Continuation continuation = parent == null ? null : parent.capture();
+      futures[index++] = lane.submit(partitionRecords, continuation, mdc, consumer);
+      offsets.put(
+          partition,
+          new OffsetAndMetadata(partitionRecords.get(partitionRecords.size() - 1).offset() + 1));
+    }
+
+    return CompletableFuture.allOf(futures).thenApply(ignored -> offsets);
+  }
+
+  /**
+   * Remove lanes of partitions, for example when they are revoked from the consumer. Records
+   * which were already submitted are still processed, a caller should wait for them before it
+   * commits offsets or seeks.
+   *
+   * @param partitions the partitions.
+   * @return a future which is completed when the removed lanes have processed or dropped the
+   *     submitted records, it's never completed exceptionally.
+   */
+  public CompletableFuture<Void> remove(Collection<TopicPartition> partitions) {
+    Objects.requireNonNull(partitions, "partitions cannot be null");
+    final List<CompletableFuture<Void>> futures = new ArrayList<>(partitions.size());
+    for (TopicPartition partition : partitions) {
+      final Lane lane = lanes.get(partition);
+      if (lane == null) {
+        continue;
+      }
+
+      final CompletableFuture<Void> drained = lane.drained();
+      removed.put(partition, drained);
+      lanes.remove(partition, lane);
+      drained.thenRun(() -> removed.remove(partition, drained));
+      futures.add(drained);
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+  }
+
+  private Lane newLane(TopicPartition partition) {
+    // a lane of a reassigned partition starts after the removed lane
+    final CompletableFuture<Void> previous = removed.remove(partition);
+    return new Lane(
+        partition,
+        previous == null ? CompletableFuture.completedFuture(null) : previous);
+  }
+
+  private class Lane {
+    private final LatencyHistogram.Child partitionLatency;
+    private final Gauge.Child partitionQueued;
+    private CompletableFuture<Void> tail;
+
+    Lane(TopicPartition partition, CompletableFuture<Void> tail) {
+      final String partitionId = Integer.toString(partition.partition());
+      this.partitionLatency = latency.labels(partition.topic(), partitionId);
+      this.partitionQueued = queued.labels(partition.topic(), partitionId);
+      this.tail = tail;
+    }
+
+    /**
+     * A future of the submitted records which ignores a failure of the lane.
+     */
+    synchronized CompletableFuture<Void> drained() {
+      return tail.handle((ignored, err) -> null);
+    }
+
+    synchronized CompletableFuture<Void> submit(List<ConsumerRecord<K,V>> records,
+                                                @Nullable ActiveSpan.Continuation continuation,
+                                                @Nullable Map<String,String> mdc,
+                                                Consumer<ConsumerRecord<K,V>> consumer) {
+      partitionQueued.inc(records.size());
+      tail = tail.handleAsync((ignored, err) -> {
+        final ActiveSpan parent = continuation == null ? null : continuation.activate();
+        try {
+          if (err != null) {
+            partitionQueued.inc(-records.size());
+            throw err instanceof CompletionException
+                ? (CompletionException) err
+                : new CompletionException(err);
+          }
+          consume(records, mdc, consumer);
+          return null;
+        } finally {
+          if (parent != null) {
+            parent.deactivate();
+          }
+        }
+      }, executor);
+      return tail;
+    }
+
+    private void consume(List<ConsumerRecord<K,V>> records, @Nullable Map<String,String> mdc,
+                         Consumer<ConsumerRecord<K,V>> consumer) {
+      final Consumer<ConsumerRecord<K,V>> withMdc =
+          mdc == null || mdc.isEmpty() ? consumer : record -> acceptWithMdc(record, mdc, consumer);
+
+      int processed = 0;
+      try {
+        for (; processed < records.size(); processed++) {
+          final long startedAt = clock.nanoTime();
+          try {
+            tracingFactory.create(records.get(processed)).decorateConsumer(withMdc).run();
+          } finally {
+            partitionLatency.observeNanos(clock.nanoTime() - startedAt);
+            partitionQueued.dec();
+          }
+        }
+      } finally {
+        if (processed + 1 < records.size()) {
+          partitionQueued.inc(-(records.size() - processed - 1));
+        }
+      }
+    }
+  }
+
+  /**
+   * Put the MDC of a submitting thread for the duration of a record, except the {@code kafka:*}
+   * keys assigned by the context of the record, previous values are restored afterwards.
+   */
+  private static <K,V> void acceptWithMdc(ConsumerRecord<K,V> record, Map<String,String> mdc,
+                                          Consumer<ConsumerRecord<K,V>> consumer) {
+    final String[] keys = new String[mdc.size()];
+    final String[] previous = new String[mdc.size()];
+    int count = 0;
+    for (Map.Entry<String,String> entry : mdc.entrySet()) {
+      final String key = entry.getKey();
+      if (!key.startsWith(KafkaConstants.MDC_PREFIX)) {
+        keys[count] = key;
+        previous[count] = MDC.get(key);
+        count++;
+        MDC.put(key, entry.getValue());
+      }
+    }
+
+    try {
+      consumer.accept(record);
+    } finally {
+      for (int i = 0; i < count; i++) {
+        if (previous[i] == null) {
+          MDC.remove(keys[i]);
+        } else {
+          MDC.put(keys[i], previous[i]);
+        }
+      }
+    }
+  }
+
+  public static class Builder<K,V> {
+    private final KafkaConsumerTracingFactory<K,V> tracingFactory;
+
+    @Nullable
+    private Executor executor;
+
+    @Nullable
+    private Tracer tracer;
+
+    @Nullable
+    private MetricsBackend metricsBackend;
+
+    private Clock clock;
+
+    Builder(KafkaConsumerTracingFactory<K,V> tracingFactory) {
+      Objects.requireNonNull(tracingFactory, "tracingFactory cannot be null");
+      this.tracingFactory = tracingFactory;
+      this.clock = Clock.system();
+    }
+
+    /**
+     * Assign an executor of the lanes, it's required.
+     *
+     * @param executor the executor.
+     * @return the builder.
+     */
+    public Builder<K,V> executor(Executor executor) {
+      Objects.requireNonNull(executor, "executor cannot be null");
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Assign a tracer whose active span is propagated into the lanes, it should be the tracer of
+     * the tracing factory.
+     *
+     * @param tracer the tracer.
+     * @return the builder.
+     */
+    public Builder<K,V> tracer(Tracer tracer) {
+      Objects.requireNonNull(tracer, "tracer cannot be null");
+      this.tracer = tracer;
+      return this;
+    }
+
+    /**
+     * Assign a {@link MetricsBackend}, by default metrics are simpleclient collectors in the
+     * default registry with a limited number of label values.
+     *
+     * @param metricsBackend the backend.
+     * @return the builder.
+     */
+    public Builder<K,V> metricsBackend(MetricsBackend metricsBackend) {
+      Objects.requireNonNull(metricsBackend, "metricsBackend cannot be null");
+      this.metricsBackend = metricsBackend;
+      return this;
+    }
+
+    /**
+     * Assign a clock, it's only for testing.
+     */
+    Builder<K,V> clock(Clock clock) {
+      Objects.requireNonNull(clock, "clock cannot be null");
+      this.clock = clock;
+      return this;
+    }
+
+    /**
+     * Create the executor.
+     *
+     * @return the executor.
+     */
+    public KafkaPartitionExecutor<K,V> build() {
+      Objects.requireNonNull(executor, "executor cannot be null");
+      return new KafkaPartitionExecutor<>(this);
+    }
+  }
+}
@@ -1,49 +1,47 @@
 package me.dmexe.telemetry.kafka;
 
-import static me.dmexe.telemetry.kafka.GaugesFactory.gauge;
-
-import io.prometheus.client.Collector;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Objects;
+import me.dmexe.telemetry.core.metrics.SampleWriter;
+import me.dmexe.telemetry.core.metrics.StreamingCollector;
+import org.apache.kafka.common.MetricName;
+import org.jetbrains.annotations.Nullable;
 
-public class KafkaProducerMetricsCollector extends Collector {
+public class KafkaProducerMetricsCollector extends StreamingCollector {
   private final KafkaMetricsProducer producer;
+  private final GaugeFamilies families;
 
+  /**
+   * Create a collector of producer metrics.
+   *
+   * @param producer the source of metrics, for example {@code producer::metrics}.
+   */
   public KafkaProducerMetricsCollector(KafkaMetricsProducer producer) {
     Objects.requireNonNull(producer, "metrics producer cannot be null");
     this.producer = producer;
+    this.families = new GaugeFamilies(KafkaProducerMetricsCollector::parse);
   }
 
   @Override
-  public List<MetricFamilySamples> collect() {
-    final List<MetricFamilySamples> samples = new LinkedList<>();
-
-    producer.metrics().forEach((name, metric) -> {
-      if (name.group().equals("producer-metrics")) {
-        final String clientId = name.tags().get("client-id");
-
-        if (clientId != null) {
-          final List<String> labelValues = new ArrayList<>(1);
-          labelValues.add(clientId);
-
-          samples.add(gauge(name, "client_id").addMetric(labelValues, metric.value()));
-        }
-      } else if (name.group().equals("producer-topic-metrics")) {
-        final String clientId = name.tags().get("client-id");
-        final String topic = name.tags().get("topic");
+  public void collect(SampleWriter writer) {
+    families.collect(producer.metrics(), writer);
+  }
 
-        if (clientId != null && topic != null) {
-          final List<String> labelValues = new ArrayList<>(2);
-          labelValues.add(clientId);
-          labelValues.add(topic);
+  @Nullable
+  private static KafkaSeries parse(MetricName name) {
+    if (name.group().equals("producer-metrics")) {
+      final String clientId = name.tags().get("client-id");
 
-          samples.add(gauge(name, "client_id", "topic").addMetric(labelValues, metric.value()));
-        }
+      if (clientId != null) {
+        return KafkaSeries.of(name, clientId);
       }
-    });
+    } else if (name.group().equals("producer-topic-metrics")) {
+      final String clientId = name.tags().get("client-id");
+      final String topic = name.tags().get("topic");
 
-    return samples;
+      if (clientId != null && topic != null) {
+        return KafkaSeries.of(name, clientId, topic);
+      }
+    }
+    return null;
   }
 }
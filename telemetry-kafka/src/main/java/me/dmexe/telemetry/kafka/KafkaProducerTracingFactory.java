@@ -1,11 +1,20 @@
 package me.dmexe.telemetry.kafka;
 
 import io.opentracing.Tracer;
+import me.dmexe.telemetry.core.sampler.Sampler;
 import org.apache.kafka.clients.producer.ProducerRecord;
 
 public interface KafkaProducerTracingFactory {
   KafkaProducerTracingFactory tracer(Tracer tracer);
 
+  /**
+   * Assign a head {@link Sampler}, it decides by a record topic whether a span is created.
+   *
+   * @param sampler the sampler.
+   * @return the factory.
+   */
+  KafkaProducerTracingFactory sampler(Sampler sampler);
+
   KafkaProducerTracingContext create(ProducerRecord<?,?> record);
 
   static KafkaProducerTracingFactory newFactory() {
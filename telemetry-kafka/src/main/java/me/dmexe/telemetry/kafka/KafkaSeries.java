@@ -0,0 +1,32 @@
+package me.dmexe.telemetry.kafka;
+
+import org.apache.kafka.common.MetricName;
+
+/**
+ * A name and label values of an exported Kafka metric. Label values are a client id, a topic and
+ * a partition, a series of a client has only the client id.
+ */
+class KafkaSeries {
+  final String name;
+  final String[] labelValues;
+
+  private KafkaSeries(String name, String[] labelValues) {
+    this.name = name;
+    this.labelValues = labelValues;
+  }
+
+  static KafkaSeries of(MetricName metricName, String... labelValues) {
+    return of(metricName.group(), metricName.name(), labelValues);
+  }
+
+  static KafkaSeries of(String group, String name, String... labelValues) {
+    if (labelValues.length < 1 || labelValues.length > 3) {
+      throw new IllegalArgumentException("expected 1 to 3 labels, got " + labelValues.length);
+    }
+    return new KafkaSeries("kafka_" + safe(group) + "_" + safe(name), labelValues);
+  }
+
+  private static String safe(String value) {
+    return value.replace('-', '_');
+  }
+}
@@ -0,0 +1,123 @@
+package me.dmexe.telemetry.kafka;
+
+import java.util.Arrays;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Formats a record key for the {@code kafka.key} span tag and the {@code kafka:key} MDC key, a
+ * key is formatted once per record and only when a span or the MDC needs it.
+ */
+public abstract class KeyFormat {
+
+  /**
+   * A default max length of a formatted key, see {@link #truncate(int)}.
+   */
+  public static final int DEFAULT_MAX_LENGTH = 256;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  KeyFormat() {
+  }
+
+  @Nullable
+  abstract String format(@Nullable Object key);
+
+  /**
+   * A format which truncates a key to the max length, a string key is used as is, a byte array
+   * key is formatted in hex and any other key by {@link Object#toString()}. It's the default
+   * format with {@value #DEFAULT_MAX_LENGTH} characters.
+   *
+   * @param maxLength the max number of characters.
+   * @return the format.
+   */
+  public static KeyFormat truncate(int maxLength) {
+    if (maxLength < 1) {
+      throw new IllegalArgumentException("maxLength must be positive");
+    }
+    return new Truncate(maxLength);
+  }
+
+  /**
+   * A format which writes a hex hash code of a key instead of the key, so an expensive
+   * {@link Object#toString()} of Avro or Protobuf keys isn't called.
+   *
+   * @return the format.
+   */
+  public static KeyFormat hash() {
+    return Hash.INSTANCE;
+  }
+
+  /**
+   * A format which skips keys, neither the span tag nor the MDC key is assigned.
+   *
+   * @return the format.
+   */
+  public static KeyFormat none() {
+    return None.INSTANCE;
+  }
+
+  private static class Truncate extends KeyFormat {
+    private final int maxLength;
+
+    Truncate(int maxLength) {
+      this.maxLength = maxLength;
+    }
+
+    @Nullable
+    @Override
+    String format(@Nullable Object key) {
+      if (key == null) {
+        return null;
+      }
+      if (key instanceof byte[]) {
+        return hex((byte[]) key);
+      }
+      return truncate(key.toString());
+    }
+
+    private String truncate(String value) {
+      if (value.length() <= maxLength) {
+        return value;
+      }
+      // don't split a surrogate pair
+      final int end = Character.isHighSurrogate(value.charAt(maxLength - 1))
+          ? maxLength - 1
+          : maxLength;
+      return value.substring(0, end);
+    }
+
+    private String hex(byte[] bytes) {
+      final int length = Math.min(bytes.length, maxLength / 2);
+      final char[] chars = new char[length * 2];
+      for (int i = 0; i < length; i++) {
+        chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+        chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+      }
+      return new String(chars);
+    }
+  }
+
+  private static class Hash extends KeyFormat {
+    private static final Hash INSTANCE = new Hash();
+
+    @Nullable
+    @Override
+    String format(@Nullable Object key) {
+      if (key == null) {
+        return null;
+      }
+      final int hash = key instanceof byte[] ? Arrays.hashCode((byte[]) key) : key.hashCode();
+      return Integer.toHexString(hash);
+    }
+  }
+
+  private static class None extends KeyFormat {
+    private static final None INSTANCE = new None();
+
+    @Nullable
+    @Override
+    String format(@Nullable Object key) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package me.dmexe.telemetry.kafka;
+
+import static me.dmexe.telemetry.kafka.KafkaConstants.MDC_KEY;
+import static me.dmexe.telemetry.kafka.KafkaConstants.MDC_OFFSET;
+import static me.dmexe.telemetry.kafka.KafkaConstants.MDC_PARTITION;
+import static me.dmexe.telemetry.kafka.KafkaConstants.MDC_TOPIC;
+
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.MDC;
+
+/**
+ * Decides how a decorated consumer, or a decorated consumer of a batch, assigns the
+ * {@code kafka:*} keys of a record to the {@link MDC}.
+ */
+public abstract class MdcStrategy {
+  private static final Scope NOOP_SCOPE = () -> { };
+
+  MdcStrategy() {
+  }
+
+  /**
+   * Assign the MDC of a record, the returned scope restores the MDC.
+   *
+   * @param context the context of the record.
+   * @return the scope.
+   */
+  abstract Scope apply(DefaultKafkaConsumerTracingContext<?,?> context);
+
+  /**
+   * Open the MDC of a batch, the batch puts the keys of every record while the scope is open.
+   *
+   * @return the scope which restores the MDC, {@code null} when the MDC isn't touched.
+   */
+  @Nullable
+  abstract Scope applyBatch();
+
+  /**
+   * A strategy which replaces the whole MDC by the MDC of a record and clears it afterwards, it's
+   * the default strategy.
+   *
+   * @return the strategy.
+   */
+  public static MdcStrategy replace() {
+    return Replace.INSTANCE;
+  }
+
+  /**
+   * A strategy which puts only the {@code kafka:*} keys into the MDC and restores their previous
+   * values afterwards, so the MDC of a caller is kept and isn't copied for every record.
+   *
+   * @return the strategy.
+   */
+  public static MdcStrategy merge() {
+    return merge(() -> true);
+  }
+
+  /**
+   * A strategy which merges the {@code kafka:*} keys like {@link #merge()} only when the given
+   * condition is true, for example {@code log::isDebugEnabled}, otherwise the MDC isn't touched
+   * and values of the keys aren't built.
+   *
+   * @param enabled the condition checked for every record.
+   * @return the strategy.
+   */
+  public static MdcStrategy merge(BooleanSupplier enabled) {
+    Objects.requireNonNull(enabled, "enabled cannot be null");
+    return new Merge(enabled);
+  }
+
+  @FunctionalInterface
+  interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private static class Replace extends MdcStrategy {
+    private static final Replace INSTANCE = new Replace();
+    private static final Scope CLEAR_SCOPE = MDC::clear;
+
+    @Override
+    Scope apply(DefaultKafkaConsumerTracingContext<?, ?> context) {
+      MDC.setContextMap(context.mdc());
+      return CLEAR_SCOPE;
+    }
+
+    @Override
+    Scope applyBatch() {
+      MDC.clear();
+      return CLEAR_SCOPE;
+    }
+  }
+
+  private static class Merge extends MdcStrategy {
+    private final BooleanSupplier enabled;
+
+    Merge(BooleanSupplier enabled) {
+      this.enabled = enabled;
+    }
+
+    @Override
+    Scope apply(DefaultKafkaConsumerTracingContext<?, ?> context) {
+      if (!enabled.getAsBoolean()) {
+        return NOOP_SCOPE;
+      }
+
+      final MergeScope scope = new MergeScope();
+      final ConsumerRecord<?,?> record = context.record();
+      MDC.put(MDC_TOPIC, record.topic());
+      MDC.put(MDC_PARTITION, Integer.toString(record.partition()));
+      MDC.put(MDC_OFFSET, context.offset());
+      final String key = context.key();
+      if (key != null) {
+        MDC.put(MDC_KEY, key);
+      } else {
+        MDC.remove(MDC_KEY);
+      }
+      return scope;
+    }
+
+    @Nullable
+    @Override
+    Scope applyBatch() {
+      return enabled.getAsBoolean() ? new MergeScope() : null;
+    }
+  }
+
+  private static class MergeScope implements Scope {
+    @Nullable
+    private final String topic;
+
+    @Nullable
+    private final String partition;
+
+    @Nullable
+    private final String offset;
+
+    @Nullable
+    private final String key;
+
+    MergeScope() {
+      this.topic = MDC.get(MDC_TOPIC);
+      this.partition = MDC.get(MDC_PARTITION);
+      this.offset = MDC.get(MDC_OFFSET);
+      this.key = MDC.get(MDC_KEY);
+    }
+
+    @Override
+    public void close() {
+      restore(MDC_TOPIC, topic);
+      restore(MDC_PARTITION, partition);
+      restore(MDC_OFFSET, offset);
+      restore(MDC_KEY, key);
+    }
+
+    private static void restore(String key, @Nullable String value) {
+      if (value == null) {
+        MDC.remove(key);
+      } else {
+        MDC.put(key, value);
+      }
+    }
+  }
+}
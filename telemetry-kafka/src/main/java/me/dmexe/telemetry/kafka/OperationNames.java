@@ -0,0 +1,31 @@
+package me.dmexe.telemetry.kafka;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches operation names of spans by topics, so a name isn't concatenated for every record. The
+ * number of cached topics is limited, a name of a topic above the limit is concatenated.
+ */
+class OperationNames {
+  private static final int MAX_TOPICS = 1024;
+
+  private final String prefix;
+  private final Map<String, String> names;
+
+  OperationNames(String prefix) {
+    this.prefix = prefix;
+    this.names = new ConcurrentHashMap<>();
+  }
+
+  String get(String topic) {
+    String name = names.get(topic);
+    if (name == null) {
+      name = prefix + topic;
+      if (names.size() < MAX_TOPICS) {
+        names.putIfAbsent(topic, name);
+      }
+    }
+    return name;
+  }
+}
@@ -0,0 +1,83 @@
+package me.dmexe.telemetry.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import me.dmexe.telemetry.core.metrics.ExpositionWriter;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.jupiter.api.Test;
+
+class GaugeFamiliesTest {
+
+  @Test
+  void should_parse_metric_names_once() {
+    final AtomicInteger parsed = new AtomicInteger();
+    final GaugeFamilies families = new GaugeFamilies(name -> {
+      parsed.incrementAndGet();
+      final String topic = name.tags().get("topic");
+      if (name.group().equals("skipped")) {
+        return null;
+      }
+      return topic == null
+          ? KafkaSeries.of(name, name.tags().get("client-id"))
+          : KafkaSeries.of(name, name.tags().get("client-id"), topic);
+    });
+    final Map<MetricName, Metric> metrics = new LinkedHashMap<>();
+    final MetricName first = put(metrics, "record-send-rate", "producer-topic-metrics", "a", 1.0);
+    put(metrics, "record-send-rate", "producer-topic-metrics", "b", 2.0);
+    put(metrics, "batch-size-avg", "producer-metrics", null, 3.0);
+    put(metrics, "ignored", "skipped", null, 4.0);
+
+    assertThat(collect(families, metrics)).isEqualTo(""
+        + "# HELP kafka_producer_topic_metrics_record_send_rate help\n"
+        + "# TYPE kafka_producer_topic_metrics_record_send_rate gauge\n"
+        + "kafka_producer_topic_metrics_record_send_rate{client_id=\"client\",topic=\"a\",} 1.0\n"
+        + "kafka_producer_topic_metrics_record_send_rate{client_id=\"client\",topic=\"b\",} 2.0\n"
+        + "# HELP kafka_producer_metrics_batch_size_avg help\n"
+        + "# TYPE kafka_producer_metrics_batch_size_avg gauge\n"
+        + "kafka_producer_metrics_batch_size_avg{client_id=\"client\",} 3.0\n");
+    assertThat(collect(families, metrics)).contains("topic=\"a\",} 1.0\n");
+    assertThat(parsed).hasValue(4);
+
+    metrics.remove(first);
+    put(metrics, "record-send-rate", "producer-topic-metrics", "c", 5.0);
+
+    assertThat(collect(families, metrics))
+        .doesNotContain("topic=\"a\"")
+        .contains("topic=\"b\",} 2.0\n")
+        .contains("topic=\"c\",} 5.0\n");
+    assertThat(parsed).hasValue(5);
+  }
+
+  private static String collect(GaugeFamilies families, Map<MetricName, Metric> metrics) {
+    final ExpositionWriter writer = new ExpositionWriter();
+    families.collect(metrics, writer);
+    return writer.toString();
+  }
+
+  private static MetricName put(Map<MetricName, Metric> metrics, String name, String group,
+                                String topic, double value) {
+    final Map<String, String> tags = new HashMap<>();
+    tags.put("client-id", "client");
+    if (topic != null) {
+      tags.put("topic", topic);
+    }
+    final MetricName metricName = new MetricName(name, group, "help", tags);
+    metrics.put(metricName, new Metric() {
+      @Override
+      public MetricName metricName() {
+        return metricName;
+      }
+
+      @Override
+      public double value() {
+        return value;
+      }
+    });
+    return metricName;
+  }
+}
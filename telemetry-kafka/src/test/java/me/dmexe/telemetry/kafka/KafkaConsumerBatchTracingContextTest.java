@@ -0,0 +1,168 @@
+package me.dmexe.telemetry.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.util.ThreadLocalActiveSpanSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import me.dmexe.telemetry.core.sampler.Sampler;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+class KafkaConsumerBatchTracingContextTest {
+  private MockTracer tracer;
+  private KafkaConsumerTracingFactory<String,String> tracingFactory;
+
+  @BeforeEach
+  void before() {
+    tracer = new MockTracer(new ThreadLocalActiveSpanSource());
+    tracingFactory = KafkaConsumerTracingFactory.newFactory(String.class, String.class)
+        .tracer(tracer);
+  }
+
+  @Test
+  void should_trace_batch_by_partitions() {
+    final KafkaConsumerBatchTracingContext<String,String> ctx = tracingFactory.create(records());
+    final List<Map<String,String>> mdc = new ArrayList<>();
+
+    ctx.decorateConsumer(record -> {
+      assertThat(ctx.mdc()).isEqualTo(MDC.getCopyOfContextMap());
+      mdc.add(new HashMap<>(ctx.mdc()));
+      assertThat(tracer.activeSpan()).isNotNull();
+    }).run();
+
+    assertThat(mdc).hasSize(3);
+    assertThat(mdc.get(0))
+        .containsEntry("kafka:topic", "a")
+        .containsEntry("kafka:partition", "0")
+        .containsEntry("kafka:offset", "10")
+        .containsEntry("kafka:key", "key");
+    assertThat(mdc.get(1)).containsEntry("kafka:offset", "11").doesNotContainKey("kafka:key");
+    assertThat(mdc.get(2))
+        .containsEntry("kafka:topic", "b")
+        .containsEntry("kafka:partition", "1")
+        .containsEntry("kafka:offset", "20");
+    assertThat(ctx.mdc()).isEmpty();
+    assertThat(MDC.getCopyOfContextMap()).isNullOrEmpty();
+
+    assertThat(tracer.finishedSpans()).hasSize(3);
+    final MockSpan batch = span("kafka.consume_batch");
+    assertThat(batch.tags())
+        .containsEntry("kafka.records", 3)
+        .containsEntry("kafka.partitions", 2);
+
+    final MockSpan partition = span("kafka.consume_partition a");
+    assertThat(partition.parentId()).isEqualTo(batch.context().spanId());
+    assertThat(partition.tags())
+        .containsEntry("kafka.topic", "a")
+        .containsEntry("kafka.partition", 0)
+        .containsEntry("kafka.records", 2)
+        .containsEntry("kafka.first_offset", "10")
+        .containsEntry("kafka.last_offset", "11");
+    assertThat(span("kafka.consume_partition b").parentId()).isEqualTo(batch.context().spanId());
+  }
+
+  @Test
+  void should_trace_sampled_records() {
+    tracingFactory.recordSampler(topic -> topic.equals("b"));
+    tracingFactory.create(records()).decorateConsumer(record -> { }).run();
+
+    assertThat(tracer.finishedSpans()).hasSize(4);
+    assertThat(span("kafka.consume b").parentId())
+        .isEqualTo(span("kafka.consume_partition b").context().spanId());
+  }
+
+  @Test
+  void should_not_trace_unsampled_batch() {
+    tracingFactory.sampler(Sampler.never());
+    final KafkaConsumerBatchTracingContext<String,String> ctx = tracingFactory.create(records());
+    final List<String> offsets = new ArrayList<>();
+
+    ctx.decorateConsumer(record -> offsets.add(ctx.mdc().get("kafka:offset"))).run();
+
+    assertThat(offsets).containsExactly("10", "11", "20");
+    assertThat(tracer.finishedSpans()).isEmpty();
+  }
+
+  @Test
+  void should_merge_mdc() {
+    tracingFactory.mdcStrategy(MdcStrategy.merge());
+    MDC.put("request", "1");
+    MDC.put("kafka:topic", "outer");
+    final List<Map<String,String>> mdc = new ArrayList<>();
+
+    try {
+      tracingFactory.create(records())
+          .decorateConsumer(record -> mdc.add(MDC.getCopyOfContextMap()))
+          .run();
+
+      assertThat(mdc).hasSize(3);
+      assertThat(mdc.get(0))
+          .containsEntry("request", "1")
+          .containsEntry("kafka:topic", "a")
+          .containsEntry("kafka:offset", "10");
+      assertThat(MDC.getCopyOfContextMap())
+          .containsEntry("request", "1")
+          .containsEntry("kafka:topic", "outer")
+          .doesNotContainKeys("kafka:partition", "kafka:offset", "kafka:key");
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  @Test
+  void should_not_merge_mdc_when_disabled() {
+    tracingFactory.mdcStrategy(MdcStrategy.merge(() -> false));
+    final KafkaConsumerBatchTracingContext<String,String> ctx = tracingFactory.create(records());
+    final List<String> offsets = new ArrayList<>();
+
+    ctx.decorateConsumer(record -> offsets.add(MDC.get("kafka:offset"))).run();
+
+    assertThat(offsets).containsExactly(null, null, null);
+    assertThat(ctx.mdc()).isEmpty();
+  }
+
+  @Test
+  void should_handle_exception() {
+    tracingFactory.recordSampler(Sampler.always());
+    final Runnable runnable = tracingFactory.create(records()).decorateConsumer(record -> {
+      throw new IllegalStateException("boom");
+    });
+
+    assertThatThrownBy(runnable::run).isInstanceOf(IllegalStateException.class);
+    assertThat(MDC.getCopyOfContextMap()).isNullOrEmpty();
+    assertThat(span("kafka.consume a").tags()).containsEntry("error", true);
+    assertThat(span("kafka.consume_partition a").tags()).containsEntry("error", true);
+    assertThat(span("kafka.consume_batch").tags()).containsEntry("error", true);
+  }
+
+  private MockSpan span(String operationName) {
+    return tracer.finishedSpans().stream()
+        .filter(span -> span.operationName().equals(operationName))
+        .findFirst()
+        .orElseThrow(() -> new AssertionError("no span " + operationName));
+  }
+
+  private static ConsumerRecords<String,String> records() {
+    final Map<TopicPartition, List<ConsumerRecord<String,String>>> records =
+        new LinkedHashMap<>();
+    final List<ConsumerRecord<String,String>> first = new ArrayList<>();
+    first.add(new ConsumerRecord<>("a", 0, 10, "key", "value"));
+    first.add(new ConsumerRecord<>("a", 0, 11, null, "value"));
+    records.put(new TopicPartition("a", 0), first);
+    final List<ConsumerRecord<String,String>> second = new ArrayList<>();
+    second.add(new ConsumerRecord<>("b", 1, 20, "key", "value"));
+    records.put(new TopicPartition("b", 1), second);
+    return new ConsumerRecords<>(records);
+  }
+}
@@ -0,0 +1,100 @@
+package me.dmexe.telemetry.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import me.dmexe.telemetry.core.metrics.ExpositionWriter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+class KafkaConsumerLagTrackerTest {
+
+  @Test
+  void should_export_lag_and_processed_records_of_partitions() {
+    final KafkaConsumerLagTracker tracker = new KafkaConsumerLagTracker("client");
+    for (long offset = 0; offset < 10; offset++) {
+      tracker.record(new ConsumerRecord<>("topic", 1, offset, "key", "value"));
+    }
+    tracker.record(new ConsumerRecord<>("topic", 0, 4, "key", "value"));
+    tracker.endOffsets(Collections.singletonMap(new TopicPartition("topic", 1), 25L));
+
+    assertThat(collect(tracker))
+        .isEqualTo(""
+            + "# HELP kafka_consumer_processing_lag Records between the last processed offset "
+            + "and the end offset of a partition.\n"
+            + "# TYPE kafka_consumer_processing_lag gauge\n"
+            + "kafka_consumer_processing_lag{client_id=\"client\",topic=\"topic\",partition=\"1\",}"
+            + " 15.0\n"
+            + "# HELP kafka_consumer_processed_records_total Processed records of a partition.\n"
+            + "# TYPE kafka_consumer_processed_records_total counter\n"
+            + "kafka_consumer_processed_records_total"
+            + "{client_id=\"client\",topic=\"topic\",partition=\"0\",} 1.0\n"
+            + "kafka_consumer_processed_records_total"
+            + "{client_id=\"client\",topic=\"topic\",partition=\"1\",} 10.0\n");
+
+    tracker.record(new ConsumerRecord<>("topic", 1, 20, "key", "value"));
+    tracker.remove(Collections.singletonList(new TopicPartition("topic", 0)));
+
+    assertThat(collect(tracker))
+        .contains("partition=\"1\",} 4.0\n")
+        .contains("partition=\"1\",} 11.0\n")
+        .doesNotContain("partition=\"0\"");
+  }
+
+  @Test
+  void should_estimate_end_offsets_by_lag_metrics() {
+    final Map<MetricName, Metric> metrics = new LinkedHashMap<>();
+    final KafkaConsumerLagTracker tracker =
+        new KafkaConsumerLagTracker("client", () -> metrics);
+    put(metrics, "topic-a-0.records-lag", Collections.emptyMap(), 7.0);
+    put(metrics, "topic-a-0.records-lag-max", Collections.emptyMap(), 100.0);
+    final Map<String, String> tags = new HashMap<>();
+    tags.put("topic", "b");
+    tags.put("partition", "3");
+    put(metrics, "records-lag", tags, 2.0);
+
+    tracker.record(new ConsumerRecord<>("topic-a", 0, 10, "key", "value"));
+    tracker.record(new ConsumerRecord<>("b", 3, 5, "key", "value"));
+
+    assertThat(collect(tracker))
+        .contains("{client_id=\"client\",topic=\"topic-a\",partition=\"0\",} 7.0\n")
+        .contains("{client_id=\"client\",topic=\"b\",partition=\"3\",} 2.0\n");
+
+    // a lower estimate doesn't decrease the end offset
+    put(metrics, "topic-a-0.records-lag", Collections.emptyMap(), 0.0);
+    tracker.record(new ConsumerRecord<>("topic-a", 0, 12, "key", "value"));
+    assertThat(collect(tracker))
+        .contains("{client_id=\"client\",topic=\"topic-a\",partition=\"0\",} 5.0\n");
+  }
+
+  private static String collect(KafkaConsumerLagTracker tracker) {
+    final ExpositionWriter writer = new ExpositionWriter();
+    writer.write(tracker);
+    return writer.toString();
+  }
+
+  private static void put(Map<MetricName, Metric> metrics, String name, Map<String, String> tags,
+                          double value) {
+    final Map<String, String> allTags = new HashMap<>(tags);
+    allTags.put("client-id", "client");
+    final MetricName metricName =
+        new MetricName(name, "consumer-fetch-manager-metrics", "help", allTags);
+    metrics.put(metricName, new Metric() {
+      @Override
+      public MetricName metricName() {
+        return metricName;
+      }
+
+      @Override
+      public double value() {
+        return value;
+      }
+    });
+  }
+}
@@ -5,11 +5,16 @@ import static org.assertj.core.util.Lists.newArrayList;
 
 import io.prometheus.client.CollectorRegistry;
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.IntStream;
+import me.dmexe.telemetry.core.metrics.ExpositionWriter;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
 import org.assertj.core.api.Condition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -50,4 +55,85 @@ class KafkaConsumerMetricsCollectorTest extends TestEnv {
         .isNotEmpty()
         .areAtLeast(13, new Condition<>(s -> true, "true"));
   }
+
+  @Test
+  void should_collect_partition_metrics() throws Exception {
+    try (
+        KafkaProducer<String, String> producer = newProducer();
+        KafkaConsumer<String, String> consumer = newConsumer()) {
+
+      new KafkaConsumerMetricsCollector(consumer::metrics, true).register(collectorRegistry);
+      consumer.subscribe(newArrayList(topic));
+
+      IntStream.range(0, 10).forEach(n -> {
+        sendAndWait(producer, topic, "key", "value");
+      });
+
+      IntStream.range(0, 10).forEach(n -> {
+        final ConsumerRecords<String, String> records = consumer.poll(subscribeTimeout.toMillis());
+        assertThat(records).isNotEmpty();
+      });
+
+      assertThat(sampleKeys(collectorRegistry))
+          .contains("kafka_consumer_fetch_manager_partition_metrics_records_lag_max{test-client,"
+              + topic + ",0}")
+          .contains("kafka_consumer_fetch_manager_topic_metrics_records_consumed_rate{test-client,"
+              + topic + "}");
+    }
+  }
+
+  @Test
+  void should_parse_partition_metric_names() {
+    final Map<MetricName, Metric> metrics = new LinkedHashMap<>();
+    put(metrics, "records-lag-max", "client-id", "client");
+    put(metrics, "my-topic-12.records-lag-max", "client-id", "client");
+    put(metrics, "my-topic-12.records-lag", "client-id", "client");
+    put(metrics, "records-lag-max", "client-id", "client", "topic", "other", "partition", "3");
+    put(metrics, "bytes-consumed-rate", "client-id", "client", "topic", "my-topic");
+    put(metrics, "my-topic.bytes-consumed-rate", "client-id", "client");
+
+    final String clients = new ExpositionWriter()
+        .write(new KafkaConsumerMetricsCollector(() -> metrics))
+        .toString();
+    final String partitions = new ExpositionWriter()
+        .write(new KafkaConsumerMetricsCollector(() -> metrics, true))
+        .toString();
+
+    assertThat(clients)
+        .contains("kafka_consumer_fetch_manager_metrics_records_lag_max{client_id=\"client\",} 1.0")
+        .doesNotContain("topic=");
+    assertThat(partitions)
+        .contains("kafka_consumer_fetch_manager_metrics_records_lag_max{client_id=\"client\",} 1.0")
+        .containsOnlyOnce(
+            "# TYPE kafka_consumer_fetch_manager_partition_metrics_records_lag_max gauge")
+        .contains("kafka_consumer_fetch_manager_partition_metrics_records_lag_max{"
+            + "client_id=\"client\",topic=\"my-topic\",partition=\"12\",} 1.0")
+        .contains("kafka_consumer_fetch_manager_partition_metrics_records_lag{"
+            + "client_id=\"client\",topic=\"my-topic\",partition=\"12\",} 1.0")
+        .contains("kafka_consumer_fetch_manager_partition_metrics_records_lag_max{"
+            + "client_id=\"client\",topic=\"other\",partition=\"3\",} 1.0")
+        .contains("kafka_consumer_fetch_manager_topic_metrics_bytes_consumed_rate{"
+            + "client_id=\"client\",topic=\"my-topic\",} 1.0")
+        .doesNotContain("my_topic");
+  }
+
+  private static void put(Map<MetricName, Metric> metrics, String name, String... tags) {
+    final Map<String, String> tagMap = new LinkedHashMap<>();
+    for (int i = 0; i < tags.length; i += 2) {
+      tagMap.put(tags[i], tags[i + 1]);
+    }
+    final MetricName metricName =
+        new MetricName(name, "consumer-fetch-manager-metrics", "help", tagMap);
+    metrics.put(metricName, new Metric() {
+      @Override
+      public MetricName metricName() {
+        return metricName;
+      }
+
+      @Override
+      public double value() {
+        return 1.0;
+      }
+    });
+  }
 }
@@ -1,13 +1,17 @@
 package me.dmexe.telemetry.kafka;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.util.Lists.newArrayList;
 
 import io.opentracing.mock.MockSpan;
 import io.opentracing.mock.MockTracer;
 import io.opentracing.util.ThreadLocalActiveSpanSource;
+import io.prometheus.client.CollectorRegistry;
 import java.time.Duration;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
+import me.dmexe.telemetry.core.sampler.Sampler;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
@@ -175,4 +179,135 @@ class KafkaConsumerTracingContextTest extends TestEnv {
 
     assertThat(tracer.finishedSpans()).isNotEmpty();
   }
+
+  @Test
+  void should_decorate_context_consumer() {
+    final ConsumerRecord<String,String> record = new ConsumerRecord<>(topic, 1, 42L, "key", "v");
+    final KafkaConsumerTracingContext<String,String> ctx = tracingFactory.create(record);
+
+    ctx
+        .decorateContextConsumer((rec, context) -> {
+          assertThat(context).isSameAs(ctx);
+          assertThat(context.mdc()).containsEntry("kafka:offset", "42");
+          assertThat(MDC.getCopyOfContextMap()).isNullOrEmpty();
+          assertThat(tracer.activeSpan()).isNull();
+          tracer.buildSpan("child").asChildOf(context.span()).startManual().finish();
+        })
+        .run();
+
+    assertThat(tracer.finishedSpans()).hasSize(2);
+    final MockSpan child = tracer.finishedSpans().get(0);
+    final MockSpan span = tracer.finishedSpans().get(1);
+    assertThat(child.parentId()).isEqualTo(span.context().spanId());
+    assertThat(span.tags()).containsEntry("kafka.offset", "42");
+  }
+
+  @Test
+  void should_decorate_context_function_with_error() {
+    final ConsumerRecord<String,String> record = new ConsumerRecord<>(topic, 1, 42L, "key", "v");
+    final Supplier<Boolean> supplier = tracingFactory.create(record)
+        .decorateContextFunction((rec, context) -> {
+          throw new IllegalStateException("boom");
+        });
+
+    assertThatThrownBy(supplier::get).isInstanceOf(IllegalStateException.class);
+    assertThat(tracer.finishedSpans()).hasSize(1);
+    assertThat(tracer.finishedSpans().get(0).tags()).containsEntry("error", true);
+  }
+
+  @Test
+  void should_not_trace_unsampled_record() {
+    final ConsumerRecord<String,String> record = new ConsumerRecord<>(topic, 1, 42L, "key", "v");
+    tracingFactory.sampler(Sampler.never());
+
+    final boolean res = tracingFactory.create(record)
+        .decorateFunction(rec -> tracer.activeSpan() == null)
+        .get();
+
+    assertThat(res).isTrue();
+    assertThat(tracer.finishedSpans()).isEmpty();
+  }
+
+  @Test
+  void should_merge_mdc() {
+    final ConsumerRecord<String,String> record = new ConsumerRecord<>(topic, 1, 42L, null, "v");
+    tracingFactory.mdcStrategy(MdcStrategy.merge());
+    MDC.put("request", "1");
+    MDC.put("kafka:topic", "outer");
+    MDC.put("kafka:key", "outer");
+
+    try {
+      tracingFactory.create(record)
+          .decorateConsumer(rec -> assertThat(MDC.getCopyOfContextMap())
+              .containsEntry("request", "1")
+              .containsEntry("kafka:topic", topic)
+              .containsEntry("kafka:partition", "1")
+              .containsEntry("kafka:offset", "42")
+              .doesNotContainKey("kafka:key"))
+          .run();
+
+      assertThat(MDC.getCopyOfContextMap())
+          .containsEntry("request", "1")
+          .containsEntry("kafka:topic", "outer")
+          .containsEntry("kafka:key", "outer")
+          .doesNotContainKeys("kafka:partition", "kafka:offset");
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  @Test
+  void should_not_merge_mdc_when_disabled() {
+    final ConsumerRecord<String,String> record = new ConsumerRecord<>(topic, 1, 42L, "key", "v");
+    tracingFactory.mdcStrategy(MdcStrategy.merge(() -> false));
+
+    final boolean res = tracingFactory.create(record)
+        .decorateFunction(rec -> MDC.get("kafka:offset") == null)
+        .get();
+    assertThat(res).isTrue();
+  }
+
+  @Test
+  void should_format_key_by_key_format() {
+    final ConsumerRecord<String,String> record = new ConsumerRecord<>(topic, 1, 42L, "key", "v");
+    final String hash = Integer.toHexString("key".hashCode());
+    tracingFactory.keyFormat(KeyFormat.hash());
+
+    final KafkaConsumerTracingContext<String,String> ctx = tracingFactory.create(record);
+    assertThat(ctx.mdc()).containsEntry("kafka:key", hash);
+    ctx.finish();
+
+    assertThat(tracer.finishedSpans())
+        .hasSize(1)
+        .allMatch(span -> span.operationName().equals("kafka.consume " + topic))
+        .allMatch(span -> hash.equals(span.tags().get("kafka.key")));
+  }
+
+  @Test
+  void should_track_lag_of_successfully_processed_records() {
+    final KafkaConsumerLagTracker tracker = new KafkaConsumerLagTracker("client");
+    tracingFactory.lagTracker(tracker);
+
+    final ConsumerRecord<String,String> failed = new ConsumerRecord<>(topic, 0, 1L, "key", "v");
+    final Runnable consumer = tracingFactory.create(failed).decorateConsumer(rec -> {
+      throw new IllegalStateException("boom");
+    });
+    assertThatThrownBy(consumer::run).isInstanceOf(IllegalStateException.class);
+    tracingFactory.create(new ConsumerRecord<>(topic, 0, 2L, "key", "v"));
+    assertThat(processedRecords(tracker)).isNull();
+
+    tracingFactory.create(new ConsumerRecord<>(topic, 0, 3L, "key", "v"))
+        .decorateFunction(rec -> rec.offset())
+        .get();
+    assertThat(processedRecords(tracker)).isEqualTo(1.0);
+  }
+
+  private Double processedRecords(KafkaConsumerLagTracker tracker) {
+    final CollectorRegistry registry = new CollectorRegistry();
+    tracker.register(registry);
+    return registry.getSampleValue(
+        "kafka_consumer_processed_records_total",
+        new String[] {"client_id", "topic", "partition"},
+        new String[] {"client", topic, "0"});
+  }
 }
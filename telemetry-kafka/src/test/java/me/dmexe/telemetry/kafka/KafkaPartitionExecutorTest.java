@@ -0,0 +1,226 @@
+package me.dmexe.telemetry.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.opentracing.ActiveSpan;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.util.ThreadLocalActiveSpanSource;
+import io.prometheus.client.CollectorRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import me.dmexe.telemetry.core.latency.LatencyRecorder;
+import me.dmexe.telemetry.core.metrics.MetricsBackend;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+class KafkaPartitionExecutorTest {
+  private MockTracer tracer;
+  private CollectorRegistry registry;
+  private ExecutorService pool;
+  private KafkaPartitionExecutor<String,String> executor;
+
+  @BeforeEach
+  void before() {
+    tracer = new MockTracer(new ThreadLocalActiveSpanSource());
+    registry = new CollectorRegistry();
+    pool = Executors.newFixedThreadPool(4);
+    executor = KafkaPartitionExecutor
+        .builder(KafkaConsumerTracingFactory.newFactory(String.class, String.class).tracer(tracer))
+        .executor(pool)
+        .tracer(tracer)
+        .metricsBackend(MetricsBackend.prometheus(registry, LatencyRecorder.defaultRecorder()))
+        .build();
+  }
+
+  @AfterEach
+  void after() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  void should_process_partitions_in_order() {
+    final Map<TopicPartition, List<Long>> processed = new ConcurrentHashMap<>();
+
+    final List<CompletableFuture<Map<TopicPartition, OffsetAndMetadata>>> futures =
+        new ArrayList<>();
+    for (int poll = 0; poll < 10; poll++) {
+      futures.add(executor.submit(records(poll * 10, 10), record -> processed
+          .computeIfAbsent(
+              new TopicPartition(record.topic(), record.partition()),
+              ignored -> new CopyOnWriteArrayList<>())
+          .add(record.offset())));
+    }
+
+    final Map<TopicPartition, OffsetAndMetadata> offsets = futures.get(9).join();
+    assertThat(offsets)
+        .containsEntry(new TopicPartition("topic", 0), new OffsetAndMetadata(100))
+        .containsEntry(new TopicPartition("topic", 1), new OffsetAndMetadata(100));
+    for (CompletableFuture<?> future : futures) {
+      assertThat(future).isCompleted();
+    }
+
+    final List<Long> expected = new ArrayList<>();
+    for (long offset = 0; offset < 100; offset++) {
+      expected.add(offset);
+    }
+    assertThat(processed.get(new TopicPartition("topic", 0))).isEqualTo(expected);
+    assertThat(processed.get(new TopicPartition("topic", 1))).isEqualTo(expected);
+
+    assertThat(sample("kafka_consumer_partition_queued_records", "0")).isEqualTo(0.0);
+    assertThat(sample("kafka_consumer_partition_processing_seconds_count", "1"))
+        .isEqualTo(100.0);
+  }
+
+  @Test
+  void should_propagate_span_and_mdc() {
+    final List<String> mdc = new CopyOnWriteArrayList<>();
+    final CompletableFuture<?> future;
+    final MockSpan parent = tracer.buildSpan("parent").startManual();
+    try (ActiveSpan ignored = tracer.makeActive(parent)) {
+      MDC.put("request", "42");
+      future = executor.submit(records(0, 1), record ->
+          mdc.add(MDC.get("request") + "/" + MDC.get("kafka:offset")));
+    } finally {
+      MDC.clear();
+    }
+
+    future.join();
+    assertThat(mdc).containsOnly("42/0");
+    assertThat(tracer.finishedSpans())
+        .filteredOn(span -> span.operationName().equals("kafka.consume topic"))
+        .hasSize(2)
+        .allMatch(span -> span.parentId() == parent.context().spanId());
+  }
+
+  @Test
+  void should_restore_mdc_of_worker_threads() {
+    final ExecutorService single = Executors.newSingleThreadExecutor();
+    try {
+      final KafkaPartitionExecutor<String,String> merging = KafkaPartitionExecutor
+          .builder(KafkaConsumerTracingFactory.newFactory(String.class, String.class)
+              .tracer(tracer)
+              .mdcStrategy(MdcStrategy.merge()))
+          .executor(single)
+          .tracer(tracer)
+          .metricsBackend(MetricsBackend.prometheus(registry, LatencyRecorder.defaultRecorder()))
+          .build();
+
+      final List<String> mdc = new CopyOnWriteArrayList<>();
+      for (String request : new String[] {"1", "2"}) {
+        MDC.put("request", request);
+        try {
+          merging.submit(records(0, 1), record -> mdc.add(MDC.get("request"))).join();
+        } finally {
+          MDC.clear();
+        }
+      }
+      merging.submit(records(0, 1), record -> mdc.add(MDC.get("request"))).join();
+
+      assertThat(mdc).containsExactly("1", "1", "2", "2", null, null);
+      assertThat(CompletableFuture.supplyAsync(MDC::getCopyOfContextMap, single).join())
+          .isNullOrEmpty();
+    } finally {
+      single.shutdownNow();
+    }
+  }
+
+  @Test
+  void should_stop_failed_lane() {
+    final TopicPartition failed = new TopicPartition("topic", 0);
+    final List<Long> processed = new CopyOnWriteArrayList<>();
+    final CompletableFuture<?> first = executor.submit(records(0, 5), record -> {
+      if (record.partition() == 0 && record.offset() == 2) {
+        throw new IllegalStateException("boom");
+      }
+      processed.add(record.offset());
+    });
+    final CompletableFuture<?> second = executor.submit(records(5, 5), record ->
+        processed.add(record.offset()));
+
+    assertThatThrownBy(first::join)
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(second::join).hasCauseInstanceOf(IllegalStateException.class);
+    assertThat(processed).containsOnly(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L);
+    assertThat(processed).hasSize(12);
+    assertThat(sample("kafka_consumer_partition_queued_records", "0")).isEqualTo(0.0);
+
+    executor.remove(Collections.singletonList(failed));
+    assertThat(executor.submit(records(10, 1), record -> { }).join()).hasSize(2);
+  }
+
+  @Test
+  void should_keep_order_of_reassigned_partition() throws Exception {
+    final TopicPartition partition = new TopicPartition("topic", 0);
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final List<Long> processed = new CopyOnWriteArrayList<>();
+    executor.submit(records(0, 1), record -> {
+      if (record.partition() == 0) {
+        await(blocked);
+        processed.add(record.offset());
+      }
+    });
+
+    final CompletableFuture<Void> removed = executor.remove(Collections.singletonList(partition));
+    final CompletableFuture<?> reassigned = executor.submit(records(1, 1), record -> {
+      if (record.partition() == 0) {
+        processed.add(record.offset());
+      }
+    });
+
+    Thread.sleep(100);
+    assertThat(removed).isNotDone();
+    assertThat(reassigned).isNotDone();
+    assertThat(processed).isEmpty();
+
+    blocked.countDown();
+    reassigned.join();
+    assertThat(removed).isDone();
+    assertThat(processed).containsExactly(0L, 1L);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(err);
+    }
+  }
+
+  private Double sample(String name, String partition) {
+    return registry.getSampleValue(
+        name, new String[] {"topic", "partition"}, new String[] {"topic", partition});
+  }
+
+  private static ConsumerRecords<String,String> records(long offset, int count) {
+    final Map<TopicPartition, List<ConsumerRecord<String,String>>> records =
+        new LinkedHashMap<>();
+    for (int partition = 0; partition < 2; partition++) {
+      final List<ConsumerRecord<String,String>> list = new ArrayList<>();
+      for (long n = offset; n < offset + count; n++) {
+        list.add(new ConsumerRecord<>("topic", partition, n, "key", "value"));
+      }
+      records.put(new TopicPartition("topic", partition), list);
+    }
+    return new ConsumerRecords<>(records);
+  }
+}
@@ -0,0 +1,40 @@
+package me.dmexe.telemetry.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class KeyFormatTest {
+
+  @Test
+  void should_truncate_keys() {
+    final KeyFormat format = KeyFormat.truncate(4);
+    assertThat(format.format(null)).isNull();
+    assertThat(format.format("key")).isEqualTo("key");
+    assertThat(format.format("long key")).isEqualTo("long");
+    assertThat(format.format(123456L)).isEqualTo("1234");
+    assertThat(format.format("abc\ud83d\ude00")).isEqualTo("abc");
+    assertThatThrownBy(() -> KeyFormat.truncate(0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void should_format_byte_keys_in_hex() {
+    final KeyFormat format = KeyFormat.truncate(4);
+    assertThat(format.format(new byte[] {0x0a})).isEqualTo("0a");
+    assertThat(format.format(new byte[] {0x01, (byte) 0xff, 0x02})).isEqualTo("01ff");
+  }
+
+  @Test
+  void should_hash_keys() {
+    final KeyFormat format = KeyFormat.hash();
+    assertThat(format.format(null)).isNull();
+    assertThat(format.format("key")).isEqualTo(Integer.toHexString("key".hashCode()));
+    assertThat(format.format(new byte[] {1, 2})).isEqualTo(format.format(new byte[] {1, 2}));
+  }
+
+  @Test
+  void should_skip_keys() {
+    assertThat(KeyFormat.none().format("key")).isNull();
+  }
+}
@@ -1,41 +1,43 @@
 package me.dmexe.telemetry.mysql;
 
-import io.prometheus.client.CollectorRegistry;
-import io.prometheus.client.Counter;
-import io.prometheus.client.Histogram;
+import java.util.Objects;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+import me.dmexe.telemetry.core.metrics.Counter;
+import me.dmexe.telemetry.core.metrics.LabelCache;
+import me.dmexe.telemetry.core.metrics.MetricDescriptor;
+import me.dmexe.telemetry.core.metrics.MetricsBackend;
 
 class MetricsFactory {
-  private static final Counter.Builder totalBuilder = Counter.build()
-      .namespace("mysql")
-      .name("started_total")
-      .labelNames("name", "database")
-      .help("A total number of database queries were been started.");
-
-  private static final Histogram.Builder latencyBuilder = Histogram.build()
-      .namespace("mysql")
-      .name("latency_seconds")
-      .labelNames("name", "database")
-      .help("A seconds which spend to execute database queries.");
-
-  static final MetricsFactory DEFAULT;
-
-  static  {
-    DEFAULT = new MetricsFactory(CollectorRegistry.defaultRegistry);
+  private static final MetricDescriptor totalMetric = MetricDescriptor.of(
+      "mysql_started_total",
+      "A total number of database queries were been started.",
+      "name", "database");
+
+  private static final MetricDescriptor latencyMetric = MetricDescriptor.of(
+      "mysql_latency_seconds",
+      "A seconds which spend to execute database queries.",
+      "name", "database");
+
+  private final LabelCache<Counter.Child> total;
+  private final LabelCache<LatencyHistogram.Child> latency;
+
+  private MetricsFactory(Counter total, LatencyHistogram latency) {
+    this.total = LabelCache.of(2, total::labels);
+    this.latency = LabelCache.of(2, latency::labels);
   }
 
-  private final Counter total;
-  private final Histogram latency;
-
-  private MetricsFactory(CollectorRegistry collectorRegistry) {
-    this.total = totalBuilder.register(collectorRegistry);
-    this.latency = latencyBuilder.register(collectorRegistry);
+  static MetricsFactory create(MetricsBackend metricsBackend) {
+    Objects.requireNonNull(metricsBackend, "metricsBackend cannot be null");
+    return new MetricsFactory(
+        metricsBackend.counter(totalMetric),
+        metricsBackend.timer(latencyMetric));
   }
 
   public Counter.Child getTotal(String name, String database) {
-    return total.labels(name, database);
+    return total.get(name, database);
   }
 
-  public Histogram.Child getLatency(String name, String database) {
-    return latency.labels(name, database);
+  public LatencyHistogram.Child getLatency(String name, String database) {
+    return latency.get(name, database);
   }
 }
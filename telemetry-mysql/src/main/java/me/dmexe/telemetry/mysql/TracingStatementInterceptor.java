@@ -12,18 +12,95 @@ import io.opentracing.Span;
 import io.opentracing.Tracer;
 import io.opentracing.tag.Tags;
 import io.opentracing.util.GlobalTracer;
-import io.prometheus.client.Histogram;
+import io.prometheus.client.CollectorRegistry;
 import java.net.URI;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import me.dmexe.telemetry.core.latency.Buckets;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+import me.dmexe.telemetry.core.latency.LatencyRecorder;
+import me.dmexe.telemetry.core.metrics.MetricsBackend;
+import me.dmexe.telemetry.core.sampler.Sampler;
+import me.dmexe.telemetry.core.tracer.ErrorLog;
+import org.jetbrains.annotations.Nullable;
 
 public class TracingStatementInterceptor implements StatementInterceptor {
+  private static volatile Sampler sampler = Sampler.always();
+  private static volatile LatencyRecorder latencyRecorder;
+  private static volatile MetricsBackend metricsBackend;
+  private static volatile MetricsFactory metrics;
+
+  /**
+   * Assign a head {@link Sampler} for connections initialized after the call, it decides by a
+   * statement name whether a span is created.
+   *
+   * @param sampler the sampler.
+   */
+  public static void sampler(Sampler sampler) {
+    Objects.requireNonNull(sampler, "sampler cannot be null");
+    TracingStatementInterceptor.sampler = sampler;
+  }
+
+  /**
+   * Assign a {@link LatencyRecorder} for statement latency, by default it's
+   * {@link LatencyRecorder#defaultRecorder()}. The metric is registered once, so it should be
+   * called before the first connection is initialized.
+   *
+   * @param latencyRecorder the recorder.
+   */
+  public static synchronized void latencyRecorder(LatencyRecorder latencyRecorder) {
+    Objects.requireNonNull(latencyRecorder, "latencyRecorder cannot be null");
+    TracingStatementInterceptor.latencyRecorder = latencyRecorder;
+    TracingStatementInterceptor.metrics = null;
+  }
+
+  /**
+   * Record statement latency by a simpleclient histogram with the given buckets, it should be
+   * called before the first connection is initialized.
+   *
+   * @param buckets the buckets.
+   */
+  public static void latencyBuckets(Buckets buckets) {
+    latencyRecorder(LatencyRecorder.histogram(buckets));
+  }
+
+  /**
+   * Assign a {@link MetricsBackend}, by default metrics are simpleclient collectors in the default
+   * registry with a limited number of label values. The latency recorder applies only to the
+   * default backend, an assigned backend can be limited by
+   * {@link MetricsBackend#limited(MetricsBackend)}. The metrics are created once, so it should be
+   * called before the first connection is initialized.
+   *
+   * @param metricsBackend the backend.
+   */
+  public static synchronized void metricsBackend(MetricsBackend metricsBackend) {
+    Objects.requireNonNull(metricsBackend, "metricsBackend cannot be null");
+    TracingStatementInterceptor.metricsBackend = metricsBackend;
+    TracingStatementInterceptor.metrics = null;
+  }
+
   @Override
   public StatementInterceptor init(MysqlConnection conn, Properties props, Log log) {
-    return new Handler(conn, MetricsFactory.DEFAULT, log);
+    return new Handler(conn, metrics(), sampler, log);
+  }
+
+  private static MetricsFactory metrics() {
+    MetricsFactory metrics = TracingStatementInterceptor.metrics;
+    if (metrics == null) {
+      synchronized (TracingStatementInterceptor.class) {
+        metrics = TracingStatementInterceptor.metrics;
+        if (metrics == null) {
+          metrics = MetricsFactory.create(metricsBackend == null
+              ? MetricsBackend.limited(MetricsBackend.prometheus(
+                  CollectorRegistry.defaultRegistry,
+                  latencyRecorder == null ? LatencyRecorder.defaultRecorder() : latencyRecorder))
+              : metricsBackend);
+          TracingStatementInterceptor.metrics = metrics;
+        }
+      }
+    }
+    return metrics;
   }
 
   @Override
@@ -64,16 +141,22 @@ public class TracingStatementInterceptor implements StatementInterceptor {
     private final URI uri;
     private final String serviceName;
     private final Tracer tracer;
+    private final Sampler sampler;
 
-    private final ThreadLocal<Histogram.Timer> currentTimer = new ThreadLocal<>();
-    private final ThreadLocal<Span> currentSpan = new ThreadLocal<>();
+    // a handler is created per connection and a connection executes one top level statement at
+    // a time under its mutex, so the statement is kept in a field instead of thread locals, it
+    // stays correct when a pooled connection is used by many short lived threads
+    @Nullable
+    private Execution current;
 
-    Handler(MysqlConnection connection, MetricsFactory metrics, Log log) {
+    Handler(MysqlConnection connection, MetricsFactory metrics, Sampler sampler, Log log) {
       Objects.requireNonNull(connection, "connection cannot be null");
       Objects.requireNonNull(metrics, "metrics cannot be null");
+      Objects.requireNonNull(sampler, "sampler cannot be null");
       Objects.requireNonNull(log, "log cannot be null");
 
       this.tracer = GlobalTracer.get();
+      this.sampler = sampler;
       this.log = log;
       this.metrics = metrics;
       this.database = getDatabase(connection);
@@ -109,12 +192,14 @@ public class TracingStatementInterceptor implements StatementInterceptor {
       }
 
       name = name.toLowerCase();
-      currentTimer.set(metrics.getLatency(name, database).startTimer());
+      final LatencyHistogram.Child latency = metrics.getLatency(name, database);
+      final long startNanos = System.nanoTime();
       metrics.getTotal(name, database).inc();
 
+      Span span = null;
       ActiveSpan activeSpan = tracer.activeSpan();
-      if (activeSpan != null) {
-        Span span = tracer
+      if (activeSpan != null && sampler.isSampled(name)) {
+        span = tracer
             .buildSpan("sql." + name)
             .asChildOf(activeSpan)
             .startManual();
@@ -125,10 +210,9 @@ public class TracingStatementInterceptor implements StatementInterceptor {
         Tags.PEER_SERVICE.set(span, serviceName);
         Tags.PEER_HOSTNAME.set(span, uri.getHost());
         Tags.PEER_PORT.set(span, uri.getPort());
-
-        currentSpan.set(span);
       }
 
+      current = new Execution(latency, span, startNanos);
       return null;
     }
 
@@ -142,26 +226,21 @@ public class TracingStatementInterceptor implements StatementInterceptor {
         boolean noGoodIndexUsed,
         Exception statementException
     ) {
-      try {
-        Histogram.Timer latencyTimer = currentTimer.get();
-        if (latencyTimer != null) {
-          latencyTimer.observeDuration();
-        }
+      final Execution execution = current;
+      if (execution == null) {
+        return originalResultSet;
+      }
+      current = null;
+
+      execution.latency.observeNanos(System.nanoTime() - execution.startNanos);
 
-        Span span = currentSpan.get();
-        if (span != null) {
-          if (statementException != null) {
-            Tags.ERROR.set(span, true);
-            Map<String,String> entries = new HashMap<>();
-            entries.put("error.kind", statementException.getClass().getName());
-            entries.put("message", statementException.getMessage());
-            span.log(entries);
-          }
-          span.finish();
+      final Span span = execution.span;
+      if (span != null) {
+        if (statementException != null) {
+          Tags.ERROR.set(span, true);
+          span.log(ErrorLog.of(statementException));
         }
-      } finally {
-        currentTimer.remove();
-        currentSpan.remove();
+        span.finish();
       }
 
       return originalResultSet;
@@ -196,4 +275,19 @@ public class TracingStatementInterceptor implements StatementInterceptor {
       return serviceName;
     }
   }
+
+  private static class Execution {
+    private final LatencyHistogram.Child latency;
+
+    @Nullable
+    private final Span span;
+
+    private final long startNanos;
+
+    Execution(LatencyHistogram.Child latency, @Nullable Span span, long startNanos) {
+      this.latency = latency;
+      this.span = span;
+      this.startNanos = startNanos;
+    }
+  }
 }
@@ -3,20 +3,19 @@ package me.dmexe.telemetery.netty.alloc;
 import io.netty.buffer.PoolArenaMetric;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.prometheus.client.Collector;
-import io.prometheus.client.GaugeMetricFamily;
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import me.dmexe.telemetry.core.metrics.SampleWriter;
+import me.dmexe.telemetry.core.metrics.StreamingCollector;
 
-public class PooledByteBufAllocatorCollector extends Collector {
+public class PooledByteBufAllocatorCollector extends StreamingCollector {
   private static final String DIRECT_ARENA = "direct";
   private static final String HEAP_ARENA = "heap";
   private static final String PREFIX = "netty_alloc_";
+  private static final String[] LABEL_NAMES = new String[] {"pool", "arena"};
 
   private static final Map<String,WeakReference<PooledByteBufAllocator>> refs =
       new ConcurrentHashMap<>();
@@ -53,74 +52,59 @@ public class PooledByteBufAllocatorCollector extends Collector {
   }
 
   @Override
-  public List<MetricFamilySamples> collect() {
-    final GaugeMetricFamily arenaNumActiveAllocations =
-        gauge("num_active_allocations", "The number of currently active allocations.",
-            "pool", "arena");
-    final GaugeMetricFamily arenaNumAllocations =
-        gauge("num_allocations", "The number of allocations done via the arena",
-            "pool", "arena");
-    final GaugeMetricFamily arenaNumDeallocations =
-        gauge("num_deallocations", "The number of deallocations done via the arena.",
-            "pool", "arena");
-
+  public void collect(SampleWriter writer) {
+    writer.family(PREFIX + "num_active_allocations",
+        "The number of currently active allocations.", Collector.Type.GAUGE, LABEL_NAMES);
     refs.forEach((name, ref) -> {
       final PooledByteBufAllocator alloc = ref.get();
-      if (alloc == null) {
-        return;
+      if (alloc != null) {
+        writer.sample(name, HEAP_ARENA, numActiveAllocations(alloc.metric().heapArenas()));
+        writer.sample(name, DIRECT_ARENA, numActiveAllocations(alloc.metric().directArenas()));
       }
+    });
 
-      final List<String> heapLabelValues = new ArrayList<>(2);
-      heapLabelValues.add(name);
-      heapLabelValues.add(HEAP_ARENA);
-
-      final List<String> directLabelValues = new ArrayList<>(2);
-      directLabelValues.add(name);
-      directLabelValues.add(DIRECT_ARENA);
-
-      long value;
-
-      value = alloc.metric()
-          .heapArenas().stream()
-          .mapToLong(PoolArenaMetric::numActiveAllocations).sum();
-      arenaNumActiveAllocations.addMetric(heapLabelValues, value);
-
-      value = alloc.metric()
-          .heapArenas().stream()
-          .mapToLong(PoolArenaMetric::numAllocations).sum();
-      arenaNumAllocations.addMetric(heapLabelValues, value);
-
-      value = alloc.metric()
-          .heapArenas().stream()
-          .mapToLong(PoolArenaMetric::numDeallocations).sum();
-      arenaNumDeallocations.addMetric(heapLabelValues, value);
-
-      value = alloc.metric()
-          .directArenas().stream()
-          .mapToLong(PoolArenaMetric::numActiveAllocations).sum();
-      arenaNumActiveAllocations.addMetric(directLabelValues, value);
-
-      value = alloc.metric()
-          .directArenas().stream()
-          .mapToLong(PoolArenaMetric::numAllocations).sum();
-      arenaNumAllocations.addMetric(directLabelValues, value);
-
-      value = alloc.metric()
-          .directArenas().stream()
-          .mapToLong(PoolArenaMetric::numDeallocations).sum();
-      arenaNumDeallocations.addMetric(directLabelValues, value);
+    writer.family(PREFIX + "num_allocations",
+        "The number of allocations done via the arena", Collector.Type.GAUGE, LABEL_NAMES);
+    refs.forEach((name, ref) -> {
+      final PooledByteBufAllocator alloc = ref.get();
+      if (alloc != null) {
+        writer.sample(name, HEAP_ARENA, numAllocations(alloc.metric().heapArenas()));
+        writer.sample(name, DIRECT_ARENA, numAllocations(alloc.metric().directArenas()));
+      }
     });
 
-    final List<MetricFamilySamples> samples = new LinkedList<>();
+    writer.family(PREFIX + "num_deallocations",
+        "The number of deallocations done via the arena.", Collector.Type.GAUGE, LABEL_NAMES);
+    refs.forEach((name, ref) -> {
+      final PooledByteBufAllocator alloc = ref.get();
+      if (alloc != null) {
+        writer.sample(name, HEAP_ARENA, numDeallocations(alloc.metric().heapArenas()));
+        writer.sample(name, DIRECT_ARENA, numDeallocations(alloc.metric().directArenas()));
+      }
+    });
+  }
 
-    samples.add(arenaNumActiveAllocations);
-    samples.add(arenaNumAllocations);
-    samples.add(arenaNumDeallocations);
+  private static long numActiveAllocations(List<PoolArenaMetric> arenas) {
+    long value = 0;
+    for (int i = 0; i < arenas.size(); i++) {
+      value += arenas.get(i).numActiveAllocations();
+    }
+    return value;
+  }
 
-    return samples;
+  private static long numAllocations(List<PoolArenaMetric> arenas) {
+    long value = 0;
+    for (int i = 0; i < arenas.size(); i++) {
+      value += arenas.get(i).numAllocations();
+    }
+    return value;
   }
 
-  private GaugeMetricFamily gauge(String name, String desc, String... labels) {
-    return new GaugeMetricFamily(PREFIX + name, desc, Arrays.asList(labels));
+  private static long numDeallocations(List<PoolArenaMetric> arenas) {
+    long value = 0;
+    for (int i = 0; i < arenas.size(); i++) {
+      value += arenas.get(i).numDeallocations();
+    }
+    return value;
   }
 }
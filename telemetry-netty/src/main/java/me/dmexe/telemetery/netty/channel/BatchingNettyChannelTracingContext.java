@@ -0,0 +1,112 @@
+package me.dmexe.telemetery.netty.channel;
+
+import java.util.Objects;
+
+/**
+ * Keeps plain byte tallies per channel and flushes them to the shared counters on read complete,
+ * flush, when a byte threshold is reached, or when the channel becomes inactive. All the methods
+ * are invoked from the channel event loop, so the tallies don't need any synchronization.
+ */
+class BatchingNettyChannelTracingContext implements NettyChannelTracingContext {
+  private final NettyChannelTracingContext delegate;
+  private final NettyChannelMetrics metrics;
+  private final Ticker ticker;
+  private final long flushBytes;
+  private final long flushIntervalNanos;
+
+  private long pendingSend;
+  private long pendingReceived;
+  private long lastFlushNanos;
+
+  BatchingNettyChannelTracingContext(
+      Ticker ticker,
+      NettyChannelMetrics metrics,
+      long flushBytes,
+      long flushIntervalNanos) {
+    Objects.requireNonNull(ticker, "ticker cannot be null");
+    Objects.requireNonNull(metrics, "metrics cannot be null");
+
+    this.delegate = new DefaultNettyChannelTracingContext(ticker, metrics);
+    this.metrics = metrics;
+    this.ticker = ticker;
+    this.flushBytes = flushBytes;
+    this.flushIntervalNanos = flushIntervalNanos;
+    this.lastFlushNanos = ticker.nanoTime();
+  }
+
+  @Override
+  public void channelActive() {
+    delegate.channelActive();
+  }
+
+  @Override
+  public void channelInactive() {
+    flushSend();
+    flushReceived();
+    delegate.channelInactive();
+  }
+
+  @Override
+  public void exceptionCaught() {
+    delegate.exceptionCaught();
+  }
+
+  @Override
+  public void write(long bytesSize) {
+    pendingSend += bytesSize;
+    if (pendingSend >= flushBytes) {
+      flushSend();
+    }
+  }
+
+  @Override
+  public void read(long bytesSize) {
+    pendingReceived += bytesSize;
+    if (pendingReceived >= flushBytes) {
+      flushReceived();
+    }
+  }
+
+  @Override
+  public void readComplete() {
+    if (intervalElapsed()) {
+      flushReceived();
+      flushSend();
+    }
+  }
+
+  @Override
+  public void flush() {
+    if (intervalElapsed()) {
+      flushSend();
+      flushReceived();
+    }
+  }
+
+  private boolean intervalElapsed() {
+    if (flushIntervalNanos == 0) {
+      return true;
+    }
+
+    final long now = ticker.nanoTime();
+    if (now - lastFlushNanos >= flushIntervalNanos) {
+      lastFlushNanos = now;
+      return true;
+    }
+    return false;
+  }
+
+  private void flushSend() {
+    if (pendingSend != 0) {
+      metrics.bytesSend.inc(pendingSend);
+      pendingSend = 0;
+    }
+  }
+
+  private void flushReceived() {
+    if (pendingReceived != 0) {
+      metrics.bytesReceived.inc(pendingReceived);
+      pendingReceived = 0;
+    }
+  }
+}
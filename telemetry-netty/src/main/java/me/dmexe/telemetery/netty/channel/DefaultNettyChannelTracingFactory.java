@@ -5,6 +5,7 @@ import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 import io.prometheus.client.Summary;
+import java.time.Duration;
 import java.util.Objects;
 import org.jetbrains.annotations.Nullable;
 
@@ -77,14 +78,29 @@ public class DefaultNettyChannelTracingFactory implements NettyChannelTracingFac
         bytesReceivedBuilder.subsystem(SERVER_SUBSYSTEM).register();
   }
 
+  private static final long NO_BATCHING = -1L;
+
   private Ticker ticker;
   private String address;
+  private long flushBytes;
+  private long flushIntervalNanos;
 
   @Nullable
   private CollectorRegistry collectorRegistry;
 
+  @Nullable
+  private NettyChannelMetrics clientMetrics;
+
+  @Nullable
+  private NettyChannelMetrics serverMetrics;
+
+  /**
+   * Create a factory with the default collector registry and no batching.
+   */
   public DefaultNettyChannelTracingFactory() {
     this.ticker = System::nanoTime;
+    this.flushBytes = NO_BATCHING;
+    this.flushIntervalNanos = NO_BATCHING;
   }
 
   /**
@@ -97,6 +113,7 @@ public class DefaultNettyChannelTracingFactory implements NettyChannelTracingFac
     Objects.requireNonNull(collectorRegistry, "collectorRegistry cannot be null");
     this.collectorRegistry = collectorRegistry;
     this.address = ":0";
+    resetMetrics();
     return this;
   }
 
@@ -116,6 +133,7 @@ public class DefaultNettyChannelTracingFactory implements NettyChannelTracingFac
   public NettyChannelTracingFactory address(String address) {
     Objects.requireNonNull(address, "address cannot be null");
     this.address = address;
+    resetMetrics();
     return this;
   }
 
@@ -123,6 +141,21 @@ public class DefaultNettyChannelTracingFactory implements NettyChannelTracingFac
   public NettyChannelTracingFactory address(String host, int port) {
     Objects.requireNonNull(host, "host cannot be null");
     this.address = host + ":" + port;
+    resetMetrics();
+    return this;
+  }
+
+  @Override
+  public NettyChannelTracingFactory batchBytes(long flushBytes, Duration flushInterval) {
+    Objects.requireNonNull(flushInterval, "flushInterval cannot be null");
+    if (flushBytes <= 0) {
+      throw new IllegalArgumentException("flushBytes must be positive");
+    }
+    if (flushInterval.isNegative()) {
+      throw new IllegalArgumentException("flushInterval cannot be negative");
+    }
+    this.flushBytes = flushBytes;
+    this.flushIntervalNanos = flushInterval.toNanos();
     return this;
   }
 
@@ -138,49 +171,86 @@ public class DefaultNettyChannelTracingFactory implements NettyChannelTracingFac
 
   private NettyChannelTracingContext newClientTracingContext() {
     final Ticker ticker = this.ticker == null ? System::nanoTime : this.ticker;
+    return newTracingContext(ticker, clientMetrics());
+  }
+
+  private NettyChannelTracingContext newServerTracingContext() {
+    final Ticker ticker = this.ticker == null ? System::nanoTime : this.ticker;
+    return newTracingContext(ticker, serverMetrics());
+  }
+
+  private NettyChannelTracingContext newTracingContext(Ticker ticker, NettyChannelMetrics metrics) {
+    if (flushBytes == NO_BATCHING) {
+      return new DefaultNettyChannelTracingContext(ticker, metrics);
+    } else {
+      return new BatchingNettyChannelTracingContext(
+          ticker,
+          metrics,
+          flushBytes,
+          flushIntervalNanos);
+    }
+  }
+
+  private synchronized NettyChannelMetrics clientMetrics() {
+    NettyChannelMetrics metrics = this.clientMetrics;
+    if (metrics != null) {
+      return metrics;
+    }
 
     if (collectorRegistry == null) {
-      return new DefaultNettyChannelTracingContext(
+      metrics = new NettyChannelMetrics(
           address,
-          ticker,
           Lazy.clientConnections,
           Lazy.clientConnects,
           Lazy.clientDuration,
           Lazy.clientBytesSend,
           Lazy.clientBytesReceived);
     } else {
-      return new DefaultNettyChannelTracingContext(
-          address,
-          ticker,
-          connectionsBuilder.subsystem(CLIENT_SUBSYSTEM).register(collectorRegistry),
-          connectsBuilder.subsystem(CLIENT_SUBSYSTEM).register(collectorRegistry),
-          durationBuilder.subsystem(CLIENT_SUBSYSTEM).register(collectorRegistry),
-          bytesSendBuilder.subsystem(CLIENT_SUBSYSTEM).register(collectorRegistry),
-          bytesReceivedBuilder.subsystem(CLIENT_SUBSYSTEM).register(collectorRegistry));
+      metrics = register(CLIENT_SUBSYSTEM, address, collectorRegistry);
     }
+
+    this.clientMetrics = metrics;
+    return metrics;
   }
 
-  private NettyChannelTracingContext newServerTracingContext() {
-    final Ticker ticker = this.ticker == null ? System::nanoTime : this.ticker;
+  private synchronized NettyChannelMetrics serverMetrics() {
+    NettyChannelMetrics metrics = this.serverMetrics;
+    if (metrics != null) {
+      return metrics;
+    }
 
     if (collectorRegistry == null) {
-      return new DefaultNettyChannelTracingContext(
+      metrics = new NettyChannelMetrics(
           address,
-          ticker,
           Lazy.serverConnections,
           Lazy.serverConnects,
           Lazy.serverDuration,
           Lazy.serverBytesSend,
           Lazy.serverBytesReceived);
     } else {
-      return new DefaultNettyChannelTracingContext(
+      metrics = register(SERVER_SUBSYSTEM, address, collectorRegistry);
+    }
+
+    this.serverMetrics = metrics;
+    return metrics;
+  }
+
+  private static NettyChannelMetrics register(String subsystem, String address,
+                                              CollectorRegistry collectorRegistry) {
+    // the builders are shared by all the factories, a subsystem is assigned right before register
+    synchronized (DefaultNettyChannelTracingFactory.class) {
+      return new NettyChannelMetrics(
           address,
-          ticker,
-          connectionsBuilder.subsystem(SERVER_SUBSYSTEM).register(collectorRegistry),
-          connectsBuilder.subsystem(SERVER_SUBSYSTEM).register(collectorRegistry),
-          durationBuilder.subsystem(SERVER_SUBSYSTEM).register(collectorRegistry),
-          bytesSendBuilder.subsystem(SERVER_SUBSYSTEM).register(collectorRegistry),
-          bytesReceivedBuilder.subsystem(SERVER_SUBSYSTEM).register(collectorRegistry));
+          connectionsBuilder.subsystem(subsystem).register(collectorRegistry),
+          connectsBuilder.subsystem(subsystem).register(collectorRegistry),
+          durationBuilder.subsystem(subsystem).register(collectorRegistry),
+          bytesSendBuilder.subsystem(subsystem).register(collectorRegistry),
+          bytesReceivedBuilder.subsystem(subsystem).register(collectorRegistry));
     }
   }
-}
\ No newline at end of file
+
+  private synchronized void resetMetrics() {
+    this.clientMetrics = null;
+    this.serverMetrics = null;
+  }
+}
@@ -1,7 +1,5 @@
 package me.dmexe.telemetery.netty.channel;
 
-import static me.dmexe.telemetery.netty.channel.NettyConstants.ERROR_KIND_LOG_NAME;
-import static me.dmexe.telemetery.netty.channel.NettyConstants.ERROR_MESSAGE_LOG_NAME;
 import static me.dmexe.telemetery.netty.channel.NettyConstants.HTTP_COMPONENT_NAME;
 import static me.dmexe.telemetery.netty.channel.NettyConstants.HTTP_CONTENT_LENGTH;
 import static me.dmexe.telemetery.netty.channel.NettyConstants.HTTP_CONTENT_TYPE;
@@ -17,22 +15,19 @@ import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
 import io.opentracing.propagation.Format.Builtin;
 import io.opentracing.tag.Tags;
-import io.prometheus.client.Counter;
-import io.prometheus.client.Histogram;
-import io.prometheus.client.SimpleTimer;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
+import me.dmexe.telemetry.core.sampler.Sampler;
+import me.dmexe.telemetry.core.tracer.ErrorLog;
 import org.jetbrains.annotations.Nullable;
 
 class DefaultNettyHttpClientTracingContext implements NettyHttpTracingContext {
   private static final long NULL_NANO = -1L;
+  private static final int NULL_CODE = -1;
 
-  private final String address;
   private final Tracer tracer;
+  private final Sampler sampler;
   private final Ticker ticker;
-  private final Counter handledCounter;
-  private final Histogram latencyHistogram;
+  private final NettyHttpMetrics metrics;
   private long requestStartTimeNanos;
 
   @Nullable
@@ -41,29 +36,25 @@ class DefaultNettyHttpClientTracingContext implements NettyHttpTracingContext {
   @Nullable
   private HttpMethod method;
 
-  @Nullable
-  private String code;
+  private int code;
 
   DefaultNettyHttpClientTracingContext(
-      String address,
       Tracer tracer,
+      Sampler sampler,
       Ticker ticker,
-      Counter handledCounter,
-      Histogram latencyHistogram) {
-    Objects.requireNonNull(address, "address cannot be null");
+      NettyHttpMetrics metrics) {
     Objects.requireNonNull(tracer, "tracer cannot be null");
+    Objects.requireNonNull(sampler, "sampler cannot be null");
     Objects.requireNonNull(ticker, "ticker cannot be null");
-    Objects.requireNonNull(handledCounter, "handledCounter cannot be null");
-    Objects.requireNonNull(latencyHistogram, "latencyHistogram cannot be null");
-
-    this.address = address;
-    this.ticker = ticker;
+    Objects.requireNonNull(metrics, "metrics cannot be null");
     this.tracer = tracer;
-    this.handledCounter = handledCounter;
-    this.latencyHistogram = latencyHistogram;
-    this.span = null;
-    this.method = null;
+    this.sampler = sampler;
+    this.ticker = ticker;
+    this.metrics = metrics;
     this.requestStartTimeNanos = NULL_NANO;
+    this.code = NULL_CODE;
+    this.method = null;
+    this.span = null;
   }
 
   @Override
@@ -72,13 +63,18 @@ class DefaultNettyHttpClientTracingContext implements NettyHttpTracingContext {
     method = request.method();
 
     final SpanContext spanContext = NettyHttpTracingContext.getClientParentContext(channel);
-    if (spanContext != null) {
+    if (spanContext != null && sampler.isSampled(request.uri())) {
       span = tracer
           .buildSpan("http." + request.method().name())
           .asChildOf(spanContext)
           .startManual();
     }
 
+    if (span == null && spanContext != null) {
+      // keep the trace of an unsampled request, a server continues it from the parent
+      tracer.inject(spanContext, Builtin.HTTP_HEADERS, new NettyHttpRequestCarrier(request));
+    }
+
     if (span != null) {
       tracer.inject(span.context(), Builtin.HTTP_HEADERS, new NettyHttpRequestCarrier(request));
 
@@ -93,7 +89,7 @@ class DefaultNettyHttpClientTracingContext implements NettyHttpTracingContext {
 
   @Override
   public void handleResponse(HttpResponse response) {
-    code = Integer.toString(response.status().code());
+    code = response.status().code();
 
     if (span != null) {
       span.log(WIRE_RECV);
@@ -113,17 +109,14 @@ class DefaultNettyHttpClientTracingContext implements NettyHttpTracingContext {
 
   @Override
   public void completed() {
-    if (requestStartTimeNanos != NULL_NANO && method != null && code != null) {
-      handledCounter
-          .labels(address, code, method.name())
-          .inc();
-      latencyHistogram
-          .labels(address, code, method.name())
-          .observe(SimpleTimer.elapsedSecondsFromNanos(requestStartTimeNanos, ticker.nanoTime()));
+    if (requestStartTimeNanos != NULL_NANO && code != NULL_CODE && method != null) {
+      final NettyHttpMetrics.Children children = metrics.children(code, method);
+      children.handled.inc();
+      children.latency.observeNanos(ticker.nanoTime() - requestStartTimeNanos);
 
       requestStartTimeNanos = NULL_NANO;
       method = null;
-      code = null;
+      code = NULL_CODE;
     }
 
     if (span != null) {
@@ -132,25 +125,25 @@ class DefaultNettyHttpClientTracingContext implements NettyHttpTracingContext {
     }
   }
 
+  @Nullable
+  @Override
+  public Span span() {
+    return span;
+  }
+
   @Override
   public void exceptionCaught(Throwable err) {
     if (span != null) {
-      final Map<String,String> log = new HashMap<>();
-      log.put(ERROR_KIND_LOG_NAME, err.getClass().getName());
-      log.put(ERROR_MESSAGE_LOG_NAME, err.getMessage());
       Tags.ERROR.set(span, true);
-      span.log(log);
+      span.log(ErrorLog.of(err));
     }
   }
 
   @Override
   public void exceptionCaught(String err) {
     if (span != null) {
-      final Map<String,String> log = new HashMap<>();
-      log.put(ERROR_KIND_LOG_NAME, err.getClass().getName());
-      log.put(ERROR_MESSAGE_LOG_NAME, err);
       Tags.ERROR.set(span, true);
-      span.log(log);
+      span.log(ErrorLog.of(err.getClass().getName(), err));
     }
   }
 }
@@ -1,7 +1,5 @@
 package me.dmexe.telemetery.netty.channel;
 
-import static me.dmexe.telemetery.netty.channel.NettyConstants.ERROR_KIND_LOG_NAME;
-import static me.dmexe.telemetery.netty.channel.NettyConstants.ERROR_MESSAGE_LOG_NAME;
 import static me.dmexe.telemetery.netty.channel.NettyConstants.HTTP_COMPONENT_NAME;
 import static me.dmexe.telemetery.netty.channel.NettyConstants.HTTP_CONTENT_LENGTH;
 import static me.dmexe.telemetery.netty.channel.NettyConstants.HTTP_CONTENT_TYPE;
@@ -17,51 +15,52 @@ import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
 import io.opentracing.propagation.Format.Builtin;
 import io.opentracing.tag.Tags;
-import io.prometheus.client.Counter;
-import io.prometheus.client.Histogram;
-import io.prometheus.client.SimpleTimer;
 import java.net.SocketAddress;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
+import me.dmexe.telemetry.core.sampler.Sampler;
+import me.dmexe.telemetry.core.tracer.ErrorLog;
 import org.jetbrains.annotations.Nullable;
 
 class DefaultNettyHttpServerTracingContext implements NettyHttpTracingContext {
   private static final long NULL_NANO = -1L;
+  private static final int NULL_CODE = -1;
 
-  private final String address;
   private final Tracer tracer;
+  private final Sampler sampler;
   private final Ticker ticker;
-  private final Counter handledCounter;
-  private final Histogram latencyHistogram;
+  private final NettyHttpMetrics metrics;
+
+  @Nullable
+  private final PropagationHeaders propagationHeaders;
+
   private long requestStartTimeNanos;
 
   @Nullable
   private Span span;
 
-  @Nullable
-  private String code;
+  private int code;
 
   @Nullable
   private HttpMethod method;
 
   DefaultNettyHttpServerTracingContext(
-      String address,
       Tracer tracer,
+      Sampler sampler,
       Ticker ticker,
-      Counter handledCounter,
-      Histogram latencyHistogram) {
-    Objects.requireNonNull(address, "address cannot be null");
+      NettyHttpMetrics metrics,
+      @Nullable PropagationHeaders propagationHeaders) {
     Objects.requireNonNull(tracer, "tracer cannot be null");
+    Objects.requireNonNull(sampler, "sampler cannot be null");
     Objects.requireNonNull(ticker, "ticker cannot be null");
-    Objects.requireNonNull(latencyHistogram, "latencyHistogram cannot be null");
-    Objects.requireNonNull(handledCounter, "handledCounter cannot be null");
-    this.address = address;
+    Objects.requireNonNull(metrics, "metrics cannot be null");
     this.tracer = tracer;
+    this.sampler = sampler;
     this.ticker = ticker;
-    this.latencyHistogram = latencyHistogram;
-    this.handledCounter = handledCounter;
+    this.metrics = metrics;
+    this.propagationHeaders = propagationHeaders;
     this.requestStartTimeNanos = NULL_NANO;
+    this.code = NULL_CODE;
+    this.method = null;
     this.span = null;
   }
 
@@ -69,17 +68,20 @@ class DefaultNettyHttpServerTracingContext implements NettyHttpTracingContext {
   public void handleRequest(HttpRequest request, Channel channel) {
     requestStartTimeNanos = ticker.nanoTime();
     method = request.method();
-    span = createSpan(request, channel.remoteAddress(), channel.localAddress());
-    code = null;
+    code = NULL_CODE;
 
-    if (span != null) {
-      NettyHttpTracingContext.addServerCurrentSpan(channel, span);
+    // a propagated parent was already sampled upstream, so only root requests are sampled here
+    final SpanContext parentSpanCtx = extract(request);
+    if (parentSpanCtx != null || sampler.isSampled(request.uri())) {
+      span = createSpan(request, parentSpanCtx, channel.remoteAddress(), channel.localAddress());
+    } else {
+      span = null;
     }
   }
 
   @Override
   public void handleResponse(HttpResponse response) {
-    code = Integer.toString(response.status().code());
+    code = response.status().code();
     if (span != null) {
       span.log(WIRE_SEND);
 
@@ -99,16 +101,13 @@ class DefaultNettyHttpServerTracingContext implements NettyHttpTracingContext {
 
   @Override
   public void completed() {
-    if (requestStartTimeNanos != NULL_NANO && code != null && method != null) {
-      handledCounter
-          .labels(address, code, method.name())
-          .inc();
-      latencyHistogram
-          .labels(address, code, method.name())
-          .observe(SimpleTimer.elapsedSecondsFromNanos(requestStartTimeNanos, ticker.nanoTime()));
+    if (requestStartTimeNanos != NULL_NANO && code != NULL_CODE && method != null) {
+      final NettyHttpMetrics.Children children = metrics.children(code, method);
+      children.handled.inc();
+      children.latency.observeNanos(ticker.nanoTime() - requestStartTimeNanos);
 
       this.requestStartTimeNanos = NULL_NANO;
-      this.code = null;
+      this.code = NULL_CODE;
       this.method = null;
     }
 
@@ -118,36 +117,33 @@ class DefaultNettyHttpServerTracingContext implements NettyHttpTracingContext {
     }
   }
 
+  @Nullable
+  @Override
+  public Span span() {
+    return span;
+  }
+
   @Override
   public void exceptionCaught(Throwable err) {
     if (span != null) {
-      final Map<String,String> log = new HashMap<>();
-      log.put(ERROR_KIND_LOG_NAME, err.getClass().getName());
-      log.put(ERROR_MESSAGE_LOG_NAME, err.getMessage());
       Tags.ERROR.set(span, true);
-      span.log(log);
+      span.log(ErrorLog.of(err));
     }
   }
 
   @Override
   public void exceptionCaught(String err) {
     if (span != null) {
-      final Map<String,String> log = new HashMap<>();
-      log.put(ERROR_KIND_LOG_NAME, err.getClass().getName());
-      log.put(ERROR_MESSAGE_LOG_NAME, err);
       Tags.ERROR.set(span, true);
-      span.log(log);
+      span.log(ErrorLog.of(err.getClass().getName(), err));
     }
   }
 
   private Span createSpan(
       HttpRequest request,
+      @Nullable SpanContext parentSpanCtx,
       SocketAddress remoteAddress,
       SocketAddress localAddress) {
-    final SpanContext parentSpanCtx = tracer.extract(
-        Builtin.HTTP_HEADERS,
-        new NettyHttpRequestCarrier(request));
-
     final String operationName = "http." + request.method().name();
 
     Span span;
@@ -168,4 +164,18 @@ class DefaultNettyHttpServerTracingContext implements NettyHttpTracingContext {
 
     return span;
   }
+
+  @Nullable
+  private SpanContext extract(HttpRequest request) {
+    if (propagationHeaders == null) {
+      return tracer.extract(Builtin.HTTP_HEADERS, new NettyHttpRequestCarrier(request));
+    }
+
+    final NettyHttpHeadersExtractCarrier carrier =
+        new NettyHttpHeadersExtractCarrier(request.headers(), propagationHeaders);
+    if (carrier.isEmpty()) {
+      return null;
+    }
+    return tracer.extract(Builtin.HTTP_HEADERS, carrier);
+  }
 }
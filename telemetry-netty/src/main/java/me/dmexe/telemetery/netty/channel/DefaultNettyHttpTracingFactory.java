@@ -5,41 +5,39 @@ import static me.dmexe.telemetery.netty.channel.NettyConstants.SERVER_SUBSYSTEM;
 
 import io.netty.channel.ChannelHandler;
 import io.opentracing.Tracer;
-import io.opentracing.util.GlobalTracer;
 import io.prometheus.client.CollectorRegistry;
-import io.prometheus.client.Counter;
-import io.prometheus.client.Histogram;
 import java.util.Objects;
+import java.util.function.Supplier;
+import me.dmexe.telemetry.core.latency.Buckets;
+import me.dmexe.telemetry.core.latency.LatencyRecorder;
+import me.dmexe.telemetry.core.metrics.MetricDescriptor;
+import me.dmexe.telemetry.core.metrics.MetricsBackend;
+import me.dmexe.telemetry.core.sampler.Sampler;
+import me.dmexe.telemetry.core.tracer.Tracers;
 import org.jetbrains.annotations.Nullable;
 
 public class DefaultNettyHttpTracingFactory implements NettyHttpTracingFactory {
-  private static final Counter.Builder handledBuilder = Counter.build()
-      .namespace("http")
-      .name("handled_total")
-      .labelNames("address", "http_code", "http_method")
-      .help("Total number of completed HTTP requests, regardless of success or failure.");
-
-  private static final Histogram.Builder latencyBuilder = Histogram.build()
-      .namespace("http")
-      .name("handled_latency_seconds")
-      .labelNames("address", "http_code", "http_method")
-      .help("Histogram of response latency (seconds) of HTTP that had been application-level "
-          + "handled.");
-
-  private static class Lazy {
-    private static final Counter clientHandled =
-        handledBuilder.subsystem(CLIENT_SUBSYSTEM).register();
-    private static final Histogram clientLatency =
-        latencyBuilder.subsystem(CLIENT_SUBSYSTEM).register();
-
-    private static final Counter serverHandled =
-        handledBuilder.subsystem(SERVER_SUBSYSTEM).register();
-    private static final Histogram serverLatency =
-        latencyBuilder.subsystem(SERVER_SUBSYSTEM).register();
+  private static MetricDescriptor handledMetric(String subsystem) {
+    return MetricDescriptor.of(
+        "http_" + subsystem + "_handled_total",
+        "Total number of completed HTTP requests, regardless of success or failure.",
+        "address", "http_code", "http_method");
   }
 
+  private static MetricDescriptor latencyMetric(String subsystem) {
+    return MetricDescriptor.of(
+        "http_" + subsystem + "_handled_latency_seconds",
+        "Histogram of response latency (seconds) of HTTP that had been application-level "
+            + "handled.",
+        "address", "http_code", "http_method");
+  }
+
+  private static final int DEFAULT_PIPELINING_LIMIT = 16;
+
   private String address;
   private Ticker ticker;
+  private Sampler sampler;
+  private int pipeliningLimit;
 
   @Nullable
   private CollectorRegistry collectorRegistry;
@@ -47,9 +45,28 @@ public class DefaultNettyHttpTracingFactory implements NettyHttpTracingFactory {
   @Nullable
   private Tracer tracer;
 
+  @Nullable
+  private PropagationHeaders propagationHeaders;
+
+  @Nullable
+  private LatencyRecorder latencyRecorder;
+
+  @Nullable
+  private MetricsBackend metricsBackend;
+
+  @Nullable
+  private NettyHttpMetrics clientMetrics;
 
+  @Nullable
+  private NettyHttpMetrics serverMetrics;
+
+  /**
+   * Create a factory with the default collector registry and the global tracer.
+   */
   public DefaultNettyHttpTracingFactory() {
     this.ticker = System::nanoTime;
+    this.sampler = Sampler.always();
+    this.pipeliningLimit = DEFAULT_PIPELINING_LIMIT;
   }
 
   /**
@@ -62,6 +79,7 @@ public class DefaultNettyHttpTracingFactory implements NettyHttpTracingFactory {
     Objects.requireNonNull(collectorRegistry, "collectorRegistry cannot be null");
     this.collectorRegistry = collectorRegistry;
     this.address = ":0";
+    resetMetrics();
     return this;
   }
 
@@ -81,6 +99,7 @@ public class DefaultNettyHttpTracingFactory implements NettyHttpTracingFactory {
   public NettyHttpTracingFactory address(String address) {
     Objects.requireNonNull(address, "address cannot be null");
     this.address = address;
+    resetMetrics();
     return this;
   }
 
@@ -88,6 +107,7 @@ public class DefaultNettyHttpTracingFactory implements NettyHttpTracingFactory {
   public NettyHttpTracingFactory address(String host, int port) {
     Objects.requireNonNull(host, "host cannot be null");
     this.address = host + ":" + port;
+    resetMetrics();
     return this;
   }
 
@@ -98,6 +118,50 @@ public class DefaultNettyHttpTracingFactory implements NettyHttpTracingFactory {
     return this;
   }
 
+  @Override
+  public NettyHttpTracingFactory sampler(Sampler sampler) {
+    Objects.requireNonNull(sampler, "sampler cannot be null");
+    this.sampler = sampler;
+    return this;
+  }
+
+  @Override
+  public NettyHttpTracingFactory propagationHeaders(PropagationHeaders propagationHeaders) {
+    Objects.requireNonNull(propagationHeaders, "propagationHeaders cannot be null");
+    this.propagationHeaders = propagationHeaders;
+    return this;
+  }
+
+  @Override
+  public NettyHttpTracingFactory latencyRecorder(LatencyRecorder latencyRecorder) {
+    Objects.requireNonNull(latencyRecorder, "latencyRecorder cannot be null");
+    this.latencyRecorder = latencyRecorder;
+    resetMetrics();
+    return this;
+  }
+
+  @Override
+  public NettyHttpTracingFactory latencyBuckets(Buckets buckets) {
+    return latencyRecorder(LatencyRecorder.histogram(buckets));
+  }
+
+  @Override
+  public NettyHttpTracingFactory metricsBackend(MetricsBackend metricsBackend) {
+    Objects.requireNonNull(metricsBackend, "metricsBackend cannot be null");
+    this.metricsBackend = metricsBackend;
+    resetMetrics();
+    return this;
+  }
+
+  @Override
+  public NettyHttpTracingFactory pipeliningLimit(int limit) {
+    if (limit < 1 || limit > (1 << 16)) {
+      throw new IllegalArgumentException("limit must be in [1, 65536] range");
+    }
+    this.pipeliningLimit = limit == 1 ? 1 : Integer.highestOneBit(limit - 1) << 1;
+    return this;
+  }
+
   @Override
   public ChannelHandler newClientHandler() {
     return new NettyHttpClientTracingHandler(newClientTracingContext());
@@ -105,48 +169,72 @@ public class DefaultNettyHttpTracingFactory implements NettyHttpTracingFactory {
 
   @Override
   public ChannelHandler newServerHandler() {
-    return new NettyHttpServerTracingHandler(newServerTracingContext());
+    return new NettyHttpServerTracingHandler(newServerTracingContexts(), pipeliningLimit);
   }
 
-  private NettyHttpTracingContext newServerTracingContext() {
-    final Ticker ticker = this.ticker == null ? System::nanoTime : this.ticker;
-    final Tracer tracer = this.tracer == null ? GlobalTracer.get() : this.tracer;
+  @Override
+  public ChannelHandler newHttp2ServerHandler() {
+    return new NettyHttp2ServerTracingHandler(newServerTracingContexts());
+  }
 
-    if (collectorRegistry == null) {
-      return new DefaultNettyHttpServerTracingContext(
-          address,
-          tracer,
-          ticker,
-          Lazy.serverHandled,
-          Lazy.serverLatency);
-    } else {
-      return new DefaultNettyHttpServerTracingContext(
-          address,
-          tracer,
-          ticker,
-          handledBuilder.subsystem(SERVER_SUBSYSTEM).register(collectorRegistry),
-          latencyBuilder.subsystem(SERVER_SUBSYSTEM).register(collectorRegistry));
-    }
+  private Supplier<NettyHttpTracingContext> newServerTracingContexts() {
+    final Ticker ticker = this.ticker == null ? System::nanoTime : this.ticker;
+    final Tracer tracer = Tracers.resolve(this.tracer);
+    final Sampler sampler = this.sampler;
+    final NettyHttpMetrics metrics = serverMetrics();
+    final PropagationHeaders propagationHeaders = this.propagationHeaders;
+    return () -> new DefaultNettyHttpServerTracingContext(
+        tracer,
+        sampler,
+        ticker,
+        metrics,
+        propagationHeaders);
   }
 
   private NettyHttpTracingContext newClientTracingContext() {
     final Ticker ticker = this.ticker == null ? System::nanoTime : this.ticker;
-    final Tracer tracer = this.tracer == null ? GlobalTracer.get() : this.tracer;
+    final Tracer tracer = Tracers.resolve(this.tracer);
+    return new DefaultNettyHttpClientTracingContext(tracer, sampler, ticker, clientMetrics());
+  }
 
-    if (collectorRegistry == null) {
-      return new DefaultNettyHttpClientTracingContext(
+  private NettyHttpMetrics serverMetrics() {
+    NettyHttpMetrics metrics = this.serverMetrics;
+    if (metrics == null) {
+      final MetricsBackend metricsBackend = resolveMetricsBackend();
+      metrics = new NettyHttpMetrics(
           address,
-          tracer,
-          ticker,
-          Lazy.clientHandled,
-          Lazy.clientLatency);
-    } else {
-      return new DefaultNettyHttpClientTracingContext(
+          metricsBackend.counter(handledMetric(SERVER_SUBSYSTEM)),
+          metricsBackend.timer(latencyMetric(SERVER_SUBSYSTEM)));
+      this.serverMetrics = metrics;
+    }
+    return metrics;
+  }
+
+  private NettyHttpMetrics clientMetrics() {
+    NettyHttpMetrics metrics = this.clientMetrics;
+    if (metrics == null) {
+      final MetricsBackend metricsBackend = resolveMetricsBackend();
+      metrics = new NettyHttpMetrics(
           address,
-          tracer,
-          ticker,
-          handledBuilder.subsystem(CLIENT_SUBSYSTEM).register(collectorRegistry),
-          latencyBuilder.subsystem(CLIENT_SUBSYSTEM).register(collectorRegistry));
+          metricsBackend.counter(handledMetric(CLIENT_SUBSYSTEM)),
+          metricsBackend.timer(latencyMetric(CLIENT_SUBSYSTEM)));
+      this.clientMetrics = metrics;
     }
+    return metrics;
+  }
+
+  private MetricsBackend resolveMetricsBackend() {
+    if (metricsBackend != null) {
+      return metricsBackend;
+    }
+
+    return MetricsBackend.limited(MetricsBackend.prometheus(
+        collectorRegistry == null ? CollectorRegistry.defaultRegistry : collectorRegistry,
+        latencyRecorder == null ? LatencyRecorder.defaultRecorder() : latencyRecorder));
+  }
+
+  private void resetMetrics() {
+    this.clientMetrics = null;
+    this.serverMetrics = null;
   }
 }
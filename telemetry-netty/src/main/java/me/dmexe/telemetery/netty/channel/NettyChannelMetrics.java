@@ -0,0 +1,55 @@
+package me.dmexe.telemetery.netty.channel;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import java.util.Objects;
+
+/**
+ * Label children of the channel metrics resolved once for an address, the address never changes
+ * for the life of a channel, so the per-message path doesn't have to look them up. The failed
+ * connects child is resolved on demand, so it isn't exported until the first failure.
+ */
+class NettyChannelMetrics {
+  private static final String ACTIVE = "active";
+  private static final String INACTIVE = "inactive";
+  private static final String FAILED = "failed";
+
+  final Gauge.Child connections;
+  final Counter.Child connectsActive;
+  final Counter.Child connectsInactive;
+  final Summary.Child duration;
+  final Counter.Child bytesSend;
+  final Counter.Child bytesReceived;
+
+  private final String address;
+  private final Counter connects;
+
+  NettyChannelMetrics(
+      String address,
+      Gauge connections,
+      Counter connects,
+      Summary duration,
+      Counter bytesSend,
+      Counter bytesReceived) {
+    Objects.requireNonNull(address, "address cannot be null");
+    Objects.requireNonNull(connections, "connections cannot be null");
+    Objects.requireNonNull(connects, "connects cannot be null");
+    Objects.requireNonNull(duration, "duration cannot be null");
+    Objects.requireNonNull(bytesSend, "bytesSend cannot be null");
+    Objects.requireNonNull(bytesReceived, "bytesReceived cannot be null");
+
+    this.connections = connections.labels(address);
+    this.connectsActive = connects.labels(address, ACTIVE);
+    this.connectsInactive = connects.labels(address, INACTIVE);
+    this.duration = duration.labels(address);
+    this.bytesSend = bytesSend.labels(address);
+    this.bytesReceived = bytesReceived.labels(address);
+    this.address = address;
+    this.connects = connects;
+  }
+
+  Counter.Child connectsFailed() {
+    return connects.labels(address, FAILED);
+  }
+}
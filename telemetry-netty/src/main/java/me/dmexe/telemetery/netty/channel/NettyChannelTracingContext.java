@@ -11,4 +11,8 @@ interface NettyChannelTracingContext {
   void write(long bytesSize);
 
   void read(long bytesSize);
-}
\ No newline at end of file
+
+  void readComplete();
+
+  void flush();
+}
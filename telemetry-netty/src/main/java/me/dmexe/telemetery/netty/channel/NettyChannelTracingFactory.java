@@ -1,6 +1,7 @@
 package me.dmexe.telemetery.netty.channel;
 
 import io.netty.channel.ChannelHandler;
+import java.time.Duration;
 
 public interface NettyChannelTracingFactory {
 
@@ -8,6 +9,18 @@ public interface NettyChannelTracingFactory {
 
   NettyChannelTracingFactory address(String host, int port);
 
+  /**
+   * Keep byte tallies per channel and flush them to the send/received bytes counters in batches,
+   * instead of touching the shared counters on every buffer. Tallies are flushed when they reach
+   * {@code flushBytes}, on read complete and flush once {@code flushInterval} has elapsed since
+   * the previous flush, and when the channel becomes inactive.
+   *
+   * @param flushBytes a number of accumulated bytes which triggers a flush.
+   * @param flushInterval a minimal interval between flushes on read complete and flush events.
+   * @return the factory.
+   */
+  NettyChannelTracingFactory batchBytes(long flushBytes, Duration flushInterval);
+
   ChannelHandler newClientHandler();
 
   ChannelHandler newServerHandler();
@@ -57,4 +57,16 @@ class NettyChannelTracingHandler extends ChannelDuplexHandler {
 
     super.channelRead(ctx, msg);
   }
+
+  @Override
+  public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+    stats.readComplete();
+    super.channelReadComplete(ctx);
+  }
+
+  @Override
+  public void flush(ChannelHandlerContext ctx) throws Exception {
+    stats.flush();
+    super.flush(ctx);
+  }
 }
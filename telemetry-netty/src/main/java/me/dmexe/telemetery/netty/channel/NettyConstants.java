@@ -10,6 +10,7 @@ import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.tag.IntTag;
 import io.opentracing.tag.StringTag;
+import java.util.Map;
 
 class NettyConstants {
 
@@ -30,6 +31,8 @@ class NettyConstants {
 
   static final AttributeKey<Span> SERVER_CURRENT_SPAN =
       AttributeKey.newInstance("SERVER_CURRENT_SPAN");
+  static final AttributeKey<Map<Integer, Span>> SERVER_STREAM_SPANS =
+      AttributeKey.newInstance("SERVER_STREAM_SPANS");
   static final AttributeKey<SpanContext> CLIENT_PARENT_SPAN_CONTEXT =
       AttributeKey.newInstance("CLIENT_PARENT_SPAN_CONTEXT");
 
@@ -42,7 +45,4 @@ class NettyConstants {
 
   static final String WIRE_SEND = "ws";
   static final String WIRE_RECV = "wr";
-
-  static final String ERROR_KIND_LOG_NAME = "error.kind";
-  static final String ERROR_MESSAGE_LOG_NAME = "message";
 }
@@ -0,0 +1,190 @@
+package me.dmexe.telemetery.netty.channel;
+
+import static me.dmexe.telemetery.netty.channel.NettyConstants.CLIENT_CONNECTION_CLOSED;
+import static me.dmexe.telemetery.netty.channel.NettyConstants.CLIENT_CONNECTION_CLOSED_RESPONSE;
+import static me.dmexe.telemetery.netty.channel.NettyConstants.SERVER_CONNECTION_CLOSED_RESPONSE;
+import static me.dmexe.telemetery.netty.channel.NettyConstants.SERVER_STREAM_SPANS;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2Exception;
+import io.netty.handler.codec.http2.Http2FrameStreamException;
+import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2ResetFrame;
+import io.netty.handler.codec.http2.Http2StreamFrame;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import java.util.Objects;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Traces HTTP/2 streams multiplexed on a single connection, it should be added after
+ * {@link io.netty.handler.codec.http2.Http2FrameCodec}. Every stream gets its own tracing context
+ * keyed by a stream id, the context is created by request headers and completed by a frame which
+ * ends the response stream, or by a stream reset. A span of a stream is available by
+ * {@link NettyHttpTracingContext#getServerCurrentSpan(io.netty.channel.Channel, int)} until the
+ * stream is completed.
+ */
+class NettyHttp2ServerTracingHandler extends ChannelDuplexHandler {
+  private static final Logger log = LoggerFactory.getLogger(NettyHttp2ServerTracingHandler.class);
+
+  private static class Stream {
+    private final NettyHttpTracingContext stats;
+    private boolean responded;
+
+    Stream(NettyHttpTracingContext stats) {
+      this.stats = stats;
+      this.responded = false;
+    }
+  }
+
+  private final Supplier<NettyHttpTracingContext> contexts;
+  private final IntObjectMap<Stream> streams;
+
+  NettyHttp2ServerTracingHandler(Supplier<NettyHttpTracingContext> contexts) {
+    Objects.requireNonNull(contexts, "contexts cannot be null");
+    this.contexts = contexts;
+    this.streams = new IntObjectHashMap<>();
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (msg instanceof Http2HeadersFrame) {
+      final Http2HeadersFrame frame = (Http2HeadersFrame) msg;
+      final int id = frame.stream().id();
+
+      // trailers of an already received request
+      if (!streams.containsKey(id)) {
+        try {
+          final NettyHttpTracingContext stats = contexts.get();
+          stats.handleRequest(
+              HttpConversionUtil.toHttpRequest(id, frame.headers(), false),
+              ctx.channel());
+          streams.put(id, new Stream(stats));
+          if (stats.span() != null) {
+            NettyHttpTracingContext.addServerCurrentSpan(ctx.channel(), id, stats.span());
+          }
+        } catch (Http2Exception err) {
+          log.debug("Cannot convert request headers of stream {}", id, err);
+        }
+      }
+    } else if (msg instanceof Http2ResetFrame) {
+      final int id = id(msg);
+      final Stream stream = streams.remove(id);
+      if (stream != null) {
+        NettyHttpTracingContext.removeServerCurrentSpan(ctx.channel(), id);
+        reset(stream, CLIENT_CONNECTION_CLOSED_RESPONSE, CLIENT_CONNECTION_CLOSED);
+      }
+    }
+
+    super.channelRead(ctx, msg);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+
+    if (msg instanceof Http2HeadersFrame) {
+      final Http2HeadersFrame frame = (Http2HeadersFrame) msg;
+      final Stream stream = streams.get(frame.stream().id());
+
+      if (stream != null) {
+        if (!stream.responded && !isInformational(frame)) {
+          final HttpResponse response = toHttpResponse(frame);
+          if (response != null) {
+            stream.responded = true;
+            stream.stats.handleResponse(response);
+          }
+        }
+
+        if (frame.isEndStream()) {
+          completed(ctx, frame.stream().id());
+        }
+      }
+    } else if (msg instanceof Http2DataFrame) {
+      if (((Http2DataFrame) msg).isEndStream()) {
+        completed(ctx, id(msg));
+      }
+    } else if (msg instanceof Http2ResetFrame) {
+      final int id = id(msg);
+      final Stream stream = streams.remove(id);
+      if (stream != null) {
+        NettyHttpTracingContext.removeServerCurrentSpan(ctx.channel(), id);
+        reset(stream, SERVER_CONNECTION_CLOSED_RESPONSE, "the server reset the stream");
+      }
+    }
+
+    super.write(ctx, msg, promise);
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    for (Stream stream : streams.values()) {
+      reset(stream, CLIENT_CONNECTION_CLOSED_RESPONSE, CLIENT_CONNECTION_CLOSED);
+    }
+    streams.clear();
+    ctx.channel().attr(SERVER_STREAM_SPANS).set(null);
+
+    super.channelInactive(ctx);
+  }
+
+  @Override
+  public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+    if (cause instanceof Http2FrameStreamException) {
+      final Stream stream = streams.get(((Http2FrameStreamException) cause).stream().id());
+      if (stream != null) {
+        stream.stats.exceptionCaught(cause);
+      }
+    }
+    super.exceptionCaught(ctx, cause);
+  }
+
+  private void completed(ChannelHandlerContext ctx, int id) {
+    final Stream stream = streams.remove(id);
+    if (stream != null) {
+      NettyHttpTracingContext.removeServerCurrentSpan(ctx.channel(), id);
+      if (!stream.responded) {
+        stream.stats.handleResponse(SERVER_CONNECTION_CLOSED_RESPONSE);
+      }
+      stream.stats.completed();
+    }
+  }
+
+  private static void reset(Stream stream, HttpResponse response, String err) {
+    if (!stream.responded) {
+      stream.stats.handleResponse(response);
+    }
+    stream.stats.exceptionCaught(err);
+    stream.stats.completed();
+  }
+
+  private static int id(Object msg) {
+    return ((Http2StreamFrame) msg).stream().id();
+  }
+
+  private static boolean isInformational(Http2HeadersFrame frame) {
+    final CharSequence status = frame.headers().status();
+    return status != null && status.length() == 3 && status.charAt(0) == '1';
+  }
+
+  @Nullable
+  private static HttpResponse toHttpResponse(Http2HeadersFrame frame) {
+    if (frame.headers().status() == null) {
+      return null;
+    }
+
+    try {
+      return HttpConversionUtil.toHttpResponse(frame.stream().id(), frame.headers(), false);
+    } catch (Http2Exception err) {
+      log.debug("Cannot convert response headers of stream {}", frame.stream().id(), err);
+      return null;
+    }
+  }
+}
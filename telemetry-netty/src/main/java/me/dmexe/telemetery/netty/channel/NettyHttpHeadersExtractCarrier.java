@@ -0,0 +1,87 @@
+package me.dmexe.telemetery.netty.channel;
+
+import io.netty.handler.codec.http.HttpHeaders;
+import io.opentracing.propagation.TextMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An extract only carrier, it fetches the known propagation headers by name up front and exposes
+ * only those present to a tracer.
+ */
+class NettyHttpHeadersExtractCarrier implements TextMap {
+  private final String[] keys;
+  private final String[] values;
+  private final int found;
+
+  NettyHttpHeadersExtractCarrier(HttpHeaders headers, PropagationHeaders propagation) {
+    Objects.requireNonNull(headers, "headers cannot be null");
+    Objects.requireNonNull(propagation, "propagation cannot be null");
+
+    final int size = propagation.names.length;
+    int found = 0;
+    String[] values = null;
+
+    for (int i = 0; i < size; i++) {
+      final String value = headers.get(propagation.names[i]);
+      if (value != null) {
+        if (values == null) {
+          values = new String[size];
+        }
+        values[i] = value;
+        found += 1;
+      }
+    }
+
+    this.keys = propagation.keys;
+    this.values = values;
+    this.found = found;
+  }
+
+  boolean isEmpty() {
+    return found == 0;
+  }
+
+  @Override
+  @NotNull
+  public Iterator<Entry<String, String>> iterator() {
+    return new Iterator<Entry<String, String>>() {
+      private int index = nextIndex(0);
+
+      @Override
+      public boolean hasNext() {
+        return index < keys.length;
+      }
+
+      @Override
+      public Entry<String, String> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        final Entry<String, String> entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+        index = nextIndex(index + 1);
+        return entry;
+      }
+    };
+  }
+
+  @Override
+  public void put(String key, String value) {
+    throw new UnsupportedOperationException("the carrier is only for extraction");
+  }
+
+  private int nextIndex(int from) {
+    if (values == null) {
+      return keys.length;
+    }
+    int index = from;
+    while (index < keys.length && values[index] == null) {
+      index += 1;
+    }
+    return index;
+  }
+}
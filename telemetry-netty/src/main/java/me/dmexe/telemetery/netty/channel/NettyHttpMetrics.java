@@ -0,0 +1,87 @@
+package me.dmexe.telemetery.netty.channel;
+
+import io.netty.handler.codec.http.HttpMethod;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import me.dmexe.telemetry.core.latency.LatencyHistogram;
+import me.dmexe.telemetry.core.metrics.Counter;
+
+/**
+ * A table of label children of the HTTP metrics for an address, keyed by status code and method.
+ * The table is filled lazily, a completed request with a common method and a status code in
+ * 100..599 range takes the children from the table without any allocation.
+ */
+class NettyHttpMetrics {
+  private static final int MIN_CODE = 100;
+  private static final int MAX_CODE = 599;
+  private static final int CODES = MAX_CODE - MIN_CODE + 1;
+
+  private static final HttpMethod[] METHODS = new HttpMethod[] {
+      HttpMethod.GET,
+      HttpMethod.POST,
+      HttpMethod.PUT,
+      HttpMethod.DELETE,
+      HttpMethod.HEAD,
+      HttpMethod.OPTIONS,
+      HttpMethod.PATCH,
+      HttpMethod.TRACE,
+      HttpMethod.CONNECT
+  };
+
+  private final String address;
+  private final Counter handled;
+  private final LatencyHistogram latency;
+  private final AtomicReferenceArray<Children> table;
+
+  NettyHttpMetrics(String address, Counter handled, LatencyHistogram latency) {
+    Objects.requireNonNull(address, "address cannot be null");
+    Objects.requireNonNull(handled, "handled cannot be null");
+    Objects.requireNonNull(latency, "latency cannot be null");
+    this.address = address;
+    this.handled = handled;
+    this.latency = latency;
+    this.table = new AtomicReferenceArray<>(METHODS.length * CODES);
+  }
+
+  Children children(int code, HttpMethod method) {
+    final int methodIndex = indexOf(method);
+    if (methodIndex < 0 || code < MIN_CODE || code > MAX_CODE) {
+      return resolve(code, method);
+    }
+
+    final int index = methodIndex * CODES + (code - MIN_CODE);
+    Children children = table.get(index);
+    if (children == null) {
+      // a race here is harmless, both threads resolve the same children
+      children = resolve(code, method);
+      table.set(index, children);
+    }
+    return children;
+  }
+
+  private Children resolve(int code, HttpMethod method) {
+    final String codeLabel = Integer.toString(code);
+    return new Children(
+        handled.labels(address, codeLabel, method.name()),
+        latency.labels(address, codeLabel, method.name()));
+  }
+
+  private static int indexOf(HttpMethod method) {
+    for (int i = 0; i < METHODS.length; i++) {
+      if (METHODS[i] == method) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static class Children {
+    final Counter.Child handled;
+    final LatencyHistogram.Child latency;
+
+    Children(Counter.Child handled, LatencyHistogram.Child latency) {
+      this.handled = handled;
+      this.latency = latency;
+    }
+  }
+}
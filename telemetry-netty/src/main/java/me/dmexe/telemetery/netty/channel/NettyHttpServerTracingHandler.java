@@ -2,6 +2,7 @@ package me.dmexe.telemetery.netty.channel;
 
 import static me.dmexe.telemetery.netty.channel.NettyConstants.CLIENT_CONNECTION_CLOSED;
 import static me.dmexe.telemetery.netty.channel.NettyConstants.CLIENT_CONNECTION_CLOSED_RESPONSE;
+import static me.dmexe.telemetery.netty.channel.NettyConstants.SERVER_CURRENT_SPAN;
 
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -10,7 +11,9 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.LastHttpContent;
+import io.opentracing.Span;
 import java.util.Objects;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,6 +21,16 @@ import org.slf4j.LoggerFactory;
  * There is a state machine for HTTP request/response cycle. Handles transition
  * between IDLE -{@literal >} REQUEST_RECEIVED -{@literal >} RESPONSE_SEND -{@literal >}
  * COMPLETED -{@literal >} IDLE states.
+ *
+ * <p>Pipelined requests are kept in a bounded FIFO ring of contexts, responses are matched to
+ * requests in order. A request received while the ring is full isn't traced, it's only counted so
+ * its response is skipped and doesn't shift responses of the following requests. Contexts are
+ * created on first use of a ring slot and reused afterwards.
+ *
+ * <p>{@link NettyHttpTracingContext#getServerCurrentSpan(io.netty.channel.Channel)} is the span
+ * of the last received request, so it's the span of the request passed to the next handlers by
+ * {@link #channelRead(ChannelHandlerContext, Object)}, it's removed when that request is
+ * completed.
  */
 public class NettyHttpServerTracingHandler extends ChannelDuplexHandler {
   private static final Logger log = LoggerFactory.getLogger(NettyHttpServerTracingHandler.class);
@@ -29,21 +42,52 @@ public class NettyHttpServerTracingHandler extends ChannelDuplexHandler {
     COMPLETED
   }
 
-  private final NettyHttpTracingContext stats;
-  private State state;
+  private final Supplier<NettyHttpTracingContext> contexts;
+  private final NettyHttpTracingContext[] stats;
+  private final State[] states;
+  private final int[] untracedBefore;
+  private final int mask;
+  private int head;
+  private int size;
+  private int untracedAfter;
+
+  NettyHttpServerTracingHandler(Supplier<NettyHttpTracingContext> contexts, int capacity) {
+    Objects.requireNonNull(contexts, "contexts cannot be null");
+    if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a positive power of two");
+    }
 
-  NettyHttpServerTracingHandler(NettyHttpTracingContext stats) {
-    Objects.requireNonNull(stats, "stats cannot be null");
-    this.stats = stats;
-    reset();
+    this.contexts = contexts;
+    this.stats = new NettyHttpTracingContext[capacity];
+    this.states = new State[capacity];
+    this.untracedBefore = new int[capacity];
+    this.mask = capacity - 1;
+    this.head = 0;
+    this.size = 0;
+    this.untracedAfter = 0;
+
+    for (int i = 0; i < capacity; i++) {
+      states[i] = State.IDLE;
+    }
   }
 
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
     if (msg instanceof HttpRequest) {
-      if (nextState(State.REQUEST_RECEIVED)) {
+      final int index = (head + size) & mask;
+      if (size == stats.length || !nextState(index, State.REQUEST_RECEIVED)) {
+        log.debug("Cannot trace a pipelined request, {} requests are in flight", size);
+        untracedAfter += 1;
+      } else {
+        untracedBefore[index] = untracedAfter;
+        untracedAfter = 0;
+        size += 1;
         final HttpRequest request = (HttpRequest) msg;
+        final NettyHttpTracingContext stats = stats(index);
         stats.handleRequest(request, ctx.channel());
+        if (stats.span() != null) {
+          NettyHttpTracingContext.addServerCurrentSpan(ctx.channel(), stats.span());
+        }
       }
     }
 
@@ -54,17 +98,25 @@ public class NettyHttpServerTracingHandler extends ChannelDuplexHandler {
   public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
       throws Exception {
 
-    if (msg instanceof HttpResponse && !isContinueResponse(msg)) {
-      if (nextState(State.RESPONSE_SEND)) {
-        HttpResponse response = (HttpResponse) msg;
-        stats.handleResponse(response);
-      }
-    }
-
-    if (msg instanceof LastHttpContent && !isContinueResponse(msg)) {
-      if (nextState(State.COMPLETED)) {
-        stats.completed();
-        nextState(State.IDLE);
+    if (!isContinueResponse(msg)) {
+      if (size > 0 && untracedBefore[head] == 0) {
+        if (msg instanceof HttpResponse && nextState(head, State.RESPONSE_SEND)) {
+          HttpResponse response = (HttpResponse) msg;
+          stats[head].handleResponse(response);
+        }
+
+        if (msg instanceof LastHttpContent && nextState(head, State.COMPLETED)) {
+          completed(ctx);
+          nextState(head, State.IDLE);
+          dequeue();
+        }
+      } else if (msg instanceof LastHttpContent) {
+        // a response of an untraced request
+        if (size > 0) {
+          untracedBefore[head] -= 1;
+        } else if (untracedAfter > 0) {
+          untracedAfter -= 1;
+        }
       }
     }
 
@@ -73,29 +125,32 @@ public class NettyHttpServerTracingHandler extends ChannelDuplexHandler {
 
   @Override
   public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-    // client closed connection abnormally.
-    if (state == State.REQUEST_RECEIVED) {
-      stats.handleResponse(CLIENT_CONNECTION_CLOSED_RESPONSE);
-      stats.exceptionCaught(CLIENT_CONNECTION_CLOSED);
-    }
+    while (size > 0) {
+      // client closed connection abnormally.
+      if (states[head] == State.REQUEST_RECEIVED) {
+        stats[head].handleResponse(CLIENT_CONNECTION_CLOSED_RESPONSE);
+        stats[head].exceptionCaught(CLIENT_CONNECTION_CLOSED);
+      }
 
-    // failed to flush last frame
-    if (state == State.RESPONSE_SEND) {
-      nextState(State.COMPLETED);
-      nextState(State.IDLE);
-    }
+      // failed to flush last frame
+      if (states[head] == State.RESPONSE_SEND) {
+        nextState(head, State.COMPLETED);
+      }
 
-    if (state != State.IDLE) {
-      nextState(State.IDLE);
+      completed(ctx);
+      states[head] = State.IDLE;
+      dequeue();
     }
+    untracedAfter = 0;
 
-    stats.completed();
     super.channelInactive(ctx);
   }
 
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
-    stats.exceptionCaught(cause);
+    if (size > 0) {
+      stats[head].exceptionCaught(cause);
+    }
     super.exceptionCaught(ctx, cause);
   }
 
@@ -107,7 +162,31 @@ public class NettyHttpServerTracingHandler extends ChannelDuplexHandler {
     return false;
   }
 
-  private boolean nextState(State nextState) {
+  private NettyHttpTracingContext stats(int index) {
+    NettyHttpTracingContext stats = this.stats[index];
+    if (stats == null) {
+      stats = contexts.get();
+      this.stats[index] = stats;
+    }
+    return stats;
+  }
+
+  private void completed(ChannelHandlerContext ctx) {
+    final Span span = stats[head].span();
+    if (span != null) {
+      ctx.channel().attr(SERVER_CURRENT_SPAN).compareAndSet(span, null);
+    }
+    stats[head].completed();
+  }
+
+  private void dequeue() {
+    untracedBefore[head] = 0;
+    head = (head + 1) & mask;
+    size -= 1;
+  }
+
+  private boolean nextState(int index, State nextState) {
+    final State state = states[index];
     boolean transition = false;
 
     if (nextState == State.REQUEST_RECEIVED && state == State.IDLE) {
@@ -124,22 +203,14 @@ public class NettyHttpServerTracingHandler extends ChannelDuplexHandler {
       if (transition) {
         log.debug("Transit from {} to {}", state, nextState);
       } else {
-        log.debug("Cannot transit from {} to {}, reset to IDLE", state, nextState);
+        log.debug("Cannot transit from {} to {}, ignore the message", state, nextState);
       }
     }
 
-    if (transition && nextState == State.IDLE) {
-      reset();
-    } else if (transition) {
-      this.state = nextState;
-    } else {
-      reset();
+    if (transition) {
+      states[index] = nextState;
     }
 
     return transition;
   }
-
-  private void reset() {
-    this.state = State.IDLE;
-  }
 }
@@ -2,12 +2,15 @@ package me.dmexe.telemetery.netty.channel;
 
 import static me.dmexe.telemetery.netty.channel.NettyConstants.CLIENT_PARENT_SPAN_CONTEXT;
 import static me.dmexe.telemetery.netty.channel.NettyConstants.SERVER_CURRENT_SPAN;
+import static me.dmexe.telemetery.netty.channel.NettyConstants.SERVER_STREAM_SPANS;
 
 import io.netty.channel.Channel;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.jetbrains.annotations.Nullable;
 
 public interface NettyHttpTracingContext {
@@ -22,15 +25,77 @@ public interface NettyHttpTracingContext {
 
   void exceptionCaught(String err);
 
+  /**
+   * A span of the current request.
+   *
+   * @return the span or null when the request isn't sampled or completed.
+   */
+  @Nullable
+  Span span();
+
   static void addServerCurrentSpan(Channel channel, Span span) {
     channel.attr(SERVER_CURRENT_SPAN).set(span);
   }
 
+  /**
+   * Assign a span of a request of a HTTP/2 stream.
+   *
+   * @param channel the connection channel.
+   * @param streamId the stream id.
+   * @param span the span.
+   */
+  static void addServerCurrentSpan(Channel channel, int streamId, Span span) {
+    Map<Integer, Span> spans = channel.attr(SERVER_STREAM_SPANS).get();
+    if (spans == null) {
+      final Map<Integer, Span> newSpans = new ConcurrentHashMap<>();
+      spans = channel.attr(SERVER_STREAM_SPANS).setIfAbsent(newSpans);
+      if (spans == null) {
+        spans = newSpans;
+      }
+    }
+    spans.put(streamId, span);
+  }
+
+  /**
+   * A span of a request handled by a HTTP/1 server channel or by a HTTP/2 stream channel of
+   * {@link io.netty.handler.codec.http2.Http2MultiplexCodec}, spans of streams of
+   * {@link io.netty.handler.codec.http2.Http2FrameCodec} are kept by
+   * {@link #getServerCurrentSpan(Channel, int)}.
+   *
+   * @param channel the channel.
+   * @return the span or null.
+   */
   @Nullable
   static Span getServerCurrentSpan(Channel channel) {
     return channel.attr(SERVER_CURRENT_SPAN).get();
   }
 
+  /**
+   * A span of a request of a HTTP/2 stream, it's removed when the stream is completed.
+   *
+   * @param channel the connection channel.
+   * @param streamId the stream id.
+   * @return the span or null.
+   */
+  @Nullable
+  static Span getServerCurrentSpan(Channel channel, int streamId) {
+    final Map<Integer, Span> spans = channel.attr(SERVER_STREAM_SPANS).get();
+    return spans == null ? null : spans.get(streamId);
+  }
+
+  /**
+   * Remove a span of a request of a completed HTTP/2 stream.
+   *
+   * @param channel the connection channel.
+   * @param streamId the stream id.
+   */
+  static void removeServerCurrentSpan(Channel channel, int streamId) {
+    final Map<Integer, Span> spans = channel.attr(SERVER_STREAM_SPANS).get();
+    if (spans != null) {
+      spans.remove(streamId);
+    }
+  }
+
   static void addClientParentContext(Channel channel, SpanContext spanParentContext) {
     channel.attr(CLIENT_PARENT_SPAN_CONTEXT).set(spanParentContext);
   }
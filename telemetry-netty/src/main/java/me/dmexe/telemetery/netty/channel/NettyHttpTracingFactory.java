@@ -2,6 +2,10 @@ package me.dmexe.telemetery.netty.channel;
 
 import io.netty.channel.ChannelHandler;
 import io.opentracing.Tracer;
+import me.dmexe.telemetry.core.latency.Buckets;
+import me.dmexe.telemetry.core.latency.LatencyRecorder;
+import me.dmexe.telemetry.core.metrics.MetricsBackend;
+import me.dmexe.telemetry.core.sampler.Sampler;
 
 public interface NettyHttpTracingFactory {
   NettyHttpTracingFactory address(String address);
@@ -10,10 +14,77 @@ public interface NettyHttpTracingFactory {
 
   NettyHttpTracingFactory tracer(Tracer tracer);
 
+  /**
+   * Assign a head {@link Sampler}, it decides by a request URI whether a span is created, an
+   * unsampled request only records metrics. A server request with a propagated parent context
+   * always follows the parent, an unsampled client request still propagates its parent context.
+   *
+   * @param sampler the sampler.
+   * @return the factory.
+   */
+  NettyHttpTracingFactory sampler(Sampler sampler);
+
+  /**
+   * Assign header names a server extracts a parent span context from, by default all request
+   * headers are passed to the tracer.
+   *
+   * @param propagationHeaders the header names, see {@link PropagationHeaders#B3} and others.
+   * @return the factory.
+   */
+  NettyHttpTracingFactory propagationHeaders(PropagationHeaders propagationHeaders);
+
+  /**
+   * Assign a {@link LatencyRecorder} for request latency, by default it's
+   * {@link LatencyRecorder#defaultRecorder()}.
+   *
+   * @param latencyRecorder the recorder.
+   * @return the factory.
+   */
+  NettyHttpTracingFactory latencyRecorder(LatencyRecorder latencyRecorder);
+
+  /**
+   * Record request latency by a simpleclient histogram with the given buckets.
+   *
+   * @param buckets the buckets.
+   * @return the factory.
+   */
+  NettyHttpTracingFactory latencyBuckets(Buckets buckets);
+
+  /**
+   * Assign a {@link MetricsBackend}, by default metrics are simpleclient collectors in the default
+   * registry with a limited number of label values. The latency recorder and buckets apply only
+   * to the default backend, an assigned backend can be limited by
+   * {@link MetricsBackend#limited(MetricsBackend)}.
+   *
+   * @param metricsBackend the backend.
+   * @return the factory.
+   */
+  NettyHttpTracingFactory metricsBackend(MetricsBackend metricsBackend);
+
+  /**
+   * Assign a maximum number of pipelined requests traced on a server connection at once, it's
+   * rounded up to a power of two, 16 by default.
+   *
+   * @param limit the limit.
+   * @return the factory.
+   */
+  NettyHttpTracingFactory pipeliningLimit(int limit);
+
   ChannelHandler newClientHandler();
 
   ChannelHandler newServerHandler();
 
+  /**
+   * Create a server handler for HTTP/2 streams, it should be added after
+   * {@link io.netty.handler.codec.http2.Http2FrameCodec} and records every stream of the
+   * connection separately. For {@link io.netty.handler.codec.http2.Http2MultiplexCodec} add
+   * {@link #newServerHandler()} or {@link #newClientHandler()} to a stream channel pipeline after
+   * {@link io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec} instead.
+   *
+   * @return the handler.
+   */
+  ChannelHandler newHttp2ServerHandler();
+
   static NettyHttpTracingFactory newFactory() {
     return new DefaultNettyHttpTracingFactory();
   }
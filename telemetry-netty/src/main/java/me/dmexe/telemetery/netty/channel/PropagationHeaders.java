@@ -0,0 +1,73 @@
+package me.dmexe.telemetery.netty.channel;
+
+import io.netty.util.AsciiString;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A fixed set of header names a tracer reads a span context from. When assigned to a factory,
+ * the server looks up only these headers instead of iterating over all request headers, so
+ * extraction cost doesn't depend on how many headers a request has. Baggage items transferred
+ * by prefixed headers aren't extracted, list them explicitly when they are required.
+ */
+public final class PropagationHeaders {
+
+  /** Zipkin B3 multi header format. */
+  public static final PropagationHeaders B3 = of(
+      "x-b3-traceid", "x-b3-spanid", "x-b3-parentspanid", "x-b3-sampled", "x-b3-flags");
+
+  /** Jaeger single header format. */
+  public static final PropagationHeaders JAEGER = of("uber-trace-id");
+
+  /** W3C Trace Context format. */
+  public static final PropagationHeaders TRACE_CONTEXT = of("traceparent", "tracestate");
+
+  /** OpenTracing basictracer/LightStep format. */
+  public static final PropagationHeaders OT = of(
+      "ot-tracer-traceid", "ot-tracer-spanid", "ot-tracer-sampled");
+
+  final AsciiString[] names;
+  final String[] keys;
+
+  private PropagationHeaders(AsciiString[] names) {
+    this.names = names;
+    this.keys = new String[names.length];
+    for (int i = 0; i < names.length; i++) {
+      keys[i] = names[i].toString();
+    }
+  }
+
+  /**
+   * Create a set of header names.
+   *
+   * @param names header names, case insensitive.
+   * @return the headers.
+   */
+  public static PropagationHeaders of(CharSequence... names) {
+    Objects.requireNonNull(names, "names cannot be null");
+    final AsciiString[] values = new AsciiString[names.length];
+    for (int i = 0; i < names.length; i++) {
+      Objects.requireNonNull(names[i], "name cannot be null");
+      values[i] = AsciiString.of(names[i]).toLowerCase();
+    }
+    return new PropagationHeaders(values);
+  }
+
+  /**
+   * Combine with another set of header names, for example when several formats are accepted.
+   *
+   * @param other header names to add.
+   * @return the headers.
+   */
+  public PropagationHeaders with(PropagationHeaders other) {
+    Objects.requireNonNull(other, "other cannot be null");
+    final AsciiString[] values = Arrays.copyOf(names, names.length + other.names.length);
+    System.arraycopy(other.names, 0, values, names.length, other.names.length);
+    return new PropagationHeaders(values);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(keys);
+  }
+}
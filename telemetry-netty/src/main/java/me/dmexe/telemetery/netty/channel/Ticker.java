@@ -1,6 +1,11 @@
 package me.dmexe.telemetery.netty.channel;
 
+import me.dmexe.telemetry.core.Clock;
+
+/**
+ * A {@link Clock} of the netty factories, it's kept for compatibility of the {@code ticker}
+ * setters.
+ */
 @FunctionalInterface
-public interface Ticker {
-  long nanoTime();
+public interface Ticker extends Clock {
 }
@@ -0,0 +1,109 @@
+package me.dmexe.telemetery.netty.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import me.dmexe.telemetry.core.metrics.ExpositionWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the payload on the path, the handler is shared by all the connections of the server.
+ */
+@ChannelHandler.Sharable
+class MetricsHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+  private static final Logger log = LoggerFactory.getLogger(MetricsHttpHandler.class);
+
+  private final String path;
+  private final MetricsPayload payload;
+
+  MetricsHttpHandler(String path, MetricsPayload payload) {
+    this.path = path;
+    this.payload = payload;
+  }
+
+  @Override
+  protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+    final String uri = request.uri();
+    final int query = uri.indexOf('?');
+    if (!path.equals(query < 0 ? uri : uri.substring(0, query))) {
+      respond(ctx, request, error(request, HttpResponseStatus.NOT_FOUND));
+      return;
+    }
+
+    final HttpMethod method = request.method();
+    if (!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method)) {
+      final FullHttpResponse response = error(request, HttpResponseStatus.METHOD_NOT_ALLOWED);
+      response.headers().set(HttpHeaderNames.ALLOW, "GET, HEAD");
+      respond(ctx, request, response);
+      return;
+    }
+
+    final String acceptEncoding = request.headers().get(HttpHeaderNames.ACCEPT_ENCODING);
+    final boolean gzip = acceptEncoding != null
+        && acceptEncoding.contains(HttpHeaderValues.GZIP);
+
+    final ByteBuf content;
+    try {
+      content = payload.get(ctx.alloc(), gzip);
+    } catch (Exception err) {
+      log.error("cannot render metrics", err);
+      respond(ctx, request, error(request, HttpResponseStatus.INTERNAL_SERVER_ERROR));
+      return;
+    }
+
+    final int length = content.readableBytes();
+    final FullHttpResponse response;
+    if (HttpMethod.HEAD.equals(method)) {
+      content.release();
+      response = new DefaultFullHttpResponse(
+          request.protocolVersion(), HttpResponseStatus.OK, Unpooled.EMPTY_BUFFER);
+    } else {
+      response = new DefaultFullHttpResponse(
+          request.protocolVersion(), HttpResponseStatus.OK, content);
+    }
+
+    response.headers()
+        .set(HttpHeaderNames.CONTENT_TYPE, ExpositionWriter.CONTENT_TYPE)
+        .setInt(HttpHeaderNames.CONTENT_LENGTH, length);
+    if (gzip) {
+      response.headers().set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+    }
+    respond(ctx, request, response);
+  }
+
+  @Override
+  public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+    log.debug("metrics connection failed", cause);
+    ctx.close();
+  }
+
+  private static FullHttpResponse error(FullHttpRequest request, HttpResponseStatus status) {
+    final FullHttpResponse response =
+        new DefaultFullHttpResponse(request.protocolVersion(), status, Unpooled.EMPTY_BUFFER);
+    response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
+    return response;
+  }
+
+  private static void respond(ChannelHandlerContext ctx, FullHttpRequest request,
+                              FullHttpResponse response) {
+    final boolean keepAlive = HttpUtil.isKeepAlive(request);
+    HttpUtil.setKeepAlive(response, keepAlive);
+    if (keepAlive) {
+      ctx.writeAndFlush(response, ctx.voidPromise());
+    } else {
+      ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package me.dmexe.telemetery.netty.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.prometheus.client.CollectorRegistry;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import me.dmexe.telemetry.core.Clock;
+import me.dmexe.telemetry.core.metrics.ExpositionWriter;
+import me.dmexe.telemetry.core.metrics.StreamingCollector;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Renders the metrics into direct buffers and keeps them for a TTL, a scrape within the TTL gets
+ * a duplicate of the rendered buffer. The metrics are encoded into the reused heap buffer of an
+ * {@link ExpositionWriter} and copied once into a direct buffer, the gzip encoded payload is
+ * compressed from the heap buffer once per rendering, on the first scrape which accepts it.
+ *
+ * <p>The payload isn't thread safe, it's accessed from the single event loop of the server.
+ */
+class MetricsPayload {
+  private final CollectorRegistry registry;
+  private final List<StreamingCollector> collectors;
+  private final long ttlNanos;
+  private final Clock clock;
+  private final ExpositionWriter writer;
+  private long renderedAt;
+
+  @Nullable
+  private ByteBuf plain;
+
+  @Nullable
+  private ByteBuf gzip;
+
+  MetricsPayload(CollectorRegistry registry, List<StreamingCollector> collectors, long ttlNanos,
+                 Clock clock) {
+    this.registry = registry;
+    this.collectors = collectors;
+    this.ttlNanos = ttlNanos;
+    this.clock = clock;
+    this.writer = new ExpositionWriter();
+  }
+
+  /**
+   * A retained duplicate of the rendered payload, a caller must release it.
+   */
+  ByteBuf get(ByteBufAllocator alloc, boolean gzip) throws IOException {
+    final long now = clock.nanoTime();
+    if (plain == null || now - renderedAt >= ttlNanos) {
+      release();
+      render(alloc);
+      renderedAt = now;
+    }
+
+    if (!gzip) {
+      return plain.retainedDuplicate();
+    }
+    if (this.gzip == null) {
+      this.gzip = compress(alloc);
+    }
+    return this.gzip.retainedDuplicate();
+  }
+
+  void release() {
+    if (plain != null) {
+      plain.release();
+      plain = null;
+    }
+    if (gzip != null) {
+      gzip.release();
+      gzip = null;
+    }
+  }
+
+  private void render(ByteBufAllocator alloc) {
+    writer.reset();
+    writer.write(registry.metricFamilySamples());
+    for (StreamingCollector collector : collectors) {
+      writer.write(collector);
+    }
+
+    final ByteBuf buffer = alloc.directBuffer(writer.size());
+    buffer.writeBytes(writer.toByteBuffer());
+    this.plain = buffer;
+  }
+
+  private ByteBuf compress(ByteBufAllocator alloc) throws IOException {
+    // the text format usually compresses about ten times
+    final ByteBuf buffer = alloc.directBuffer(writer.size() / 8 + 64);
+    try (GZIPOutputStream out = new GZIPOutputStream(new ByteBufOutputStream(buffer))) {
+      writer.writeTo(out);
+    } catch (IOException | RuntimeException err) {
+      buffer.release();
+      throw err;
+    }
+    return buffer;
+  }
+}
@@ -0,0 +1,228 @@
+package me.dmexe.telemetery.netty.metrics;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.prometheus.client.CollectorRegistry;
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import me.dmexe.telemetry.core.Clock;
+import me.dmexe.telemetry.core.metrics.StreamingCollector;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An HTTP server which exposes metrics in the Prometheus text format. The server runs on its own
+ * single thread event loop, the metrics are encoded into a reused heap buffer and copied once
+ * into a pooled direct buffer, the rendered payload is served to all scrapes within a TTL, so
+ * scrapes by several Prometheus replicas don't render the metrics for every request. A payload is
+ * gzip encoded when a scrape accepts it.
+ *
+ * <pre>{@code
+ * MetricsServer server = MetricsServer.builder()
+ *     .port(8081)
+ *     .collector(new PooledByteBufAllocatorCollector())
+ *     .build();
+ * }</pre>
+ */
+public final class MetricsServer implements Closeable {
+  private static final int MAX_REQUEST_LENGTH = 64 * 1024;
+
+  private final EventLoopGroup group;
+  private final MetricsPayload payload;
+  private final Channel channel;
+
+  private MetricsServer(Builder builder) {
+    this.group = new NioEventLoopGroup(1, new DefaultThreadFactory(builder.threadName, true));
+    this.payload = new MetricsPayload(
+        builder.registry,
+        new ArrayList<>(builder.collectors),
+        builder.ttl.toNanos(),
+        builder.clock);
+
+    final MetricsHttpHandler handler = new MetricsHttpHandler(builder.path, payload);
+    try {
+      this.channel = new ServerBootstrap()
+          .group(group)
+          .channel(NioServerSocketChannel.class)
+          .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+          .childHandler(new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+              ch.pipeline()
+                  .addLast(new HttpServerCodec())
+                  .addLast(new HttpObjectAggregator(MAX_REQUEST_LENGTH))
+                  .addLast(handler);
+            }
+          })
+          .bind(builder.address)
+          .syncUninterruptibly()
+          .channel();
+    } catch (RuntimeException err) {
+      group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+      throw err;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public InetSocketAddress localAddress() {
+    return (InetSocketAddress) channel.localAddress();
+  }
+
+  /**
+   * Stop accepting scrapes, release the rendered payload and shutdown the event loop.
+   */
+  @Override
+  public void close() {
+    channel.close().syncUninterruptibly();
+    group.submit(payload::release).syncUninterruptibly();
+    group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+  }
+
+  public static class Builder {
+    @Nullable
+    private InetSocketAddress address;
+    private String path;
+    private Duration ttl;
+    private String threadName;
+    private Clock clock;
+    private CollectorRegistry registry;
+    private final List<StreamingCollector> collectors;
+
+    Builder() {
+      this.address = null;
+      this.path = "/metrics";
+      this.ttl = Duration.ofSeconds(1);
+      this.threadName = "metrics-server";
+      this.clock = Clock.system();
+      this.registry = CollectorRegistry.defaultRegistry;
+      this.collectors = new ArrayList<>();
+    }
+
+    /**
+     * Assign a port on all interfaces, a port or an address must be assigned.
+     *
+     * @param port the port, 0 binds a random port.
+     * @return the builder.
+     */
+    public Builder port(int port) {
+      this.address = new InetSocketAddress(port);
+      return this;
+    }
+
+    /**
+     * Assign an address, a port or an address must be assigned.
+     *
+     * @param address the address.
+     * @return the builder.
+     */
+    public Builder address(InetSocketAddress address) {
+      Objects.requireNonNull(address, "address cannot be null");
+      this.address = address;
+      return this;
+    }
+
+    /**
+     * Assign a path of the metrics, the default is {@code /metrics}.
+     *
+     * @param path the path.
+     * @return the builder.
+     */
+    public Builder path(String path) {
+      Objects.requireNonNull(path, "path cannot be null");
+      this.path = path;
+      return this;
+    }
+
+    /**
+     * Assign a time to serve the rendered payload, the default is 1 second. A zero TTL renders
+     * the metrics for every scrape.
+     *
+     * @param ttl the time.
+     * @return the builder.
+     */
+    public Builder ttl(Duration ttl) {
+      Objects.requireNonNull(ttl, "ttl cannot be null");
+      if (ttl.isNegative()) {
+        throw new IllegalArgumentException("ttl cannot be negative");
+      }
+      this.ttl = ttl;
+      return this;
+    }
+
+    /**
+     * Assign a name of the event loop thread.
+     *
+     * @param threadName the name.
+     * @return the builder.
+     */
+    public Builder threadName(String threadName) {
+      Objects.requireNonNull(threadName, "threadName cannot be null");
+      this.threadName = threadName;
+      return this;
+    }
+
+    /**
+     * Assign a registry of the exposed metrics, the default is the default registry.
+     *
+     * @param registry the registry.
+     * @return the builder.
+     */
+    public Builder collectorRegistry(CollectorRegistry registry) {
+      Objects.requireNonNull(registry, "registry cannot be null");
+      this.registry = registry;
+      return this;
+    }
+
+    /**
+     * Add a collector which is exposed in addition to the registry, it's written straight into
+     * the payload. The collector must not be registered in the registry.
+     *
+     * @param collector the collector.
+     * @return the builder.
+     */
+    public Builder collector(StreamingCollector collector) {
+      Objects.requireNonNull(collector, "collector cannot be null");
+      this.collectors.add(collector);
+      return this;
+    }
+
+    /**
+     * Assign a clock, it's only for testing.
+     */
+    Builder clock(Clock clock) {
+      Objects.requireNonNull(clock, "clock cannot be null");
+      this.clock = clock;
+      return this;
+    }
+
+    /**
+     * Create the server and bind it to the address.
+     *
+     * @return the started server.
+     * @throws IllegalStateException when neither a port nor an address is assigned.
+     */
+    public MetricsServer build() {
+      if (address == null) {
+        throw new IllegalStateException("a port or an address must be assigned");
+      }
+      return new MetricsServer(this);
+    }
+  }
+}
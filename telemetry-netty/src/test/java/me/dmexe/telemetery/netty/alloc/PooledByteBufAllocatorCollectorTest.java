@@ -10,6 +10,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import me.dmexe.telemetry.core.metrics.ExpositionWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -58,6 +59,22 @@ class PooledByteBufAllocatorCollectorTest {
     directBuffers.forEach(ReferenceCounted::release);
   }
 
+  @Test
+  void should_write_exposition() {
+    final ByteBuf buffer = alloc.directBuffer(8 * 1024);
+
+    final String output = new ExpositionWriter()
+        .write(new PooledByteBufAllocatorCollector())
+        .toString();
+
+    assertThat(output)
+        .containsOnlyOnce("# TYPE netty_alloc_num_active_allocations gauge\n")
+        .contains("netty_alloc_num_active_allocations{pool=\"test\",arena=\"direct\",} 1.0\n")
+        .contains("netty_alloc_num_allocations{pool=\"test\",arena=\"heap\",} 0.0\n");
+
+    buffer.release();
+  }
+
   private static List<String> samples(CollectorRegistry collectorRegistry) {
     return Collections.list(collectorRegistry.metricFamilySamples()).stream()
         .flatMap(family ->
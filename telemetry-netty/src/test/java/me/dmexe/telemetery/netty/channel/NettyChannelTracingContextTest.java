@@ -4,6 +4,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 import static org.awaitility.Duration.TWO_SECONDS;
 
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderNames;
@@ -13,7 +15,16 @@ import io.netty.handler.codec.http.HttpVersion;
 import io.opentracing.mock.MockTracer;
 import io.opentracing.util.ThreadLocalActiveSpanSource;
 import io.prometheus.client.CollectorRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import me.dmexe.telemetery.netty.channel.support.ConstantTicker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -131,6 +142,85 @@ class NettyChannelTracingContextTest extends TestEnv {
             "netty_server_send_bytes{:0}=57.0");
   }
 
+  @Test
+  void should_flush_batched_bytes_on_read_complete_and_flush() {
+    final EmbeddedChannel channel = new EmbeddedChannel(
+        new DefaultNettyChannelTracingFactory()
+            .collectorRegistry(collectorRegistry)
+            .ticker(new ConstantTicker())
+            .batchBytes(1024, Duration.ZERO)
+            .newServerHandler());
+
+    channel.pipeline().fireChannelRead(Unpooled.wrappedBuffer(new byte[100]));
+    channel.pipeline().fireChannelRead(Unpooled.wrappedBuffer(new byte[200]));
+    channel.pipeline().write(Unpooled.wrappedBuffer(new byte[50]));
+
+    assertThat(samples(collectorRegistry, "netty_server"))
+        .contains(
+            "netty_server_received_bytes{:0}=0.0",
+            "netty_server_send_bytes{:0}=0.0");
+
+    channel.pipeline().fireChannelReadComplete();
+    channel.pipeline().flush();
+
+    assertThat(samples(collectorRegistry, "netty_server"))
+        .contains(
+            "netty_server_received_bytes{:0}=300.0",
+            "netty_server_send_bytes{:0}=50.0");
+
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void should_flush_batched_bytes_on_threshold_and_inactive() {
+    final EmbeddedChannel channel = new EmbeddedChannel(
+        new DefaultNettyChannelTracingFactory()
+            .collectorRegistry(collectorRegistry)
+            .ticker(new ConstantTicker())
+            .batchBytes(256, Duration.ofHours(1))
+            .newServerHandler());
+
+    channel.writeInbound(Unpooled.wrappedBuffer(new byte[200]));
+    channel.pipeline().fireChannelReadComplete();
+    assertThat(samples(collectorRegistry, "netty_server"))
+        .contains("netty_server_received_bytes{:0}=0.0");
+
+    channel.writeInbound(Unpooled.wrappedBuffer(new byte[100]));
+    assertThat(samples(collectorRegistry, "netty_server"))
+        .contains("netty_server_received_bytes{:0}=300.0");
+
+    channel.writeOutbound(Unpooled.wrappedBuffer(new byte[10]));
+    channel.writeInbound(Unpooled.wrappedBuffer(new byte[20]));
+    channel.finishAndReleaseAll();
+
+    assertThat(samples(collectorRegistry, "netty_server"))
+        .contains(
+            "netty_server_received_bytes{:0}=320.0",
+            "netty_server_send_bytes{:0}=10.0");
+  }
+
+  @Test
+  void should_register_metrics_once_for_concurrent_handlers() throws Exception {
+    final DefaultNettyChannelTracingFactory factory = new DefaultNettyChannelTracingFactory()
+        .collectorRegistry(collectorRegistry);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    final CyclicBarrier barrier = new CyclicBarrier(8);
+
+    try {
+      final List<Future<?>> futures = IntStream.range(0, 8)
+          .mapToObj(n -> executor.submit(() -> {
+            barrier.await();
+            return n % 2 == 0 ? factory.newServerHandler() : factory.newClientHandler();
+          }))
+          .collect(Collectors.toList());
+      for (Future<?> future : futures) {
+        assertThat(future.get(5, TimeUnit.SECONDS)).isNotNull();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private static FullHttpRequest get(String uri) {
     return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
   }
@@ -0,0 +1,127 @@
+package me.dmexe.telemetery.netty.channel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http2.DefaultHttp2DataFrame;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
+import io.netty.handler.codec.http2.DefaultHttp2ResetFrame;
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2FrameStream;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.opentracing.Span;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.util.ThreadLocalActiveSpanSource;
+import io.prometheus.client.CollectorRegistry;
+import java.util.stream.Collectors;
+import me.dmexe.telemetery.netty.channel.support.ConstantTicker;
+import me.dmexe.telemetery.netty.channel.support.TestHttp2FrameStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NettyHttp2TracingContextTest extends TestEnv {
+  private CollectorRegistry collectorRegistry;
+  private MockTracer tracer;
+  private EmbeddedChannel channel;
+
+  @BeforeEach
+  void before() {
+    collectorRegistry = new CollectorRegistry();
+    tracer = new MockTracer(new ThreadLocalActiveSpanSource());
+    channel = new EmbeddedChannel(
+        new DefaultNettyHttpTracingFactory()
+            .collectorRegistry(collectorRegistry)
+            .ticker(new ConstantTicker())
+            .tracer(tracer)
+            .newHttp2ServerHandler());
+  }
+
+  @Test
+  void should_record_concurrent_streams() {
+    final Http2FrameStream first = new TestHttp2FrameStream(3);
+    final Http2FrameStream second = new TestHttp2FrameStream(5);
+
+    channel.writeInbound(request(first, "GET", "/first"));
+    channel.writeInbound(request(second, "POST", "/second"));
+
+    channel.writeOutbound(response(second, "201", true));
+    channel.writeOutbound(response(first, "404", false));
+    channel.writeOutbound(new DefaultHttp2DataFrame(Unpooled.EMPTY_BUFFER, true).stream(first));
+    channel.finishAndReleaseAll();
+
+    assertThat(samples(collectorRegistry, "http_server_handled_total"))
+        .containsExactly(
+            "http_server_handled_total{:0,201,POST}=1.0",
+            "http_server_handled_total{:0,404,GET}=1.0");
+
+    assertThat(tracer.finishedSpans().stream()
+        .map(it -> it.tags().get("http.url") + "=" + it.tags().get("http.status_code"))
+        .collect(Collectors.toList()))
+        .containsExactly("/second=201", "/first=404");
+  }
+
+  @Test
+  void should_keep_current_span_per_stream() {
+    final Http2FrameStream first = new TestHttp2FrameStream(3);
+    final Http2FrameStream second = new TestHttp2FrameStream(5);
+
+    channel.writeInbound(request(first, "GET", "/first"));
+    channel.writeInbound(request(second, "GET", "/second"));
+
+    final Span firstSpan = NettyHttpTracingContext.getServerCurrentSpan(channel, 3);
+    final Span secondSpan = NettyHttpTracingContext.getServerCurrentSpan(channel, 5);
+    assertThat(firstSpan).isNotNull().isNotSameAs(secondSpan);
+    assertThat(((MockSpan) secondSpan).tags()).containsEntry("http.url", "/second");
+    assertThat(NettyHttpTracingContext.getServerCurrentSpan(channel)).isNull();
+
+    channel.writeOutbound(response(first, "200", true));
+    assertThat(NettyHttpTracingContext.getServerCurrentSpan(channel, 3)).isNull();
+    assertThat(NettyHttpTracingContext.getServerCurrentSpan(channel, 5)).isSameAs(secondSpan);
+
+    channel.writeInbound(new DefaultHttp2ResetFrame(Http2Error.CANCEL).stream(second));
+    assertThat(NettyHttpTracingContext.getServerCurrentSpan(channel, 5)).isNull();
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void should_record_reset_and_inactive_streams() {
+    final Http2FrameStream reset = new TestHttp2FrameStream(3);
+    final Http2FrameStream inactive = new TestHttp2FrameStream(5);
+
+    channel.writeInbound(request(reset, "GET", "/reset"));
+    channel.writeInbound(request(inactive, "GET", "/inactive"));
+    channel.writeInbound(new DefaultHttp2ResetFrame(Http2Error.CANCEL).stream(reset));
+    channel.finishAndReleaseAll();
+
+    assertThat(samples(collectorRegistry, "http_server_handled_total"))
+        .containsExactly("http_server_handled_total{:0,499,GET}=2.0");
+
+    assertThat(tracer.finishedSpans()).hasSize(2);
+    for (MockSpan span : tracer.finishedSpans()) {
+      assertThat(span.tags()).containsEntry("error", true);
+    }
+  }
+
+  private static DefaultHttp2HeadersFrame request(
+      Http2FrameStream stream,
+      String method,
+      String path) {
+    final Http2Headers headers = new DefaultHttp2Headers()
+        .method(method)
+        .path(path)
+        .scheme("http")
+        .authority("example.com");
+    return new DefaultHttp2HeadersFrame(headers, true).stream(stream);
+  }
+
+  private static DefaultHttp2HeadersFrame response(
+      Http2FrameStream stream,
+      String status,
+      boolean endStream) {
+    final Http2Headers headers = new DefaultHttp2Headers().status(status);
+    return new DefaultHttp2HeadersFrame(headers, endStream).stream(stream);
+  }
+}
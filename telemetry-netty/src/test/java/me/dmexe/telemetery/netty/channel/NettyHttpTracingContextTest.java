@@ -4,12 +4,17 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 import static org.awaitility.Duration.TWO_SECONDS;
 
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
 import io.opentracing.mock.MockSpan;
 import io.opentracing.mock.MockTracer;
 import io.opentracing.mock.MockTracer.Propagator;
@@ -22,6 +27,9 @@ import java.net.Socket;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import me.dmexe.telemetery.netty.channel.support.ConstantTicker;
+import me.dmexe.telemetry.core.latency.Buckets;
+import me.dmexe.telemetry.core.sampler.Sampler;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.SocketPolicy;
@@ -351,6 +359,171 @@ class NettyHttpTracingContextTest extends TestEnv {
                 "http_client_handled_total{:0,500,GET}=1.0"));
   }
 
+  @Test
+  void should_extract_parent_span_from_propagation_headers() {
+    final EmbeddedChannel channel = new EmbeddedChannel(
+        new DefaultNettyHttpTracingFactory()
+            .collectorRegistry(collectorRegistry)
+            .tracer(tracer)
+            .propagationHeaders(PropagationHeaders.of("traceid", "spanid"))
+            .newServerHandler());
+
+    final FullHttpRequest request = get("/ping");
+    IntStream.range(0, 32).forEach(n -> request.headers().add("x-header-" + n, n));
+    request.headers().add("TraceId", "42");
+    request.headers().add("SpanId", "7");
+
+    channel.writeInbound(request);
+    channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+    channel.finish();
+
+    final MockSpan serverSpan = getServerSpan();
+    assertThat(serverSpan.context().traceId()).isEqualTo(42);
+    assertThat(serverSpan.parentId()).isEqualTo(7);
+  }
+
+  @Test
+  void should_start_root_span_without_propagation_headers() {
+    final EmbeddedChannel channel = new EmbeddedChannel(
+        new DefaultNettyHttpTracingFactory()
+            .collectorRegistry(collectorRegistry)
+            .tracer(tracer)
+            .propagationHeaders(PropagationHeaders.B3.with(PropagationHeaders.JAEGER))
+            .newServerHandler());
+
+    channel.writeInbound(get("/ping"));
+    channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+    channel.finish();
+
+    assertThat(getServerSpan().parentId()).isEqualTo(0);
+  }
+
+  @Test
+  void should_follow_propagated_parent_of_unsampled_server_request() {
+    final EmbeddedChannel channel = new EmbeddedChannel(
+        new DefaultNettyHttpTracingFactory()
+            .collectorRegistry(collectorRegistry)
+            .tracer(tracer)
+            .sampler(Sampler.never())
+            .propagationHeaders(PropagationHeaders.of("traceid", "spanid"))
+            .newServerHandler());
+
+    final FullHttpRequest request = get("/traced");
+    request.headers().add("traceid", "42");
+    request.headers().add("spanid", "7");
+
+    channel.writeInbound(request, get("/untraced"));
+    channel.writeOutbound(
+        new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK),
+        new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+    channel.finishAndReleaseAll();
+
+    assertThat(tracer.finishedSpans()).hasSize(1);
+    final MockSpan serverSpan = getServerSpan();
+    assertThat(serverSpan.tags()).containsEntry("http.url", "/traced");
+    assertThat(serverSpan.context().traceId()).isEqualTo(42);
+    assertThat(serverSpan.parentId()).isEqualTo(7);
+  }
+
+  @Test
+  void should_propagate_parent_of_unsampled_client_request() {
+    final MockSpan root = tracer.buildSpan("root").startManual();
+    final EmbeddedChannel channel = new EmbeddedChannel(
+        new DefaultNettyHttpTracingFactory()
+            .collectorRegistry(collectorRegistry)
+            .tracer(tracer)
+            .sampler(Sampler.never())
+            .newClientHandler());
+    NettyHttpTracingContext.addClientParentContext(channel, root.context());
+
+    final FullHttpRequest request = get("/ping");
+    channel.writeOutbound(request);
+    channel.writeInbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+    channel.finishAndReleaseAll();
+
+    assertThat(tracer.finishedSpans()).isEmpty();
+    assertThat(request.headers().get("traceid"))
+        .isEqualTo(String.valueOf(root.context().traceId()));
+    assertThat(request.headers().get("spanid"))
+        .isEqualTo(String.valueOf(root.context().spanId()));
+  }
+
+  @Test
+  void should_record_pipelined_requests_in_order() {
+    final EmbeddedChannel channel = new EmbeddedChannel(
+        new DefaultNettyHttpTracingFactory()
+            .collectorRegistry(collectorRegistry)
+            .ticker(new ConstantTicker())
+            .tracer(tracer)
+            .pipeliningLimit(2)
+            .newServerHandler());
+
+    channel.writeInbound(get("/first"), get("/second"), get("/untraced"));
+    channel.writeOutbound(
+        new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK),
+        new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND));
+    channel.writeInbound(get("/third"), get("/fourth"));
+    channel.writeOutbound(
+        new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.SERVICE_UNAVAILABLE),
+        LastHttpContent.EMPTY_LAST_CONTENT,
+        new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.ACCEPTED));
+    channel.finishAndReleaseAll();
+
+    assertThat(samples(collectorRegistry, "http_server_handled_total"))
+        .containsExactly(
+            "http_server_handled_total{:0,200,GET}=1.0",
+            "http_server_handled_total{:0,202,GET}=1.0",
+            "http_server_handled_total{:0,404,GET}=1.0",
+            "http_server_handled_total{:0,499,GET}=1.0");
+
+    assertThat(tracer.finishedSpans().stream()
+        .map(it -> it.tags().get("http.url") + "=" + it.tags().get("http.status_code"))
+        .collect(Collectors.toList()))
+        .containsExactly("/first=200", "/second=404", "/third=202", "/fourth=499");
+  }
+
+  @Test
+  void should_remove_current_span_of_completed_request() {
+    final EmbeddedChannel channel = new EmbeddedChannel(
+        new DefaultNettyHttpTracingFactory()
+            .collectorRegistry(collectorRegistry)
+            .tracer(tracer)
+            .newServerHandler());
+
+    channel.writeInbound(get("/first"), get("/second"));
+    final MockSpan second = (MockSpan) NettyHttpTracingContext.getServerCurrentSpan(channel);
+    assertThat(second.tags()).containsEntry("http.url", "/second");
+
+    channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+    assertThat(NettyHttpTracingContext.getServerCurrentSpan(channel)).isSameAs(second);
+
+    channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+    assertThat(NettyHttpTracingContext.getServerCurrentSpan(channel)).isNull();
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void should_record_latency_with_custom_buckets() {
+    final EmbeddedChannel channel = new EmbeddedChannel(
+        new DefaultNettyHttpTracingFactory()
+            .collectorRegistry(collectorRegistry)
+            .ticker(new ConstantTicker())
+            .tracer(tracer)
+            .latencyBuckets(Buckets.exponential(0.0005, 2, 3))
+            .newServerHandler());
+
+    channel.writeInbound(get("/ping"));
+    channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+    channel.finishAndReleaseAll();
+
+    assertThat(samples(collectorRegistry, "http_server_handled_latency_seconds_bucket"))
+        .containsExactly(
+            "http_server_handled_latency_seconds_bucket{:0,200,GET,+Inf}=1.0",
+            "http_server_handled_latency_seconds_bucket{:0,200,GET,0.001}=1.0",
+            "http_server_handled_latency_seconds_bucket{:0,200,GET,0.002}=1.0",
+            "http_server_handled_latency_seconds_bucket{:0,200,GET,5.0E-4}=0.0");
+  }
+
   private static List<String> logEntries(MockSpan mockSpan) {
     return mockSpan.logEntries().stream()
         .flatMap(it -> it
@@ -0,0 +1,22 @@
+package me.dmexe.telemetery.netty.channel.support;
+
+import io.netty.handler.codec.http2.Http2FrameStream;
+import io.netty.handler.codec.http2.Http2Stream;
+
+public class TestHttp2FrameStream implements Http2FrameStream {
+  private final int id;
+
+  public TestHttp2FrameStream(int id) {
+    this.id = id;
+  }
+
+  @Override
+  public int id() {
+    return id;
+  }
+
+  @Override
+  public Http2Stream.State state() {
+    return Http2Stream.State.OPEN;
+  }
+}
@@ -0,0 +1,125 @@
+package me.dmexe.telemetery.netty.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import me.dmexe.telemetery.netty.alloc.PooledByteBufAllocatorCollector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MetricsServerTest {
+  private final AtomicLong clock = new AtomicLong();
+  private CollectorRegistry registry;
+  private Counter counter;
+  private MetricsServer server;
+
+  @BeforeEach
+  void before() {
+    registry = new CollectorRegistry();
+    counter = Counter.build()
+        .name("test_total")
+        .help("help")
+        .register(registry);
+
+    PooledByteBufAllocatorCollector.remove("metrics-server-test");
+    PooledByteBufAllocatorCollector.add("metrics-server-test", PooledByteBufAllocator.DEFAULT);
+
+    server = MetricsServer.builder()
+        .port(0)
+        .ttl(Duration.ofSeconds(5))
+        .collectorRegistry(registry)
+        .collector(new PooledByteBufAllocatorCollector())
+        .clock(clock::get)
+        .build();
+  }
+
+  @AfterEach
+  void after() {
+    server.close();
+    PooledByteBufAllocatorCollector.remove("metrics-server-test");
+  }
+
+  @Test
+  void should_serve_cached_metrics() throws Exception {
+    counter.inc();
+
+    final HttpURLConnection first = open("/metrics");
+    assertThat(first.getResponseCode()).isEqualTo(200);
+    assertThat(first.getContentType()).isEqualTo("text/plain; version=0.0.4; charset=utf-8");
+    assertThat(read(first.getInputStream()))
+        .contains("# TYPE test_total counter\ntest_total 1.0\n")
+        .contains("netty_alloc_num_allocations{pool=\"metrics-server-test\",arena=\"direct\",}");
+
+    counter.inc();
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(4));
+    assertThat(read(open("/metrics").getInputStream())).contains("test_total 1.0\n");
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertThat(read(open("/metrics?name[]=test_total").getInputStream()))
+        .contains("test_total 2.0\n");
+  }
+
+  @Test
+  void should_serve_gzip_metrics() throws Exception {
+    counter.inc(3);
+
+    final HttpURLConnection connection = open("/metrics");
+    connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+
+    assertThat(connection.getResponseCode()).isEqualTo(200);
+    assertThat(connection.getContentEncoding()).isEqualTo("gzip");
+    assertThat(read(new GZIPInputStream(connection.getInputStream())))
+        .contains("test_total 3.0\n");
+  }
+
+  @Test
+  void should_reject_unknown_requests() throws Exception {
+    assertThat(open("/unknown").getResponseCode()).isEqualTo(404);
+
+    final HttpURLConnection connection = open("/metrics");
+    connection.setRequestMethod("DELETE");
+    assertThat(connection.getResponseCode()).isEqualTo(405);
+
+    final HttpURLConnection head = open("/metrics");
+    head.setRequestMethod("HEAD");
+    assertThat(head.getResponseCode()).isEqualTo(200);
+    assertThat(head.getContentLengthLong()).isPositive();
+  }
+
+  @Test
+  void should_require_port_or_address() {
+    assertThatThrownBy(() -> MetricsServer.builder().build())
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  private HttpURLConnection open(String path) throws IOException {
+    final URL url = new URL("http", "127.0.0.1", server.localAddress().getPort(), path);
+    return (HttpURLConnection) url.openConnection();
+  }
+
+  private static String read(InputStream input) throws IOException {
+    try (InputStream in = input) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        out.write(buffer, 0, read);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}